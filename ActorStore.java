@@ -0,0 +1,272 @@
+import java.util.Arrays;
+
+// Enemy state as parallel primitive arrays. Live actors occupy slots 0..size-1 with no gaps; removal swaps
+// the last slot into the hole. Callers hold handles, which stay valid until the actor is removed and are then
+// recycled through a free list. An occupancy grid maps tiles back to handles.
+public final class ActorStore {
+    private static final EnemyType[] TYPES = EnemyType.values();
+    private static final byte FLAG_ELITE = 1;
+
+    private final int width;
+    private final int height;
+    private final int[] occupancy;
+
+    private int size;
+    private byte[] types;
+    private byte[] flags;
+    private int[] tileX;
+    private int[] tileY;
+    private int[] health;
+    private int[] maxHealth;
+    private int[] attack;
+    private int[] defense;
+    private int[] speed;
+    private int[] experience;
+    private int[] spawnIndex;
+    private int[] slotToHandle;
+
+    private int[] handleToSlot;
+    private int[] freeHandles;
+    private int freeCount;
+    private int nextHandle;
+
+    public ActorStore(int width, int height, int capacity) {
+        this.width = width;
+        this.height = height;
+        this.occupancy = new int[width * height];
+        int initial = Math.max(1, capacity);
+        types = new byte[initial];
+        flags = new byte[initial];
+        tileX = new int[initial];
+        tileY = new int[initial];
+        health = new int[initial];
+        maxHealth = new int[initial];
+        attack = new int[initial];
+        defense = new int[initial];
+        speed = new int[initial];
+        experience = new int[initial];
+        spawnIndex = new int[initial];
+        slotToHandle = new int[initial];
+        handleToSlot = new int[initial];
+        freeHandles = new int[initial];
+        Arrays.fill(handleToSlot, -1);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Adds an actor with the floor-scaled stats for its type and returns its handle.
+    public int spawn(EnemyType type, boolean elite, int x, int y, int floor, int spawn) {
+        int handle = add(type, elite, x, y, spawn);
+        EnemyStatTable.DEFAULT.applyTo(this, slotOf(handle), floor);
+        return handle;
+    }
+
+    // Copies one actor, stats and current health included, from another store.
+    public int copyFrom(ActorStore source, int sourceSlot) {
+        int handle = add(source.getType(sourceSlot), source.isElite(sourceSlot), source.tileX[sourceSlot],
+                source.tileY[sourceSlot], source.spawnIndex[sourceSlot]);
+        int slot = handleToSlot[handle];
+        health[slot] = source.health[sourceSlot];
+        maxHealth[slot] = source.maxHealth[sourceSlot];
+        attack[slot] = source.attack[sourceSlot];
+        defense[slot] = source.defense[sourceSlot];
+        speed[slot] = source.speed[sourceSlot];
+        experience[slot] = source.experience[sourceSlot];
+        return handle;
+    }
+
+    public int add(EnemyType type, boolean elite, int x, int y, int spawn) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new IllegalArgumentException("Actor outside store bounds: " + x + "," + y);
+        }
+        ensureCapacity(size + 1);
+        int handle = freeCount > 0 ? freeHandles[--freeCount] : nextHandle++;
+        if (handle >= handleToSlot.length) {
+            int capacity = Math.max(handle + 1, handleToSlot.length * 2);
+            int oldLength = handleToSlot.length;
+            handleToSlot = Arrays.copyOf(handleToSlot, capacity);
+            Arrays.fill(handleToSlot, oldLength, capacity, -1);
+            freeHandles = Arrays.copyOf(freeHandles, capacity);
+        }
+        int slot = size++;
+        types[slot] = (byte) type.ordinal();
+        flags[slot] = elite ? FLAG_ELITE : 0;
+        tileX[slot] = x;
+        tileY[slot] = y;
+        health[slot] = 0;
+        maxHealth[slot] = 0;
+        attack[slot] = 0;
+        defense[slot] = 0;
+        speed[slot] = 0;
+        experience[slot] = 0;
+        spawnIndex[slot] = spawn;
+        slotToHandle[slot] = handle;
+        handleToSlot[handle] = slot;
+        occupancy[y * width + x] = handle + 1;
+        return handle;
+    }
+
+    public void remove(int handle) {
+        int slot = slotOf(handle);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Unknown actor handle: " + handle);
+        }
+        int tile = tileY[slot] * width + tileX[slot];
+        if (occupancy[tile] == handle + 1) {
+            occupancy[tile] = 0;
+        }
+        int last = --size;
+        if (slot != last) {
+            types[slot] = types[last];
+            flags[slot] = flags[last];
+            tileX[slot] = tileX[last];
+            tileY[slot] = tileY[last];
+            health[slot] = health[last];
+            maxHealth[slot] = maxHealth[last];
+            attack[slot] = attack[last];
+            defense[slot] = defense[last];
+            speed[slot] = speed[last];
+            experience[slot] = experience[last];
+            spawnIndex[slot] = spawnIndex[last];
+            int moved = slotToHandle[last];
+            slotToHandle[slot] = moved;
+            handleToSlot[moved] = slot;
+        }
+        handleToSlot[handle] = -1;
+        freeHandles[freeCount++] = handle;
+    }
+
+    public void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            occupancy[tileY[slot] * width + tileX[slot]] = 0;
+        }
+        Arrays.fill(handleToSlot, -1);
+        size = 0;
+        freeCount = 0;
+        nextHandle = 0;
+    }
+
+    public boolean isAlive(int handle) {
+        return slotOf(handle) >= 0;
+    }
+
+    public int slotOf(int handle) {
+        if (handle < 0 || handle >= handleToSlot.length) {
+            return -1;
+        }
+        return handleToSlot[handle];
+    }
+
+    public int handleAt(int slot) {
+        return slotToHandle[slot];
+    }
+
+    // Handle of the actor standing on the tile, or -1.
+    public int handleAt(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return -1;
+        }
+        return occupancy[y * width + x] - 1;
+    }
+
+    public void moveTo(int slot, int x, int y) {
+        int handle = slotToHandle[slot];
+        int from = tileY[slot] * width + tileX[slot];
+        if (occupancy[from] == handle + 1) {
+            occupancy[from] = 0;
+        }
+        tileX[slot] = x;
+        tileY[slot] = y;
+        occupancy[y * width + x] = handle + 1;
+    }
+
+    void setStats(int slot, int maxHp, int attackValue, int defenseValue, int speedValue, int experienceValue) {
+        maxHealth[slot] = maxHp;
+        health[slot] = maxHp;
+        attack[slot] = attackValue;
+        defense[slot] = defenseValue;
+        speed[slot] = speedValue;
+        experience[slot] = experienceValue;
+    }
+
+    public EnemyType getType(int slot) {
+        return TYPES[types[slot]];
+    }
+
+    public boolean isElite(int slot) {
+        return (flags[slot] & FLAG_ELITE) != 0;
+    }
+
+    public int getX(int slot) {
+        return tileX[slot];
+    }
+
+    public int getY(int slot) {
+        return tileY[slot];
+    }
+
+    public int getHealth(int slot) {
+        return health[slot];
+    }
+
+    public void setHealth(int slot, int value) {
+        health[slot] = value;
+    }
+
+    public int getMaxHealth(int slot) {
+        return maxHealth[slot];
+    }
+
+    public int getAttack(int slot) {
+        return attack[slot];
+    }
+
+    public int getDefense(int slot) {
+        return defense[slot];
+    }
+
+    public int getSpeed(int slot) {
+        return speed[slot];
+    }
+
+    public int getExperience(int slot) {
+        return experience[slot];
+    }
+
+    public int getSpawnIndex(int slot) {
+        return spawnIndex[slot];
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= types.length) {
+            return;
+        }
+        int capacity = Math.max(required, types.length * 2);
+        types = Arrays.copyOf(types, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        tileX = Arrays.copyOf(tileX, capacity);
+        tileY = Arrays.copyOf(tileY, capacity);
+        health = Arrays.copyOf(health, capacity);
+        maxHealth = Arrays.copyOf(maxHealth, capacity);
+        attack = Arrays.copyOf(attack, capacity);
+        defense = Arrays.copyOf(defense, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        experience = Arrays.copyOf(experience, capacity);
+        spawnIndex = Arrays.copyOf(spawnIndex, capacity);
+        slotToHandle = Arrays.copyOf(slotToHandle, capacity);
+    }
+}
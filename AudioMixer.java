@@ -0,0 +1,221 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Software mixer that owns the only open output. Any thread may call play(); requests go through a bounded
+// lock-free ring and are picked up by the mixer thread at the start of each block, so the game never waits on
+// audio. Sounds are preloaded mono PCM and play on a fixed pool of voices; when every voice is busy the oldest
+// one is taken over. Nothing is allocated once the mixer is running.
+public final class AudioMixer implements Runnable {
+    public static final int SAMPLE_RATE = 44_100;
+    public static final int CHANNELS = 2;
+    // About 5.8 ms of audio; a play() request waits at most one block plus the sink's buffer before it is heard.
+    public static final int FRAMES_PER_BLOCK = 256;
+    public static final int MAX_VOICES = 16;
+    private static final int REQUEST_CAPACITY = 64;
+    private static final int GAIN_BITS = 14;
+    private static final int UNITY_GAIN = 1 << GAIN_BITS;
+
+    private final AudioSink sink;
+    private final short[][] sounds;
+    private volatile float masterGain = 1f;
+
+    private final int[] voiceSound = new int[MAX_VOICES];
+    private final int[] voicePosition = new int[MAX_VOICES];
+    private final int[] voiceLeft = new int[MAX_VOICES];
+    private final int[] voiceRight = new int[MAX_VOICES];
+    private final long[] voiceStarted = new long[MAX_VOICES];
+    private int activeVoices;
+
+    // Multi-producer, single-consumer ring. A slot's sequence equals the ticket a producer may claim it with,
+    // becomes ticket + 1 once the request is written, and ticket + capacity once the mixer has consumed it.
+    private final AtomicLong requestTail = new AtomicLong();
+    private final AtomicLongArray requestSequence = new AtomicLongArray(REQUEST_CAPACITY);
+    private final int[] requestSound = new int[REQUEST_CAPACITY];
+    private final int[] requestLeft = new int[REQUEST_CAPACITY];
+    private final int[] requestRight = new int[REQUEST_CAPACITY];
+    private long requestHead;
+
+    private final int[] mix = new int[FRAMES_PER_BLOCK * CHANNELS];
+    private final byte[] output = new byte[FRAMES_PER_BLOCK * CHANNELS * 2];
+    private final AtomicLong droppedRequests = new AtomicLong();
+    private long blocksMixed;
+    private long voicesStolen;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public AudioMixer(AudioSink sink, short[][] sounds) {
+        this.sink = sink;
+        this.sounds = sounds;
+        for (int i = 0; i < REQUEST_CAPACITY; i++) {
+            requestSequence.set(i, i);
+        }
+        for (int i = 0; i < MAX_VOICES; i++) {
+            voiceSound[i] = -1;
+        }
+    }
+
+    public void setMasterGain(float gain) {
+        masterGain = Math.max(0f, gain);
+    }
+
+    // Queues a sound without blocking. Gain is linear, pan runs from -1 (left) to 1 (right). Returns false if
+    // the request ring is full, in which case the sound is dropped.
+    public boolean play(int soundId, float gain, float pan) {
+        if (soundId < 0 || soundId >= sounds.length) {
+            throw new IllegalArgumentException("Unknown sound: " + soundId);
+        }
+        // Equal-power pan so a sound keeps its loudness as it moves across the field.
+        double angle = (Math.max(-1f, Math.min(1f, pan)) + 1) * Math.PI / 4;
+        float level = gain * masterGain * UNITY_GAIN;
+        int left = (int) (level * Math.cos(angle));
+        int right = (int) (level * Math.sin(angle));
+
+        long ticket;
+        int slot;
+        while (true) {
+            ticket = requestTail.get();
+            slot = (int) (ticket & (REQUEST_CAPACITY - 1));
+            long sequence = requestSequence.get(slot);
+            if (sequence == ticket) {
+                if (requestTail.compareAndSet(ticket, ticket + 1)) {
+                    break;
+                }
+            } else if (sequence < ticket) {
+                droppedRequests.incrementAndGet();
+                return false;
+            }
+        }
+        requestSound[slot] = soundId;
+        requestLeft[slot] = left;
+        requestRight[slot] = right;
+        requestSequence.set(slot, ticket + 1);
+        return true;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "AudioMixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    public void close() {
+        Thread mixerThread;
+        synchronized (this) {
+            running = false;
+            mixerThread = thread;
+            thread = null;
+        }
+        if (mixerThread != null) {
+            try {
+                mixerThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sink.close();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            mixBlock();
+        }
+    }
+
+    // Mixes one block into the sink on the calling thread; the mixer thread does this in a loop, and headless
+    // callers can drive it directly without starting the thread.
+    public void mixBlock() {
+        drainRequests();
+        Arrays.fill(mix, 0);
+        for (int voice = 0; voice < MAX_VOICES; voice++) {
+            int sound = voiceSound[voice];
+            if (sound < 0) {
+                continue;
+            }
+            short[] pcm = sounds[sound];
+            int position = voicePosition[voice];
+            int frames = Math.min(FRAMES_PER_BLOCK, pcm.length - position);
+            int left = voiceLeft[voice];
+            int right = voiceRight[voice];
+            for (int i = 0, out = 0; i < frames; i++, out += 2) {
+                int sample = pcm[position + i];
+                mix[out] += sample * left >> GAIN_BITS;
+                mix[out + 1] += sample * right >> GAIN_BITS;
+            }
+            position += frames;
+            if (position >= pcm.length) {
+                voiceSound[voice] = -1;
+                activeVoices--;
+            } else {
+                voicePosition[voice] = position;
+            }
+        }
+        for (int i = 0, out = 0; i < mix.length; i++, out += 2) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+            output[out] = (byte) sample;
+            output[out + 1] = (byte) (sample >> 8);
+        }
+        blocksMixed++;
+        sink.write(output, output.length);
+    }
+
+    private void drainRequests() {
+        while (true) {
+            int slot = (int) (requestHead & (REQUEST_CAPACITY - 1));
+            if (requestSequence.get(slot) != requestHead + 1) {
+                return;
+            }
+            startVoice(requestSound[slot], requestLeft[slot], requestRight[slot]);
+            requestSequence.set(slot, requestHead + REQUEST_CAPACITY);
+            requestHead++;
+        }
+    }
+
+    private void startVoice(int sound, int left, int right) {
+        int chosen = -1;
+        int oldest = 0;
+        for (int voice = 0; voice < MAX_VOICES; voice++) {
+            if (voiceSound[voice] < 0) {
+                chosen = voice;
+                break;
+            }
+            if (voiceStarted[voice] < voiceStarted[oldest]) {
+                oldest = voice;
+            }
+        }
+        if (chosen < 0) {
+            chosen = oldest;
+            voicesStolen++;
+        } else {
+            activeVoices++;
+        }
+        voiceSound[chosen] = sound;
+        voicePosition[chosen] = 0;
+        voiceLeft[chosen] = left;
+        voiceRight[chosen] = right;
+        voiceStarted[chosen] = blocksMixed;
+    }
+
+    public int getActiveVoices() {
+        return activeVoices;
+    }
+
+    public long getBlocksMixed() {
+        return blocksMixed;
+    }
+
+    public long getVoicesStolen() {
+        return voicesStolen;
+    }
+
+    public long getDroppedRequests() {
+        return droppedRequests.get();
+    }
+}
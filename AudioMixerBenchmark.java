@@ -0,0 +1,50 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+// Mixes with every voice busy into a discarding sink and reports the cost per block against its real-time budget.
+// Pass a file name to also write a short WAV of the sound bank for listening.
+public final class AudioMixerBenchmark {
+    private AudioMixerBenchmark() {
+        throw new AssertionError("No instances");
+    }
+
+    public static void main(String[] args) throws IOException {
+        short[][] sounds = SoundBank.synthesize(AudioMixer.SAMPLE_RATE);
+        int blocks = 20_000;
+        AudioMixer mixer = new AudioMixer(AudioSink.discard(false), sounds);
+        Rng rng = new Rng(1);
+        long start = 0;
+        for (int block = -2_000; block < blocks; block++) {
+            if (block == 0) {
+                start = System.nanoTime();
+            }
+            while (mixer.getActiveVoices() < AudioMixer.MAX_VOICES) {
+                mixer.play(rng.nextInt(sounds.length), 0.5f, rng.nextFloat() * 2f - 1f);
+                mixer.mixBlock();
+            }
+            mixer.mixBlock();
+        }
+        double nanosPerBlock = (System.nanoTime() - start) / (double) blocks;
+        double budget = AudioMixer.FRAMES_PER_BLOCK * 1e9 / AudioMixer.SAMPLE_RATE;
+        System.out.println(String.format(Locale.ROOT,
+                "%d voices: %.1f us per %d-frame block (budget %.0f us, %.0fx real time), %d voices stolen",
+                AudioMixer.MAX_VOICES, nanosPerBlock / 1e3, AudioMixer.FRAMES_PER_BLOCK, budget / 1e3,
+                budget / nanosPerBlock, mixer.getVoicesStolen()));
+
+        if (args.length > 0) {
+            Path path = Paths.get(args[0]);
+            AudioMixer recorder = new AudioMixer(AudioSink.wavFile(path), sounds);
+            int blocksPerSound = AudioMixer.SAMPLE_RATE / AudioMixer.FRAMES_PER_BLOCK;
+            for (int sound = 0; sound < sounds.length; sound++) {
+                recorder.play(sound, 1f, 0f);
+                for (int block = 0; block < blocksPerSound; block++) {
+                    recorder.mixBlock();
+                }
+            }
+            recorder.close();
+            System.out.println("Wrote " + path);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+// Where mixed 16-bit little-endian stereo PCM goes. A real line blocks in write() once its buffer is full, which
+// is what paces the mixer thread; the other sinks stand in for it in headless runs and benchmarks.
+public interface AudioSink extends AutoCloseable {
+    AudioFormat FORMAT = new AudioFormat(AudioMixer.SAMPLE_RATE, 16, AudioMixer.CHANNELS, true, false);
+
+    void write(byte[] data, int length);
+
+    @Override
+    void close();
+
+    // The default output device with room for the given number of frames; small buffers mean low latency.
+    static AudioSink openLine(int bufferFrames) throws LineUnavailableException {
+        SourceDataLine line = AudioSystem.getSourceDataLine(FORMAT);
+        line.open(FORMAT, bufferFrames * FORMAT.getFrameSize());
+        line.start();
+        return new AudioSink() {
+            @Override
+            public void write(byte[] data, int length) {
+                line.write(data, 0, length);
+            }
+
+            @Override
+            public void close() {
+                line.stop();
+                line.flush();
+                line.close();
+            }
+        };
+    }
+
+    // Throws the audio away. A real-time sink sleeps as long as the audio would have played, so a mixer thread
+    // behind it costs what it would with a device; otherwise it returns immediately for benchmarks.
+    static AudioSink discard(boolean realTime) {
+        return new AudioSink() {
+            private long deadline = System.nanoTime();
+
+            @Override
+            public void write(byte[] data, int length) {
+                if (!realTime) {
+                    return;
+                }
+                long frames = length / FORMAT.getFrameSize();
+                deadline = Math.max(deadline, System.nanoTime() - 100_000_000L)
+                        + frames * 1_000_000_000L / AudioMixer.SAMPLE_RATE;
+                long wait = deadline - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    // Writes a WAV file; the header's sizes are filled in on close.
+    static AudioSink wavFile(Path path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+        file.setLength(0);
+        file.write(new byte[44]);
+        return new AudioSink() {
+            private long dataBytes;
+
+            @Override
+            public void write(byte[] data, int length) {
+                try {
+                    file.write(data, 0, length);
+                    dataBytes += length;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void close() {
+                try {
+                    file.seek(0);
+                    file.writeBytes("RIFF");
+                    file.writeInt(Integer.reverseBytes((int) (36 + dataBytes)));
+                    file.writeBytes("WAVEfmt ");
+                    file.writeInt(Integer.reverseBytes(16));
+                    file.writeShort(Short.reverseBytes((short) 1));
+                    file.writeShort(Short.reverseBytes((short) AudioMixer.CHANNELS));
+                    file.writeInt(Integer.reverseBytes(AudioMixer.SAMPLE_RATE));
+                    file.writeInt(Integer.reverseBytes(AudioMixer.SAMPLE_RATE * FORMAT.getFrameSize()));
+                    file.writeShort(Short.reverseBytes((short) FORMAT.getFrameSize()));
+                    file.writeShort(Short.reverseBytes((short) 16));
+                    file.writeBytes("data");
+                    file.writeInt(Integer.reverseBytes((int) dataBytes));
+                    file.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+}
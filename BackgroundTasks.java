@@ -0,0 +1,133 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// A fixed pool of daemon threads for work that must stay off the game thread: generating runs, baking render
+// layers and saving files. Submitting to a Lane supersedes whatever that lane already had queued or running, so
+// only its newest request ever publishes. Results reach the game thread through the publish executor and are
+// checked again there, which makes the swap atomic from the game's side: a result that was overtaken while it
+// waited is discarded rather than shown.
+public final class BackgroundTasks {
+    public interface Work<T> {
+        T run(Task task) throws Exception;
+    }
+
+    // One stream of requests where a newer request makes the older ones pointless.
+    public static final class Lane {
+        private final String name;
+        private final AtomicLong latest = new AtomicLong();
+        private final AtomicReference<Future<?>> pending = new AtomicReference<>();
+
+        public Lane(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static final class Task {
+        private final Lane lane;
+        private final long id;
+
+        Task(Lane lane, long id) {
+            this.lane = lane;
+            this.id = id;
+        }
+
+        // True once a newer request was submitted to the same lane. Long work should check between steps and give
+        // up early, by returning or throwing CancellationException.
+        public boolean isCancelled() {
+            return lane.latest.get() != id;
+        }
+    }
+
+    private static final Consumer<Object> DROP = result -> { };
+
+    private final ExecutorService pool;
+    private final Executor publisher;
+
+    public BackgroundTasks(String name, int threads, Executor publisher) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publisher = publisher;
+    }
+
+    public <T> Task submit(Lane lane, Work<T> work, Consumer<? super T> publish) {
+        return submit(lane, work, publish, DROP);
+    }
+
+    // publish runs on the publish executor for the newest request only. discard gets every result that lost the
+    // race, on whichever thread noticed, so pooled objects can go back to their pool.
+    public <T> Task submit(Lane lane, Work<T> work, Consumer<? super T> publish, Consumer<? super T> discard) {
+        Task task = new Task(lane, lane.latest.incrementAndGet());
+        Future<?> previous = lane.pending.getAndSet(pool.submit(() -> runTask(task, work, publish, discard)));
+        if (previous != null) {
+            // Never interrupts: a superseded task that already started sees isCancelled() and its result is dropped.
+            previous.cancel(false);
+        }
+        return task;
+    }
+
+    // For work that nothing supersedes, such as writing a file; it always runs to the end.
+    public void execute(Runnable work) {
+        pool.execute(() -> {
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                System.err.println("Background task failed: " + e);
+            }
+        });
+    }
+
+    // Lets queued work finish, waiting at most the given time; call before exiting so saves are not cut short.
+    public void close(long timeoutMillis) {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> void runTask(Task task, Work<T> work, Consumer<? super T> publish, Consumer<? super T> discard) {
+        if (task.isCancelled()) {
+            return;
+        }
+        T result;
+        try {
+            result = work.run(task);
+        } catch (CancellationException e) {
+            return;
+        } catch (Exception e) {
+            System.err.println(task.lane.name + " failed: " + e);
+            return;
+        }
+        if (task.isCancelled()) {
+            discard.accept(result);
+            return;
+        }
+        publisher.execute(() -> {
+            if (task.isCancelled()) {
+                discard.accept(result);
+            } else {
+                publish.accept(result);
+            }
+        });
+    }
+}
@@ -0,0 +1,52 @@
+// Viewport over the world in pixels. The view is kept inside the world; a world smaller than the view is
+// centred instead. Positions are whole pixels so cached layers blit without resampling.
+public final class Camera {
+    private final int viewWidth;
+    private final int viewHeight;
+    private int worldWidth;
+    private int worldHeight;
+    private int x;
+    private int y;
+
+    public Camera(int viewWidth, int viewHeight) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+    }
+
+    public void setWorldSize(int worldWidth, int worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+    }
+
+    public void follow(float centerX, float centerY) {
+        x = clampAxis(Math.round(centerX - viewWidth / 2f), worldWidth, viewWidth);
+        y = clampAxis(Math.round(centerY - viewHeight / 2f), worldHeight, viewHeight);
+    }
+
+    private static int clampAxis(int position, int world, int view) {
+        if (world <= view) {
+            return (world - view) / 2;
+        }
+        return Math.max(0, Math.min(world - view, position));
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getViewWidth() {
+        return viewWidth;
+    }
+
+    public int getViewHeight() {
+        return viewHeight;
+    }
+
+    public boolean isVisible(float left, float top, float width, float height) {
+        return left + width > x && top + height > y && left < x + viewWidth && top < y + viewHeight;
+    }
+}
@@ -0,0 +1,252 @@
+// The classic 4-5 cave automaton on one bit per tile, wall = 1: a tile ends up a wall when at least five of the nine
+// tiles in its 3x3 block are walls, which is "wall with 4+ wall neighbours, or floor with 5+". A step handles 64 tiles
+// per long through a bit-sliced adder instead of counting neighbours tile by tile. Reusable per map size: all
+// scratch space is allocated once.
+public final class CaveAutomaton {
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    // Valid columns of the last word in a row; the padding beyond the map stays 0.
+    private final long lastWordMask;
+    private TileBitset walls;
+    private TileBitset next;
+    private final TileBitset floor;
+    // Horizontal floor runs for keepLargestCave(); side walls split every row, so a row has at most width / 2.
+    private final int[] runRow;
+    private final int[] runStart;
+    private final int[] runEnd;
+    private final int[] runParent;
+    private final int[] runSize;
+
+    public CaveAutomaton(int width, int height) {
+        if (width < 3 || height < 3) {
+            throw new IllegalArgumentException("Caves need at least 3x3 tiles");
+        }
+        this.width = width;
+        this.height = height;
+        this.walls = new TileBitset(width, height);
+        this.next = new TileBitset(width, height);
+        this.floor = new TileBitset(width, height);
+        int maxRuns = (height - 2) * (width / 2);
+        this.runRow = new int[maxRuns];
+        this.runStart = new int[maxRuns];
+        this.runEnd = new int[maxRuns];
+        this.runParent = new int[maxRuns];
+        this.runSize = new int[maxRuns];
+        this.wordsPerRow = walls.getWordsPerRow();
+        this.lastWordMask = (width & 63) == 0 ? -1L : (1L << width) - 1;
+    }
+
+    // Random walls, about 44% of the interior (bit = a & (b | c | d) of four random words, 7/16), with a solid
+    // border, then the given number of smoothing steps.
+    public void generate(Rng rng, int steps) {
+        long[] words = walls.words();
+        for (int y = 0; y < height; y++) {
+            int base = y * wordsPerRow;
+            boolean border = y == 0 || y == height - 1;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long bits = border ? -1L : rng.nextLong() & (rng.nextLong() | rng.nextLong() | rng.nextLong());
+                words[base + w] = w == wordsPerRow - 1 ? bits & lastWordMask : bits;
+            }
+            setSideWalls(words, base);
+        }
+        next.copyFrom(walls);
+        for (int i = 0; i < steps; i++) {
+            step();
+        }
+    }
+
+    private void step() {
+        long[] in = walls.words();
+        long[] out = next.words();
+        for (int y = 1; y < height - 1; y++) {
+            int above = (y - 1) * wordsPerRow;
+            int base = y * wordsPerRow;
+            int below = (y + 1) * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                // Each row's three-tile horizontal sum as a 2-bit number (high, low) per column.
+                long al = left(in, above, w);
+                long ac = in[above + w];
+                long ar = right(in, above, w);
+                long a0 = al ^ ac ^ ar;
+                long a1 = (al & ac) | (ar & (al ^ ac));
+                long bl = left(in, base, w);
+                long bc = in[base + w];
+                long br = right(in, base, w);
+                long b0 = bl ^ bc ^ br;
+                long b1 = (bl & bc) | (br & (bl ^ bc));
+                long cl = left(in, below, w);
+                long cc = in[below + w];
+                long cr = right(in, below, w);
+                long c0 = cl ^ cc ^ cr;
+                long c1 = (cl & cc) | (cr & (cl ^ cc));
+
+                // Total = ones + 2 * (u0 + 2 * u1 + 4 * u2), 0..9 per column; a wall needs 5 or more.
+                long ones = a0 ^ b0 ^ c0;
+                long carry = (a0 & b0) | (c0 & (a0 ^ b0));
+                long t0 = a1 ^ b1 ^ c1;
+                long t1 = (a1 & b1) | (c1 & (a1 ^ b1));
+                long u0 = t0 ^ carry;
+                long k = t0 & carry;
+                long u1 = t1 ^ k;
+                long u2 = t1 & k;
+                long wall = u2 | (u1 & (u0 | ones));
+                out[base + w] = w == wordsPerRow - 1 ? wall & lastWordMask : wall;
+            }
+            setSideWalls(out, base);
+        }
+        TileBitset swap = walls;
+        walls = next;
+        next = swap;
+    }
+
+    // Bit x holds tile x - 1.
+    private long left(long[] words, int base, int w) {
+        long shifted = words[base + w] << 1;
+        return w > 0 ? shifted | words[base + w - 1] >>> 63 : shifted;
+    }
+
+    // Bit x holds tile x + 1.
+    private long right(long[] words, int base, int w) {
+        long shifted = words[base + w] >>> 1;
+        return w < wordsPerRow - 1 ? shifted | words[base + w + 1] << 63 : shifted;
+    }
+
+    private void setSideWalls(long[] words, int base) {
+        words[base] |= 1L;
+        words[base + ((width - 1) >>> 6)] |= 1L << (width - 1);
+    }
+
+    // Reduces the floor to its largest connected cave and returns its size in tiles; everything else is left as
+    // wall. Call after generate(). Floor is labelled as horizontal runs joined by a union-find wherever runs in
+    // neighbouring rows overlap, which is one pass however many pockets the automaton left.
+    public int keepLargestCave() {
+        long[] wallWords = walls.words();
+        int runCount = 0;
+        int previousFirst = 0;
+        for (int y = 1; y < height - 1; y++) {
+            int base = y * wordsPerRow;
+            int first = runCount;
+            int x = nextOpen(wallWords, base, 0);
+            while (x < width) {
+                int end = nextWall(wallWords, base, x);
+                runRow[runCount] = y;
+                runStart[runCount] = x;
+                runEnd[runCount] = end;
+                runParent[runCount] = runCount;
+                runCount++;
+                x = nextOpen(wallWords, base, end);
+            }
+            // Runs in both rows are sorted, so overlaps are found by walking them side by side.
+            int above = previousFirst;
+            int current = first;
+            while (above < first && current < runCount) {
+                if (runStart[above] < runEnd[current] && runStart[current] < runEnd[above]) {
+                    union(above, current);
+                }
+                if (runEnd[above] < runEnd[current]) {
+                    above++;
+                } else {
+                    current++;
+                }
+            }
+            previousFirst = first;
+        }
+
+        int best = -1;
+        for (int run = 0; run < runCount; run++) {
+            runSize[run] = 0;
+        }
+        for (int run = 0; run < runCount; run++) {
+            int root = find(run);
+            runSize[root] += runEnd[run] - runStart[run];
+            if (best < 0 || runSize[root] > runSize[best]) {
+                best = root;
+            }
+        }
+        floor.clear();
+        if (best < 0) {
+            return 0;
+        }
+        long[] floorWords = floor.words();
+        for (int run = 0; run < runCount; run++) {
+            if (find(run) == best) {
+                fillRun(floorWords, runRow[run] * wordsPerRow, runStart[run], runEnd[run]);
+            }
+        }
+        return runSize[best];
+    }
+
+    private int find(int run) {
+        while (runParent[run] != run) {
+            runParent[run] = runParent[runParent[run]];
+            run = runParent[run];
+        }
+        return run;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            runParent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    // First open column at or after x in the row, or width.
+    private int nextOpen(long[] words, int base, int x) {
+        for (int w = x >>> 6; w < wordsPerRow; w++) {
+            long open = ~words[base + w];
+            if (w == wordsPerRow - 1) {
+                open &= lastWordMask;
+            }
+            if (w == x >>> 6) {
+                open &= -1L << x;
+            }
+            if (open != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(open);
+            }
+        }
+        return width;
+    }
+
+    // First wall column at or after x in the row; the side walls guarantee one.
+    private int nextWall(long[] words, int base, int x) {
+        for (int w = x >>> 6; w < wordsPerRow; w++) {
+            long wall = words[base + w];
+            if (w == x >>> 6) {
+                wall &= -1L << x;
+            }
+            if (wall != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(wall);
+            }
+        }
+        return width;
+    }
+
+    private static void fillRun(long[] words, int base, int start, int end) {
+        for (int w = start >>> 6; w <= (end - 1) >>> 6; w++) {
+            long bits = -1L;
+            if (w == start >>> 6) {
+                bits &= -1L << start;
+            }
+            if (w == (end - 1) >>> 6 && (end & 63) != 0) {
+                bits &= (1L << end) - 1;
+            }
+            words[base + w] |= bits;
+        }
+    }
+
+    // The floor left by keepLargestCave(); valid until the next call.
+    public TileBitset getFloor() {
+        return floor;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.Collections;
+import java.util.List;
+
+// Cave floors: the automaton's largest cave becomes the floor, and the map is cut into a grid of regions that stand
+// in for rooms, so the key-tile stage puts the stairs and the sanctuary in regions far from the start.
+public final class CaveLayoutStage implements GenerationStage {
+    private static final int REGION_COLUMNS = 4;
+    private static final int REGION_ROWS = 4;
+    private static final int MIN_REGION_TILES = 4;
+
+    @Override
+    public String getName() {
+        return "caves";
+    }
+
+    @Override
+    public void run(Dungeon dungeon) {
+        if (dungeon.getLayout() != Dungeon.Layout.CAVES) {
+            return;
+        }
+        Rng rng = dungeon.layoutRng();
+        List<Dungeon.Rect> rooms = dungeon.rooms();
+        int width = dungeon.getWidth();
+        int height = dungeon.getHeight();
+        CaveAutomaton automaton = dungeon.getCaveAutomaton();
+        automaton.generate(rng, GameConfig.CAVE_SMOOTHING_STEPS);
+        if (automaton.keepLargestCave() == 0) {
+            int size = Math.min(dungeon.getRoomMin() + 2, Math.min(width, height) - 2);
+            Dungeon.Rect fallback = new Dungeon.Rect(width / 2 - size / 2, height / 2 - size / 2, size, size);
+            dungeon.carveRoom(fallback);
+            rooms.add(fallback);
+            return;
+        }
+
+        TileBitset floor = automaton.getFloor();
+        for (int index = floor.nextSetTile(0); index >= 0; index = floor.nextSetTile(index + 1)) {
+            dungeon.carveFloor(index % width, index / width);
+        }
+        for (int row = 0; row < REGION_ROWS; row++) {
+            int y = row * height / REGION_ROWS;
+            int h = (row + 1) * height / REGION_ROWS - y;
+            for (int column = 0; column < REGION_COLUMNS; column++) {
+                int x = column * width / REGION_COLUMNS;
+                int w = (column + 1) * width / REGION_COLUMNS - x;
+                if (floor.count(x, y, w, h) >= MIN_REGION_TILES) {
+                    rooms.add(new Dungeon.Rect(x, y, w, h));
+                }
+            }
+        }
+        if (rooms.isEmpty()) {
+            // The cave is too small to fill any region; one region over the whole map still holds all of it.
+            rooms.add(new Dungeon.Rect(0, 0, width, height));
+        }
+        // The first room is where the run starts.
+        Collections.swap(rooms, 0, rng.nextInt(rooms.size()));
+    }
+}
@@ -0,0 +1,210 @@
+import java.awt.Point;
+import java.util.Arrays;
+
+// Reusable per map size: all scratch space is allocated once, so validating a floor that is already
+// connected costs one word-parallel flood fill and no allocation.
+public final class ConnectivityValidator {
+    private final int width;
+    private final int height;
+    private final TileBitset walkable;
+    private final TileBitset reached;
+    private final TileBitset remaining;
+    private final TileBitset component;
+    private final TileBitset scratch;
+    private final int[] parent;
+    private final int[] queue;
+
+    private int lastComponentCount;
+    private int lastRepairedComponents;
+    private int lastCarvedTiles;
+
+    public ConnectivityValidator(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.walkable = new TileBitset(width, height);
+        this.reached = new TileBitset(width, height);
+        this.remaining = new TileBitset(width, height);
+        this.component = new TileBitset(width, height);
+        this.scratch = new TileBitset(width, height);
+        this.parent = new int[width * height];
+        this.queue = new int[width * height];
+    }
+
+    public boolean isConnected(Dungeon dungeon) {
+        dungeon.copyWalkable(walkable);
+        Point start = dungeon.getStartPosition();
+        floodFill(walkable, start.x, start.y, reached);
+        return reached.contentEquals(walkable);
+    }
+
+    // Returns true when the floor was already fully connected.
+    public boolean validateAndRepair(Dungeon dungeon) {
+        lastComponentCount = 1;
+        lastRepairedComponents = 0;
+        lastCarvedTiles = 0;
+        if (isConnected(dungeon)) {
+            return true;
+        }
+
+        remaining.copyFrom(walkable);
+        remaining.andNot(reached);
+        lastComponentCount += countComponents();
+
+        Point start = dungeon.getStartPosition();
+        while (!remaining.isEmpty()) {
+            int seed = remaining.nextSetTile(0);
+            floodFill(walkable, seed % width, seed / width, component);
+            int carved = carveShortestCorridor(dungeon);
+            if (carved < 0) {
+                // No interior route exists; drop the pocket rather than loop forever.
+                remaining.andNot(component);
+                continue;
+            }
+            lastCarvedTiles += carved;
+            lastRepairedComponents++;
+            floodFill(walkable, start.x, start.y, reached);
+            remaining.copyFrom(walkable);
+            remaining.andNot(reached);
+        }
+        return false;
+    }
+
+    public int getLastComponentCount() {
+        return lastComponentCount;
+    }
+
+    public int getLastRepairedComponents() {
+        return lastRepairedComponents;
+    }
+
+    public int getLastCarvedTiles() {
+        return lastCarvedTiles;
+    }
+
+    // The reachable set from the most recent validation; valid until the next call.
+    public TileBitset getReached() {
+        return reached;
+    }
+
+    private int countComponents() {
+        TileBitset pending = component;
+        pending.copyFrom(remaining);
+        int count = 0;
+        int seed;
+        while ((seed = pending.nextSetTile(0)) >= 0) {
+            floodFill(walkable, seed % width, seed / width, scratch);
+            pending.andNot(scratch);
+            count++;
+        }
+        return count;
+    }
+
+    // Breadth-first search from the stray component towards the reached set, through interior tiles only,
+    // then carves the walls along the path. Returns the number of tiles carved, or -1 if unreachable.
+    private int carveShortestCorridor(Dungeon dungeon) {
+        Arrays.fill(parent, -1);
+        int head = 0;
+        int tail = 0;
+        for (int index = component.nextSetTile(0); index >= 0; index = component.nextSetTile(index + 1)) {
+            parent[index] = index;
+            queue[tail++] = index;
+        }
+        int found = -1;
+        while (head < tail && found < 0) {
+            int current = queue[head++];
+            int x = current % width;
+            int y = current / width;
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = x + (dir == 0 ? 1 : dir == 1 ? -1 : 0);
+                int ny = y + (dir == 2 ? 1 : dir == 3 ? -1 : 0);
+                if (nx < 1 || ny < 1 || nx >= width - 1 || ny >= height - 1) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                if (parent[next] != -1) {
+                    continue;
+                }
+                parent[next] = current;
+                if (reached.get(nx, ny)) {
+                    found = next;
+                    break;
+                }
+                queue[tail++] = next;
+            }
+        }
+        if (found < 0) {
+            return -1;
+        }
+        int carved = 0;
+        for (int index = parent[found]; parent[index] != index; index = parent[index]) {
+            int x = index % width;
+            int y = index / width;
+            if (!walkable.get(x, y)) {
+                dungeon.carveFloor(x, y);
+                walkable.set(x, y);
+                carved++;
+            }
+        }
+        return carved;
+    }
+
+    public static void floodFill(TileBitset walk, int startX, int startY, TileBitset out) {
+        out.clear();
+        if (!walk.get(startX, startY)) {
+            return;
+        }
+        out.set(startX, startY);
+        long[] walkWords = walk.words();
+        long[] reach = out.words();
+        int wordsPerRow = walk.getWordsPerRow();
+        int rows = walk.getHeight();
+        fillRuns(reach, walkWords, startY * wordsPerRow, wordsPerRow);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int y = 1; y < rows; y++) {
+                changed |= spreadRow(reach, walkWords, y * wordsPerRow, (y - 1) * wordsPerRow, wordsPerRow);
+            }
+            for (int y = rows - 2; y >= 0; y--) {
+                changed |= spreadRow(reach, walkWords, y * wordsPerRow, (y + 1) * wordsPerRow, wordsPerRow);
+            }
+        }
+    }
+
+    // Pulls reach in from the neighbouring row, then expands it along every walkable run it touches.
+    private static boolean spreadRow(long[] reach, long[] walk, int base, int neighbourBase, int wordsPerRow) {
+        int before = 0;
+        int after = 0;
+        for (int w = 0; w < wordsPerRow; w++) {
+            long current = reach[base + w];
+            before += Long.bitCount(current);
+            reach[base + w] = current | (reach[neighbourBase + w] & walk[base + w]);
+        }
+        fillRuns(reach, walk, base, wordsPerRow);
+        for (int w = 0; w < wordsPerRow; w++) {
+            after += Long.bitCount(reach[base + w]);
+        }
+        return after != before;
+    }
+
+    // Adding the seeds to the run mask carries each seed bit up through the rest of its run; the same trick on
+    // bit-reversed words fills downwards. Carries that leave a word seed the next one.
+    static void fillRuns(long[] reach, long[] walk, int base, int wordsPerRow) {
+        long carry = 0;
+        for (int w = 0; w < wordsPerRow; w++) {
+            long mask = walk[base + w];
+            long seeds = (reach[base + w] | carry) & mask;
+            long filled = (((mask + seeds) ^ mask) & mask) | seeds;
+            reach[base + w] = filled;
+            carry = filled >>> 63;
+        }
+        carry = 0;
+        for (int w = wordsPerRow - 1; w >= 0; w--) {
+            long mask = Long.reverse(walk[base + w]);
+            long seeds = Long.reverse(reach[base + w] | (carry << 63)) & mask;
+            long filled = (((mask + seeds) ^ mask) & mask) | seeds;
+            reach[base + w] = Long.reverse(filled);
+            carry = reach[base + w] & 1L;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+import java.util.List;
+
+public final class CorridorStage implements GenerationStage {
+    @Override
+    public String getName() {
+        return "connectivity";
+    }
+
+    @Override
+    public void run(Dungeon dungeon) {
+        if (dungeon.getLayout() != Dungeon.Layout.ROOMS) {
+            return;
+        }
+        List<Dungeon.Rect> rooms = dungeon.rooms();
+        for (int i = 1; i < rooms.size(); i++) {
+            carveCorridor(dungeon, rooms.get(i - 1), rooms.get(i));
+        }
+    }
+
+    private void carveCorridor(Dungeon dungeon, Dungeon.Rect from, Dungeon.Rect to) {
+        int x1 = from.centerX();
+        int y1 = from.centerY();
+        int x2 = to.centerX();
+        int y2 = to.centerY();
+        boolean horizontalFirst = dungeon.layoutRng().nextBoolean();
+        if (horizontalFirst) {
+            carveHorizontalCorridor(dungeon, x1, x2, y1);
+            carveVerticalCorridor(dungeon, y1, y2, x2);
+        } else {
+            carveVerticalCorridor(dungeon, y1, y2, x1);
+            carveHorizontalCorridor(dungeon, x1, x2, y2);
+        }
+    }
+
+    private void carveHorizontalCorridor(Dungeon dungeon, int x1, int x2, int y) {
+        int start = Math.min(x1, x2);
+        int end = Math.max(x1, x2);
+        for (int x = start; x <= end; x++) {
+            dungeon.carveFloor(x, y);
+        }
+    }
+
+    private void carveVerticalCorridor(Dungeon dungeon, int y1, int y2, int x) {
+        int start = Math.min(y1, y2);
+        int end = Math.max(y1, y2);
+        for (int y = start; y <= end; y++) {
+            dungeon.carveFloor(x, y);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+public final class CosmeticsStage implements GenerationStage {
+    private static final int DECAL_KINDS = 3;
+    private static final float DECAL_CHANCE = 0.08f;
+
+    @Override
+    public String getName() {
+        return "cosmetics";
+    }
+
+    @Override
+    public void run(Dungeon dungeon) {
+        decorate(dungeon);
+    }
+
+    static void decorate(Dungeon dungeon) {
+        Rng rng = dungeon.cosmeticRng();
+        for (int y = 0; y < dungeon.getHeight(); y++) {
+            for (int x = 0; x < dungeon.getWidth(); x++) {
+                Dungeon.TileType tile = dungeon.getTile(x, y);
+                if (tile == Dungeon.TileType.WALL) {
+                    dungeon.setCosmetics(x, y, 0, Dungeon.DECAL_NONE);
+                    continue;
+                }
+                int shadeNoise = rng.nextInt(256);
+                int decal = Dungeon.DECAL_NONE;
+                if (tile == Dungeon.TileType.FLOOR && rng.nextFloat() < DECAL_CHANCE) {
+                    decal = rng.nextInt(DECAL_KINDS);
+                }
+                dungeon.setCosmetics(x, y, shadeNoise, decal);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+// Distance in steps from every walkable tile to the nearest goal. Anything can follow it to the closest goal by
+// repeatedly stepping to a lower neighbour. Moves are four-way and cost one, so the fill is a breadth-first search;
+// the arrays are reused between fills and a generation stamp stands in for clearing them.
+public final class DijkstraMap {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int[] STEP_X = {1, -1, 0, 0};
+    private static final int[] STEP_Y = {0, 0, 1, -1};
+
+    private final int width;
+    private final int height;
+    private final int[] distance;
+    private final int[] stamp;
+    private final int[] queue;
+    private int generation;
+    private int goalCount;
+
+    public DijkstraMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.distance = new int[width * height];
+        this.stamp = new int[width * height];
+        this.queue = new int[width * height];
+    }
+
+    // Starts a new fill; goals are added next and spread with propagate().
+    public void clear() {
+        generation++;
+        goalCount = 0;
+    }
+
+    public void addGoal(int x, int y) {
+        int tile = y * width + x;
+        if (stamp[tile] == generation) {
+            return;
+        }
+        stamp[tile] = generation;
+        distance[tile] = 0;
+        queue[goalCount++] = tile;
+    }
+
+    public int getGoalCount() {
+        return goalCount;
+    }
+
+    public void propagate(Dungeon dungeon) {
+        int head = 0;
+        int tail = goalCount;
+        while (head < tail) {
+            int tile = queue[head++];
+            int x = tile % width;
+            int y = tile / width;
+            int next = distance[tile] + 1;
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + STEP_X[direction];
+                int ny = y + STEP_Y[direction];
+                if (!dungeon.isWalkable(nx, ny)) {
+                    continue;
+                }
+                int neighbour = ny * width + nx;
+                if (stamp[neighbour] != generation) {
+                    stamp[neighbour] = generation;
+                    distance[neighbour] = next;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    public int getDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return UNREACHABLE;
+        }
+        int tile = y * width + x;
+        return stamp[tile] == generation ? distance[tile] : UNREACHABLE;
+    }
+
+    // The neighbouring tile (y * width + x) one step closer to a goal, or -1 at a goal or where none is reachable.
+    public int downhill(int x, int y) {
+        int best = getDistance(x, y);
+        int bestTile = -1;
+        for (int direction = 0; direction < 4; direction++) {
+            int nx = x + STEP_X[direction];
+            int ny = y + STEP_Y[direction];
+            int d = getDistance(nx, ny);
+            if (d < best) {
+                best = d;
+                bestTile = ny * width + nx;
+            }
+        }
+        return bestTile;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -1,8 +1,8 @@
 import java.awt.Point;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Random;
 
 public class Dungeon {
     public enum TileType {
@@ -12,6 +12,17 @@ public class Dungeon {
         STAIRS
     }
 
+    public enum Layout {
+        ROOMS,
+        CAVES
+    }
+
+    public static final int DECAL_NONE = -1;
+
+    private static final TileType[] TILE_TYPES = TileType.values();
+    private static final EnemyType[] ENEMY_TYPES = EnemyType.values();
+    private static final GenerationPipeline STANDARD_PIPELINE = GenerationPipeline.standard();
+
     private final int width;
     private final int height;
     private final int maxRooms;
@@ -19,29 +30,47 @@ public class Dungeon {
     private final int roomMax;
     private final int roomAttempts;
 
-    private final TileType[][] tiles;
+    // Row-major floor model shared by every generation stage.
+    private final byte[] tiles;
+    private final byte[] shade;
+    private final byte[] decals;
     private final List<Rect> rooms = new ArrayList<>();
-    private final List<Enemy> enemies = new ArrayList<>();
-    private final Random rng = new Random();
+    private final ActorStore enemies;
+    private final Rng layoutRng = new Rng();
+    private final Rng spawnRng = new Rng();
+    private final Rng cosmeticRng = new Rng();
+    private final GenerationPipeline pipeline;
+    private final GenerationStats generationStats;
+    private SpawnTable spawnTable;
+    private ConnectivityValidator connectivity;
+    private CaveAutomaton caveAutomaton;
+    private Layout layout;
 
     private Point startPosition = new Point(0, 0);
     private Point sanctuaryPosition;
     private Point stairsPosition;
     private int floor = 1;
+    private long seed;
 
     public Dungeon(int width, int height, int maxRooms, int roomMin, int roomMax, int roomAttempts) {
+        this(width, height, maxRooms, roomMin, roomMax, roomAttempts, STANDARD_PIPELINE);
+    }
+
+    public Dungeon(int width, int height, int maxRooms, int roomMin, int roomMax, int roomAttempts,
+                   GenerationPipeline pipeline) {
         this.width = width;
         this.height = height;
         this.maxRooms = maxRooms;
         this.roomMin = roomMin;
         this.roomMax = roomMax;
         this.roomAttempts = roomAttempts;
-        this.tiles = new TileType[width][height];
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                tiles[x][y] = TileType.WALL;
-            }
-        }
+        this.pipeline = pipeline;
+        this.generationStats = new GenerationStats(pipeline);
+        this.tiles = new byte[width * height];
+        this.shade = new byte[width * height];
+        this.decals = new byte[width * height];
+        this.enemies = new ActorStore(width, height, GameConfig.ENEMIES_MAX);
+        Arrays.fill(decals, (byte) DECAL_NONE);
     }
 
     public void setFloor(int floor) {
@@ -52,234 +81,209 @@ public class Dungeon {
         return floor;
     }
 
+    // Forces one layout for every floor; null goes back to layoutForFloor().
+    public void setLayout(Layout layout) {
+        this.layout = layout;
+    }
+
+    public Layout getLayout() {
+        return layout != null ? layout : layoutForFloor(floor);
+    }
+
+    public static Layout layoutForFloor(int floor) {
+        int interval = GameConfig.CAVE_FLOOR_INTERVAL;
+        return interval > 0 && floor % interval == 0 ? Layout.CAVES : Layout.ROOMS;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
     public void generate(long seed) {
-        rng.setSeed(seed);
+        this.seed = seed;
+        layoutRng.setSeed(seed, RngStream.LAYOUT);
+        spawnRng.setSeed(seed, RngStream.SPAWNS);
+        cosmeticRng.setSeed(seed, RngStream.COSMETICS);
         rooms.clear();
         enemies.clear();
+        startPosition = new Point(0, 0);
         sanctuaryPosition = null;
         stairsPosition = null;
+        Arrays.fill(tiles, (byte) TileType.WALL.ordinal());
 
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                tiles[x][y] = TileType.WALL;
-            }
-        }
-
-        int attempts = 0;
-        while (rooms.size() < maxRooms && attempts < roomAttempts) {
-            attempts++;
-            int w = roomMin + rng.nextInt(roomMax - roomMin + 1);
-            int h = roomMin + rng.nextInt(roomMax - roomMin + 1);
-            if (w >= width - 2 || h >= height - 2) {
-                continue;
-            }
-            int x = 1 + rng.nextInt(Math.max(1, width - w - 1));
-            int y = 1 + rng.nextInt(Math.max(1, height - h - 1));
-            Rect room = new Rect(x, y, w, h);
-
-            boolean overlaps = false;
-            for (Rect other : rooms) {
-                if (room.expanded(1).intersects(other)) {
-                    overlaps = true;
-                    break;
-                }
-            }
-            if (overlaps) {
-                continue;
-            }
+        pipeline.run(this, generationStats);
+    }
 
-            carveRoom(room);
-            if (!rooms.isEmpty()) {
-                Rect previous = rooms.get(rooms.size() - 1);
-                carveCorridor(previous, room);
-            }
-            rooms.add(room);
-        }
+    public GenerationStats getGenerationStats() {
+        return generationStats;
+    }
 
-        if (rooms.isEmpty()) {
-            int w = roomMin + 2;
-            int h = roomMin + 2;
-            int x = width / 2 - w / 2;
-            int y = height / 2 - h / 2;
-            Rect fallback = new Rect(x, y, w, h);
-            carveRoom(fallback);
-            rooms.add(fallback);
+    public ConnectivityValidator getConnectivity() {
+        if (connectivity == null) {
+            connectivity = new ConnectivityValidator(width, height);
         }
-
-        placeKeyTiles();
-        spawnEnemies();
+        return connectivity;
     }
 
-    private void placeKeyTiles() {
-        Rect startRoom = rooms.get(0);
-        startPosition = new Point(startRoom.centerX(), startRoom.centerY());
-
-        Rect stairsRoom = findFarthestRoom(startRoom, null);
-        if (stairsRoom == null) {
-            stairsRoom = startRoom;
-        }
-        stairsPosition = placeWithinRoom(stairsRoom, startPosition);
-        if (stairsPosition != null) {
-            tiles[stairsPosition.x][stairsPosition.y] = TileType.STAIRS;
+    CaveAutomaton getCaveAutomaton() {
+        if (caveAutomaton == null) {
+            caveAutomaton = new CaveAutomaton(width, height);
         }
+        return caveAutomaton;
+    }
 
-        Rect sanctuaryRoom = findFarthestRoom(startRoom, stairsRoom);
-        if (sanctuaryRoom == null) {
-            sanctuaryRoom = rooms.size() > 1 ? rooms.get(rooms.size() - 1) : startRoom;
+    public void copyWalkable(TileBitset out) {
+        if (out.getWidth() != width || out.getHeight() != height) {
+            throw new IllegalArgumentException("Bitset does not match dungeon size");
         }
-        sanctuaryPosition = placeWithinRoom(sanctuaryRoom, stairsPosition);
-        if (sanctuaryPosition != null) {
-            tiles[sanctuaryPosition.x][sanctuaryPosition.y] = TileType.SANCTUARY;
+        out.clear();
+        byte wall = (byte) TileType.WALL.ordinal();
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                if (tiles[row + x] != wall) {
+                    out.set(x, y);
+                }
+            }
         }
     }
 
-    private Rect findFarthestRoom(Rect origin, Rect exclude) {
-        Rect result = null;
-        double bestDistance = -1;
-        for (Rect room : rooms) {
-            if (room == origin || room == exclude) {
-                continue;
-            }
-            double distance = squaredDistance(origin.centerX(), origin.centerY(), room.centerX(), room.centerY());
-            if (distance > bestDistance) {
-                bestDistance = distance;
-                result = room;
-            }
+    public FloorSnapshot snapshot() {
+        byte[] enemyTypes = new byte[enemies.size()];
+        int[] enemyTiles = new int[enemies.size()];
+        BitSet elites = new BitSet(enemies.size());
+        for (int slot = 0; slot < enemies.size(); slot++) {
+            int i = enemies.getSpawnIndex(slot);
+            enemyTypes[i] = (byte) enemies.getType(slot).ordinal();
+            enemyTiles[i] = enemies.getY(slot) * width + enemies.getX(slot);
+            elites.set(i, enemies.isElite(slot));
         }
-        return result;
+        return new FloorSnapshot(seed, floor, width, height, tiles.clone(), packIndex(startPosition),
+                packIndex(stairsPosition), packIndex(sanctuaryPosition), enemyTypes, enemyTiles, elites);
     }
 
-    private Point placeWithinRoom(Rect room, Point avoid) {
-        if (room == null) {
-            return null;
+    public void restore(FloorSnapshot snapshot) {
+        if (snapshot.getWidth() != width || snapshot.getHeight() != height) {
+            throw new IllegalArgumentException("Snapshot is " + snapshot.getWidth() + "x" + snapshot.getHeight()
+                    + ", dungeon is " + width + "x" + height);
         }
-        List<Point> preferred = new ArrayList<>();
-        List<Point> fallback = new ArrayList<>();
-        for (int x = room.x; x < room.x + room.w; x++) {
-            for (int y = room.y; y < room.y + room.h; y++) {
-                if (tiles[x][y] != TileType.FLOOR) {
-                    continue;
-                }
-                Point candidate = new Point(x, y);
-                if (avoid != null && avoid.equals(candidate)) {
-                    continue;
-                }
-                if (candidate.equals(startPosition)) {
-                    fallback.add(candidate);
-                } else {
-                    preferred.add(candidate);
-                }
-            }
+        rooms.clear();
+        enemies.clear();
+        seed = snapshot.getSeed();
+        floor = snapshot.getFloor();
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = snapshot.getTileOrdinal(i);
         }
-        List<Point> pool = preferred.isEmpty() ? fallback : preferred;
-        if (pool.isEmpty()) {
-            return null;
+        startPosition = unpackIndex(snapshot.getStartIndex());
+        stairsPosition = unpackIndex(snapshot.getStairsIndex());
+        sanctuaryPosition = unpackIndex(snapshot.getSanctuaryIndex());
+        for (int i = 0; i < snapshot.getEnemyCount(); i++) {
+            int tile = snapshot.getEnemyTile(i);
+            EnemyType type = ENEMY_TYPES[snapshot.getEnemyTypeOrdinal(i)];
+            enemies.spawn(type, snapshot.isEnemyElite(i), tile % width, tile / width, floor, i);
         }
-        return pool.get(rng.nextInt(pool.size()));
+        // Cosmetics are cheap and seed-derived, so snapshots do not carry them.
+        cosmeticRng.setSeed(seed, RngStream.COSMETICS);
+        CosmeticsStage.decorate(this);
     }
 
-    private double squaredDistance(int x1, int y1, int x2, int y2) {
-        int dx = x1 - x2;
-        int dy = y1 - y2;
-        return dx * dx + dy * dy;
+    private int packIndex(Point point) {
+        return point == null ? -1 : point.y * width + point.x;
     }
 
-    private void spawnEnemies() {
-        List<Point> spawnable = new ArrayList<>();
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                TileType tile = tiles[x][y];
-                if (tile != TileType.FLOOR) {
-                    continue;
-                }
-                Point tilePoint = new Point(x, y);
-                if (tilePoint.equals(startPosition)) {
-                    continue;
-                }
-                spawnable.add(tilePoint);
-            }
-        }
+    private Point unpackIndex(int index) {
+        return index < 0 ? null : new Point(index % width, index / width);
+    }
 
-        if (spawnable.isEmpty()) {
-            return;
-        }
+    int getMaxRooms() {
+        return maxRooms;
+    }
 
-        int minCount = Math.min(GameConfig.ENEMIES_MIN, spawnable.size());
-        int maxCount = Math.min(GameConfig.ENEMIES_MAX, spawnable.size());
-        int countRange = Math.max(0, maxCount - minCount);
-        int enemyCount = minCount + (countRange > 0 ? rng.nextInt(countRange + 1) : 0);
-
-        Collections.shuffle(spawnable, rng);
-        for (int i = 0; i < enemyCount && !spawnable.isEmpty(); i++) {
-            Point spawn = spawnable.remove(spawnable.size() - 1);
-            EnemyType type = chooseWeightedEnemy();
-            boolean elite = rng.nextDouble() < GameConfig.ENEMY_ELITE_CHANCE;
-            Enemy enemy = Enemy.spawn(type, elite, spawn.x, spawn.y, floor);
-            enemies.add(enemy);
-        }
+    int getRoomMin() {
+        return roomMin;
     }
 
-    private EnemyType chooseWeightedEnemy() {
-        int totalWeight = 0;
-        for (EnemyType type : EnemyType.values()) {
-            totalWeight += type.getWeight();
-        }
-        if (totalWeight <= 0) {
-            return EnemyType.GRUNT;
-        }
-        int roll = rng.nextInt(totalWeight);
-        int cumulative = 0;
-        for (EnemyType type : EnemyType.values()) {
-            cumulative += type.getWeight();
-            if (roll < cumulative) {
-                return type;
-            }
-        }
-        return EnemyType.GRUNT;
+    int getRoomMax() {
+        return roomMax;
     }
 
-    private void carveRoom(Rect room) {
-        for (int x = room.x; x < room.x + room.w; x++) {
-            for (int y = room.y; y < room.y + room.h; y++) {
-                carveFloor(x, y);
-            }
-        }
+    int getRoomAttempts() {
+        return roomAttempts;
+    }
+
+    List<Rect> rooms() {
+        return rooms;
+    }
+
+    Rng layoutRng() {
+        return layoutRng;
+    }
+
+    Rng spawnRng() {
+        return spawnRng;
     }
 
-    private void carveCorridor(Rect from, Rect to) {
-        int x1 = from.centerX();
-        int y1 = from.centerY();
-        int x2 = to.centerX();
-        int y2 = to.centerY();
-        boolean horizontalFirst = rng.nextBoolean();
-        if (horizontalFirst) {
-            carveHorizontalCorridor(x1, x2, y1);
-            carveVerticalCorridor(y1, y2, x2);
-        } else {
-            carveVerticalCorridor(y1, y2, x1);
-            carveHorizontalCorridor(x1, x2, y2);
+    Rng cosmeticRng() {
+        return cosmeticRng;
+    }
+
+    SpawnTable spawnTable() {
+        if (spawnTable == null || spawnTable.getFloor() != floor) {
+            spawnTable = SpawnTable.forFloor(floor);
         }
+        return spawnTable;
     }
 
-    private void carveHorizontalCorridor(int x1, int x2, int y) {
-        int start = Math.min(x1, x2);
-        int end = Math.max(x1, x2);
-        for (int x = start; x <= end; x++) {
-            carveFloor(x, y);
+    ActorStore actors() {
+        return enemies;
+    }
+
+    void setStartPosition(Point startPosition) {
+        this.startPosition = startPosition;
+    }
+
+    void setStairsPosition(Point stairsPosition) {
+        this.stairsPosition = stairsPosition;
+        if (stairsPosition != null) {
+            setTile(stairsPosition.x, stairsPosition.y, TileType.STAIRS);
         }
     }
 
-    private void carveVerticalCorridor(int y1, int y2, int x) {
-        int start = Math.min(y1, y2);
-        int end = Math.max(y1, y2);
-        for (int y = start; y <= end; y++) {
-            carveFloor(x, y);
+    void setSanctuaryPosition(Point sanctuaryPosition) {
+        this.sanctuaryPosition = sanctuaryPosition;
+        if (sanctuaryPosition != null) {
+            setTile(sanctuaryPosition.x, sanctuaryPosition.y, TileType.SANCTUARY);
         }
     }
 
-    private void carveFloor(int x, int y) {
+    void setTile(int x, int y, TileType tile) {
         if (!inBounds(x, y)) return;
-        tiles[x][y] = TileType.FLOOR;
+        tiles[y * width + x] = (byte) tile.ordinal();
+    }
+
+    void setCosmetics(int x, int y, int shadeNoise, int decal) {
+        shade[y * width + x] = (byte) shadeNoise;
+        decals[y * width + x] = (byte) decal;
+    }
+
+    void carveRoom(Rect room) {
+        for (int y = room.y; y < room.y + room.h; y++) {
+            for (int x = room.x; x < room.x + room.w; x++) {
+                carveFloor(x, y);
+            }
+        }
+    }
+
+    void carveFloor(int x, int y) {
+        setTile(x, y, TileType.FLOOR);
     }
 
     public boolean inBounds(int x, int y) {
@@ -290,15 +294,32 @@ public class Dungeon {
         if (!inBounds(x, y)) {
             return TileType.WALL;
         }
-        return tiles[x][y];
+        return TILE_TYPES[tiles[y * width + x]];
     }
 
     public boolean isWalkable(int x, int y) {
         if (!inBounds(x, y)) {
             return false;
         }
-        TileType tile = tiles[x][y];
-        return tile == TileType.FLOOR || tile == TileType.SANCTUARY || tile == TileType.STAIRS;
+        return tiles[y * width + x] != TileType.WALL.ordinal();
+    }
+
+    public float getShade(int x, int y) {
+        if (!inBounds(x, y) || tiles[y * width + x] == TileType.WALL.ordinal()) {
+            return 1f;
+        }
+        return 0.9f + (shade[y * width + x] & 0xFF) / 255f * 0.18f;
+    }
+
+    public int getDecal(int x, int y) {
+        if (!inBounds(x, y)) {
+            return DECAL_NONE;
+        }
+        return decals[y * width + x];
+    }
+
+    public int getRoomCount() {
+        return rooms.size();
     }
 
     public Point getStartPosition() {
@@ -313,11 +334,12 @@ public class Dungeon {
         return stairsPosition;
     }
 
-    public List<Enemy> getEnemies() {
-        return Collections.unmodifiableList(enemies);
+    // Enemies as generated, indexed by spawn order; the game copies them into its own live store.
+    public ActorStore getEnemies() {
+        return enemies;
     }
 
-    private static class Rect {
+    static class Rect {
         final int x;
         final int y;
         final int w;
@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+public final class EnemyStatTable {
+    public static final int STAT_MAX_HEALTH = 0;
+    public static final int STAT_ATTACK = 1;
+    public static final int STAT_DEFENSE = 2;
+    public static final int STAT_SPEED = 3;
+    public static final int STAT_EXPERIENCE = 4;
+    private static final int STAT_COUNT = 5;
+
+    private static final EnemyType[] TYPES = EnemyType.values();
+    private static final int FLOORS_PER_CHUNK = 64;
+    private static final int CHUNK_SIZE = FLOORS_PER_CHUNK * TYPES.length * 2 * STAT_COUNT;
+
+    public static final EnemyStatTable DEFAULT = new EnemyStatTable(
+            StatCurve.exponential(GameConfig.ENEMY_FLOOR_HP_MULTIPLIER),
+            StatCurve.exponential(GameConfig.ENEMY_FLOOR_ATTACK_MULTIPLIER),
+            StatCurve.exponential(GameConfig.ENEMY_FLOOR_DEFENSE_MULTIPLIER),
+            StatCurve.softCapped(StatCurve.exponential(GameConfig.ENEMY_FLOOR_SPEED_MULTIPLIER),
+                    GameConfig.ENEMY_SPEED_CAP));
+
+    private final StatCurve healthCurve;
+    private final StatCurve attackCurve;
+    private final StatCurve defenseCurve;
+    private final StatCurve speedCurve;
+
+    // Copy-on-write chunk directory; chunks are immutable once published.
+    private volatile int[][] chunks = new int[0][];
+
+    public EnemyStatTable(StatCurve healthCurve, StatCurve attackCurve, StatCurve defenseCurve,
+                          StatCurve speedCurve) {
+        this.healthCurve = healthCurve;
+        this.attackCurve = attackCurve;
+        this.defenseCurve = defenseCurve;
+        this.speedCurve = speedCurve;
+    }
+
+    public int get(EnemyType type, int floor, boolean elite, int stat) {
+        int floorOffset = Math.max(1, floor) - 1;
+        return chunkFor(floorOffset)[entryIndex(type, floorOffset, elite) + stat];
+    }
+
+    public void applyTo(ActorStore actors, int slot, int floor) {
+        int floorOffset = Math.max(1, floor) - 1;
+        int[] chunk = chunkFor(floorOffset);
+        int base = entryIndex(actors.getType(slot), floorOffset, actors.isElite(slot));
+        actors.setStats(slot, chunk[base + STAT_MAX_HEALTH], chunk[base + STAT_ATTACK], chunk[base + STAT_DEFENSE],
+                chunk[base + STAT_SPEED], chunk[base + STAT_EXPERIENCE]);
+    }
+
+    private static int entryIndex(EnemyType type, int floorOffset, boolean elite) {
+        int row = (floorOffset % FLOORS_PER_CHUNK) * TYPES.length + type.ordinal();
+        return (row * 2 + (elite ? 1 : 0)) * STAT_COUNT;
+    }
+
+    private int[] chunkFor(int floorOffset) {
+        int chunkIndex = floorOffset / FLOORS_PER_CHUNK;
+        int[][] current = chunks;
+        if (chunkIndex < current.length && current[chunkIndex] != null) {
+            return current[chunkIndex];
+        }
+        return buildChunk(chunkIndex);
+    }
+
+    private synchronized int[] buildChunk(int chunkIndex) {
+        int[][] current = chunks;
+        if (chunkIndex < current.length && current[chunkIndex] != null) {
+            return current[chunkIndex];
+        }
+        int[] chunk = new int[CHUNK_SIZE];
+        int firstOffset = chunkIndex * FLOORS_PER_CHUNK;
+        for (int i = 0; i < FLOORS_PER_CHUNK; i++) {
+            int floorOffset = firstOffset + i;
+            double hpMultiplier = healthCurve.multiplier(floorOffset);
+            double attackMultiplier = attackCurve.multiplier(floorOffset);
+            double defenseMultiplier = defenseCurve.multiplier(floorOffset);
+            double speedMultiplier = speedCurve.multiplier(floorOffset);
+            for (EnemyType type : TYPES) {
+                fillEntry(chunk, entryIndex(type, floorOffset, false), type, floorOffset,
+                        hpMultiplier, attackMultiplier, defenseMultiplier, speedMultiplier);
+                fillElite(chunk, entryIndex(type, floorOffset, true), entryIndex(type, floorOffset, false), type);
+            }
+        }
+        int[][] next = Arrays.copyOf(current, Math.max(current.length, chunkIndex + 1));
+        next[chunkIndex] = chunk;
+        chunks = next;
+        return chunk;
+    }
+
+    private static void fillEntry(int[] chunk, int base, EnemyType type, int floorOffset,
+                                  double hpMultiplier, double attackMultiplier, double defenseMultiplier,
+                                  double speedMultiplier) {
+        chunk[base + STAT_MAX_HEALTH] = Math.max(1, saturate(type.getBaseMaxHealth() * hpMultiplier));
+        chunk[base + STAT_ATTACK] = Math.max(1, saturate(type.getBaseAttack() * attackMultiplier));
+        chunk[base + STAT_DEFENSE] = Math.max(0, saturate(type.getBaseDefense() * defenseMultiplier));
+        chunk[base + STAT_SPEED] = clampSpeed(saturate(type.getBaseSpeed() * speedMultiplier));
+        chunk[base + STAT_EXPERIENCE] = Math.max(1, saturate(type.getBaseExperience() + floorOffset * 2.0));
+    }
+
+    private static void fillElite(int[] chunk, int base, int normalBase, EnemyType type) {
+        chunk[base + STAT_MAX_HEALTH] = Math.max(1,
+                saturate(chunk[normalBase + STAT_MAX_HEALTH] * GameConfig.ELITE_HP_MULTIPLIER));
+        chunk[base + STAT_ATTACK] = Math.max(1,
+                saturate(chunk[normalBase + STAT_ATTACK] * GameConfig.ELITE_ATTACK_MULTIPLIER));
+        chunk[base + STAT_DEFENSE] = saturate((double) chunk[normalBase + STAT_DEFENSE] + GameConfig.ELITE_DEFENSE_BONUS);
+        chunk[base + STAT_SPEED] = clampSpeed(saturate(chunk[normalBase + STAT_SPEED] + 1.0));
+        chunk[base + STAT_EXPERIENCE] = saturate(
+                (double) chunk[normalBase + STAT_EXPERIENCE] + Math.max(2, type.getBaseExperience()));
+    }
+
+    private static int clampSpeed(int speed) {
+        return Math.max(1, Math.min(GameConfig.ENEMY_SPEED_MAX, speed));
+    }
+
+    private static int saturate(double value) {
+        if (Double.isNaN(value)) {
+            return 0;
+        }
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.round(value)));
+    }
+}
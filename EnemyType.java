@@ -1,8 +1,8 @@
 public enum EnemyType {
-    GRUNT(60, 10, 2, 12, 6, 40),
-    SLINGER(48, 12, 1, 14, 8, 30),
-    BRUTE(90, 16, 4, 9, 12, 20),
-    GUARDIAN(110, 18, 6, 8, 16, 10);
+    GRUNT(60, 10, 2, 12, 6, 40, -2),
+    SLINGER(48, 12, 1, 14, 8, 30, 0),
+    BRUTE(90, 16, 4, 9, 12, 20, 2),
+    GUARDIAN(110, 18, 6, 8, 16, 10, 3);
 
     private final int baseMaxHealth;
     private final int baseAttack;
@@ -10,14 +10,17 @@ public enum EnemyType {
     private final int baseSpeed;
     private final int baseExperience;
     private final int weight;
+    private final int weightPerFloor;
 
-    EnemyType(int baseMaxHealth, int baseAttack, int baseDefense, int baseSpeed, int baseExperience, int weight) {
+    EnemyType(int baseMaxHealth, int baseAttack, int baseDefense, int baseSpeed, int baseExperience, int weight,
+              int weightPerFloor) {
         this.baseMaxHealth = baseMaxHealth;
         this.baseAttack = baseAttack;
         this.baseDefense = baseDefense;
         this.baseSpeed = baseSpeed;
         this.baseExperience = baseExperience;
         this.weight = weight;
+        this.weightPerFloor = weightPerFloor;
     }
 
     public int getBaseMaxHealth() {
@@ -43,4 +46,8 @@ public enum EnemyType {
     public int getWeight() {
         return weight;
     }
+
+    public int getWeight(int floor) {
+        return Math.max(0, weight + weightPerFloor * (Math.max(1, floor) - 1));
+    }
 }
@@ -0,0 +1,163 @@
+import java.util.Arrays;
+
+// Which tiles the player can currently see and which they have ever seen. Each update records the tiles whose
+// state changed, so consumers such as the minimap only touch those instead of rescanning the floor.
+public final class FieldOfView {
+    private final int width;
+    private final int height;
+    private final TileBitset explored;
+    // A tile is visible when its stamp equals the current generation; the previous generation is last turn's view.
+    private final int[] visibleStamp;
+    private int generation = 2;
+    private int[] visibleTiles;
+    private int[] previousTiles;
+    private int visibleCount;
+    private int previousCount;
+    private int[] changedTiles;
+    private int changedCount;
+    private int newlyExplored;
+
+    public FieldOfView(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.explored = new TileBitset(width, height);
+        this.visibleStamp = new int[width * height];
+        this.visibleTiles = new int[64];
+        this.previousTiles = new int[64];
+        this.changedTiles = new int[64];
+    }
+
+    // Forgets everything; the next update reports every tile it reveals as changed.
+    public void reset() {
+        explored.clear();
+        generation += 2;
+        visibleCount = 0;
+        changedCount = 0;
+        newlyExplored = 0;
+    }
+
+    // Casts a ray from the origin to every tile on the square of the given radius. Rays stop at the first wall,
+    // which is itself visible so room outlines show up.
+    public void update(Dungeon dungeon, int originX, int originY, int radius) {
+        int[] swap = previousTiles;
+        previousTiles = visibleTiles;
+        visibleTiles = swap;
+        previousCount = visibleCount;
+        visibleCount = 0;
+        changedCount = 0;
+        newlyExplored = 0;
+        generation++;
+
+        if (dungeon.inBounds(originX, originY)) {
+            reveal(originX, originY);
+            for (int i = -radius; i <= radius; i++) {
+                castRay(dungeon, originX, originY, originX + i, originY - radius, radius);
+                castRay(dungeon, originX, originY, originX + i, originY + radius, radius);
+                castRay(dungeon, originX, originY, originX - radius, originY + i, radius);
+                castRay(dungeon, originX, originY, originX + radius, originY + i, radius);
+            }
+        }
+        for (int i = 0; i < previousCount; i++) {
+            int tile = previousTiles[i];
+            if (visibleStamp[tile] != generation) {
+                addChanged(tile);
+            }
+        }
+    }
+
+    private void castRay(Dungeon dungeon, int x0, int y0, int x1, int y1, int radius) {
+        int dx = Math.abs(x1 - x0);
+        int dy = Math.abs(y1 - y0);
+        int stepX = x0 < x1 ? 1 : -1;
+        int stepY = y0 < y1 ? 1 : -1;
+        int error = dx - dy;
+        int x = x0;
+        int y = y0;
+        int limit = radius * radius + radius;
+        while (x != x1 || y != y1) {
+            int doubled = error * 2;
+            if (doubled > -dy) {
+                error -= dy;
+                x += stepX;
+            }
+            if (doubled < dx) {
+                error += dx;
+                y += stepY;
+            }
+            int ox = x - x0;
+            int oy = y - y0;
+            if (ox * ox + oy * oy > limit || !dungeon.inBounds(x, y)) {
+                return;
+            }
+            reveal(x, y);
+            if (!dungeon.isWalkable(x, y)) {
+                return;
+            }
+        }
+    }
+
+    private void reveal(int x, int y) {
+        int tile = y * width + x;
+        int stamp = visibleStamp[tile];
+        if (stamp == generation) {
+            return;
+        }
+        visibleStamp[tile] = generation;
+        if (visibleCount == visibleTiles.length) {
+            visibleTiles = Arrays.copyOf(visibleTiles, visibleCount * 2);
+        }
+        visibleTiles[visibleCount++] = tile;
+        if (!explored.get(x, y)) {
+            explored.set(x, y);
+            newlyExplored++;
+        }
+        if (stamp != generation - 1) {
+            addChanged(tile);
+        }
+    }
+
+    private void addChanged(int tile) {
+        if (changedCount == changedTiles.length) {
+            changedTiles = Arrays.copyOf(changedTiles, changedCount * 2);
+        }
+        changedTiles[changedCount++] = tile;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isVisible(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height && visibleStamp[y * width + x] == generation;
+    }
+
+    public boolean isExplored(int x, int y) {
+        return explored.get(x, y);
+    }
+
+    public TileBitset getExplored() {
+        return explored;
+    }
+
+    // Tiles seen for the first time in the last update.
+    public int getNewlyExplored() {
+        return newlyExplored;
+    }
+
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    // Row-major indexes (y * width + x) of the tiles that became visible or stopped being visible last update.
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public int getChangedTile(int i) {
+        return changedTiles[i];
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class FloorCache {
+    private final int capacity;
+    private final Map<Key, FloorSnapshot> entries;
+    private long hits;
+    private long misses;
+
+    public FloorCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        // Access-ordered so the eldest entry is always the least recently used floor.
+        this.entries = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, FloorSnapshot> eldest) {
+                return size() > FloorCache.this.capacity;
+            }
+        };
+    }
+
+    public FloorSnapshot get(long baseSeed, int floor) {
+        FloorSnapshot snapshot = entries.get(new Key(baseSeed, floor));
+        if (snapshot == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return snapshot;
+    }
+
+    public void put(long baseSeed, int floor, FloorSnapshot snapshot) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("snapshot");
+        }
+        entries.put(new Key(baseSeed, floor), snapshot);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long estimatedBytes() {
+        long total = 0;
+        for (FloorSnapshot snapshot : entries.values()) {
+            total += snapshot.estimatedBytes();
+        }
+        return total;
+    }
+
+    private static final class Key {
+        final long baseSeed;
+        final int floor;
+
+        Key(long baseSeed, int floor) {
+            this.baseSeed = baseSeed;
+            this.floor = floor;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return baseSeed == key.baseSeed && floor == key.floor;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(baseSeed) * 31 + floor;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.awt.Point;
+import java.util.Arrays;
+
+// One worker's view of the floor it just generated. Derived measurements are computed on first use and
+// reuse scratch arrays sized to the map, so probing a floor allocates nothing.
+public final class FloorProbe {
+    private final Dungeon dungeon;
+    private final int[] queue;
+    private final int[] distance;
+    private final int[] visitStamp;
+    private int stamp;
+
+    private long runSeed;
+    private int stairsDistance;
+    private int eliteCount;
+    private boolean measured;
+
+    public FloorProbe(Dungeon dungeon) {
+        this.dungeon = dungeon;
+        int area = dungeon.getWidth() * dungeon.getHeight();
+        this.queue = new int[area];
+        this.distance = new int[area];
+        this.visitStamp = new int[area];
+    }
+
+    public void load(long runSeed, int floor) {
+        this.runSeed = runSeed;
+        dungeon.setFloor(floor);
+        dungeon.generate(Rng.deriveSeed(runSeed, floor));
+        measured = false;
+    }
+
+    public long getRunSeed() {
+        return runSeed;
+    }
+
+    public Dungeon getDungeon() {
+        return dungeon;
+    }
+
+    public int getRoomCount() {
+        return dungeon.getRoomCount();
+    }
+
+    public int getEnemyCount() {
+        return dungeon.getEnemies().size();
+    }
+
+    public int getEliteCount() {
+        measure();
+        return eliteCount;
+    }
+
+    // Walking steps from the start tile to the stairs, or -1 if the stairs are missing or unreachable.
+    public int getStairsDistance() {
+        measure();
+        return stairsDistance;
+    }
+
+    public boolean hasSanctuary() {
+        return dungeon.getSanctuaryPosition() != null;
+    }
+
+    private void measure() {
+        if (measured) {
+            return;
+        }
+        measured = true;
+        ActorStore enemies = dungeon.getEnemies();
+        eliteCount = 0;
+        for (int slot = 0; slot < enemies.size(); slot++) {
+            if (enemies.isElite(slot)) {
+                eliteCount++;
+            }
+        }
+        stairsDistance = walkingDistance(dungeon.getStartPosition(), dungeon.getStairsPosition());
+    }
+
+    private int walkingDistance(Point from, Point to) {
+        if (from == null || to == null) {
+            return -1;
+        }
+        int width = dungeon.getWidth();
+        int target = to.y * width + to.x;
+        if (++stamp == 0) {
+            Arrays.fill(visitStamp, 0);
+            stamp = 1;
+        }
+        int head = 0;
+        int tail = 0;
+        int origin = from.y * width + from.x;
+        queue[tail++] = origin;
+        visitStamp[origin] = stamp;
+        distance[origin] = 0;
+        while (head < tail) {
+            int current = queue[head++];
+            if (current == target) {
+                return distance[current];
+            }
+            int x = current % width;
+            int y = current / width;
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = x + (dir == 0 ? 1 : dir == 1 ? -1 : 0);
+                int ny = y + (dir == 2 ? 1 : dir == 3 ? -1 : 0);
+                if (!dungeon.isWalkable(nx, ny)) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                if (visitStamp[next] == stamp) {
+                    continue;
+                }
+                visitStamp[next] = stamp;
+                distance[next] = distance[current] + 1;
+                queue[tail++] = next;
+            }
+        }
+        return -1;
+    }
+}
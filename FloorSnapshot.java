@@ -0,0 +1,108 @@
+import java.util.BitSet;
+
+public final class FloorSnapshot {
+    private final long seed;
+    private final int floor;
+    private final int width;
+    private final int height;
+    private final byte[] tiles;
+    private final int startIndex;
+    private final int stairsIndex;
+    private final int sanctuaryIndex;
+    private final byte[] enemyTypes;
+    private final int[] enemyTiles;
+    private final BitSet eliteEnemies;
+
+    private final BitSet killedEnemies = new BitSet();
+    private boolean sanctuaryUsed;
+
+    FloorSnapshot(long seed, int floor, int width, int height, byte[] tiles, int startIndex, int stairsIndex,
+                  int sanctuaryIndex, byte[] enemyTypes, int[] enemyTiles, BitSet eliteEnemies) {
+        if (tiles.length != width * height) {
+            throw new IllegalArgumentException("Tile layout does not match " + width + "x" + height);
+        }
+        if (enemyTypes.length != enemyTiles.length) {
+            throw new IllegalArgumentException("Enemy arrays differ in length");
+        }
+        this.seed = seed;
+        this.floor = floor;
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+        this.startIndex = startIndex;
+        this.stairsIndex = stairsIndex;
+        this.sanctuaryIndex = sanctuaryIndex;
+        this.enemyTypes = enemyTypes;
+        this.enemyTiles = enemyTiles;
+        this.eliteEnemies = eliteEnemies;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getFloor() {
+        return floor;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    byte getTileOrdinal(int index) {
+        return tiles[index];
+    }
+
+    int getStartIndex() {
+        return startIndex;
+    }
+
+    int getStairsIndex() {
+        return stairsIndex;
+    }
+
+    int getSanctuaryIndex() {
+        return sanctuaryIndex;
+    }
+
+    public int getEnemyCount() {
+        return enemyTypes.length;
+    }
+
+    int getEnemyTypeOrdinal(int enemyIndex) {
+        return enemyTypes[enemyIndex];
+    }
+
+    int getEnemyTile(int enemyIndex) {
+        return enemyTiles[enemyIndex];
+    }
+
+    boolean isEnemyElite(int enemyIndex) {
+        return eliteEnemies.get(enemyIndex);
+    }
+
+    public void markEnemyKilled(int enemyIndex) {
+        killedEnemies.set(enemyIndex);
+    }
+
+    public boolean isEnemyKilled(int enemyIndex) {
+        return killedEnemies.get(enemyIndex);
+    }
+
+    public void markSanctuaryUsed() {
+        sanctuaryUsed = true;
+    }
+
+    public boolean isSanctuaryUsed() {
+        return sanctuaryUsed;
+    }
+
+    public long estimatedBytes() {
+        return tiles.length + enemyTypes.length + enemyTiles.length * 4L
+                + (eliteEnemies.size() + killedEnemies.size()) / 8 + 64;
+    }
+}
@@ -8,19 +8,30 @@ import java.awt.FontMetrics;
 import java.awt.GradientPaint;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Paint;
-import java.awt.Point;
 import java.awt.RadialGradientPaint;
 import java.awt.RenderingHints;
+import java.awt.Shape;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import javax.sound.sampled.LineUnavailableException;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
@@ -29,18 +40,17 @@ public class Game extends JPanel implements Runnable {
     private static final long serialVersionUID = 1L;
 
     private static final int TILE_SIZE = 24;
-    private static final int GRID_WIDTH = 40;
-    private static final int GRID_HEIGHT = 24;
+    private static final int GRID_WIDTH = GameConfig.DUNGEON_WIDTH;
+    private static final int GRID_HEIGHT = GameConfig.DUNGEON_HEIGHT;
+    private static final int VIEW_COLUMNS = 40;
+    private static final int VIEW_ROWS = 24;
     private static final int HUD_HEIGHT = 64;
     private static final int FPS = 60;
     private static final int MOVE_DURATION_MS = 140;
     private static final int PARTICLES_MIN = 6;
     private static final int PARTICLES_MAX = 10;
+    private static final int RUN_ATTEMPTS = 3;
 
-    private static final int MAX_ROOMS = 14;
-    private static final int ROOM_MIN = 4;
-    private static final int ROOM_MAX = 9;
-    private static final int ROOM_ATTEMPTS = 60;
     private static final long DEMO_SEED = 123456789L;
 
     private static final Color COLOR_BG = new Color(0x0D0F14);
@@ -51,8 +61,6 @@ public class Game extends JPanel implements Runnable {
     private static final Color COLOR_TEXT_PRIMARY = new Color(0xEDEFF3);
     private static final Color COLOR_TEXT_SECONDARY = new Color(0xAEB6C2);
     private static final Color COLOR_ACCENT = new Color(0x6BE675);
-    private static final Color COLOR_SANCTUARY = new Color(0x54E0B0);
-    private static final Color COLOR_STAIRS = new Color(0x8DA2FF);
     private static final Color COLOR_SANCTUARY = new Color(0x2F2A55);
     private static final Color COLOR_SANCTUARY_GLOW = new Color(0x6D5BFF);
     private static final Color COLOR_STAIRS = new Color(0x3A4B4F);
@@ -63,18 +71,16 @@ public class Game extends JPanel implements Runnable {
     private static final Color COLOR_OVERLAY_BACK = new Color(0x141820);
     private static final Color COLOR_OVERLAY_PANEL = new Color(0x1B2332);
     private static final Color COLOR_OVERLAY_ACCENT = new Color(0x5F8BFF);
+    private static final int LIGHT_TORCH = 0xFFE2B0;
+    private static final int LIGHT_SANCTUARY = 0x8A78FF;
+    private static final int LIGHT_STAIRS = 0x8ED0E8;
+    private static final int LIGHT_ELITE = 0xF28F45;
 
-    private static final int PANEL_WIDTH = GRID_WIDTH * TILE_SIZE;
-    private static final int PANEL_HEIGHT = GRID_HEIGHT * TILE_SIZE + HUD_HEIGHT;
+    private static final int PANEL_WIDTH = VIEW_COLUMNS * TILE_SIZE;
+    private static final int PANEL_HEIGHT = VIEW_ROWS * TILE_SIZE + HUD_HEIGHT;
 
-    private static final int DECAL_NONE = -1;
-    private static final int DECAL_PLUS = 0;
-    private static final int DECAL_LINE = 1;
-    private static final int DECAL_DOT = 2;
 
     private static class Entity {
-        int tileX;
-        int tileY;
         float renderX;
         float renderY;
         float startX;
@@ -83,28 +89,16 @@ public class Game extends JPanel implements Runnable {
         float targetY;
         float moveTime;
         boolean moving;
-        int hp = 100;
-        int maxHp = 100;
     }
 
-    private static class Enemy extends Entity {
-        String name;
-        boolean elite;
-        int shardReward;
-        int attackPower;
-    }
-
-    private static class RelicDefinition {
-        final String id;
-        final String name;
-        final String description;
-        final int cost;
+    // A generated run and the first screen of its tile layer, handed from the run lane to startRun().
+    private static final class PreparedRun {
+        final GameSimulation simulation;
+        final TileChunkCache.Prepared tiles;
 
-        RelicDefinition(String id, String name, String description, int cost) {
-            this.id = id;
-            this.name = name;
-            this.description = description;
-            this.cost = cost;
+        PreparedRun(GameSimulation simulation, TileChunkCache.Prepared tiles) {
+            this.simulation = simulation;
+            this.tiles = tiles;
         }
     }
 
@@ -118,34 +112,34 @@ public class Game extends JPanel implements Runnable {
         float radius;
     }
 
-    private final float[][] floorShade = new float[GRID_WIDTH][GRID_HEIGHT];
-    private final int[][] floorDecals = new int[GRID_WIDTH][GRID_HEIGHT];
-    private final Dungeon dungeon = new Dungeon(GRID_WIDTH, GRID_HEIGHT, MAX_ROOMS, ROOM_MIN, ROOM_MAX, ROOM_ATTEMPTS);
+    // The rules live in the simulation; Game draws it and feeds it input. Each run is generated on a background
+    // thread and swapped in on the event thread by startRun(); the first one is published by the write to ready.
+    private volatile GameSimulation simulation;
+    private Dungeon dungeon;
+    private ActorStore enemies;
+    private volatile boolean ready;
+    // Set on the event thread when no run could be generated before the first one came in.
+    private String loadFailure;
+    // Chunks rendered with the run being swapped in; resetFloorView() hands them to the cache.
+    private TileChunkCache.Prepared preparedTiles;
+    // Startup milestones in System.nanoTime(), 0 until reached; StartupBenchmark reads them.
+    private volatile long firstFrameNanos;
+    private volatile long interactiveNanos;
+    // The vignette never changes, so it is drawn once into a translucent image; the warm-up thread usually bakes it.
+    private volatile BufferedImage vignette;
     private final Entity player = new Entity();
     private final List<Particle> particles = new ArrayList<>();
-    private final Random rng = new Random();
-    private final List<Enemy> enemies = new ArrayList<>();
-
-    private static final RelicDefinition[] RELIC_LIBRARY = {
-            new RelicDefinition("blood-chalice", "Blood Chalice", "Increase max HP by 25.", 35),
-            new RelicDefinition("glass-blade", "Glass Blade", "Attacks deal +8 damage.", 40),
-            new RelicDefinition("echo-prism", "Echo Prism", "Gain +20% shards from combat.", 30),
-            new RelicDefinition("ward-sigil", "Ward Sigil", "Take 4 less damage from enemies.", 30),
-            new RelicDefinition("sage-bloom", "Sage's Bloom", "Heal 8 HP after each victory.", 28)
-    };
-
-    private long baseSeed;
-    private long currentSeed;
-    private boolean running;
-    private int currentFloor = 1;
-    private int shardCount;
-    private final List<RelicDefinition> ownedRelics = new ArrayList<>();
-    private final List<RelicDefinition> relicPool = new ArrayList<>();
+    private final Rng cosmeticRng = new Rng();
+    private final SimulationView view = new SimulationView();
+    private final BackgroundTasks tasks = new BackgroundTasks("GameTasks", GameConfig.BACKGROUND_THREADS,
+            SwingUtilities::invokeLater);
+    private final BackgroundTasks.Lane runLane = new BackgroundTasks.Lane("Run generation");
+    // Simulations from finished runs and from requests that were overtaken; new runs are generated on these.
+    private final ConcurrentLinkedQueue<GameSimulation> spareSimulations = new ConcurrentLinkedQueue<>();
+    private Replay replay;
+    private long fightStartNanos;
 
-    private int sanctuaryX = -1;
-    private int sanctuaryY = -1;
-    private int stairsX = -1;
-    private int stairsY = -1;
+    private boolean running;
 
     private boolean showSanctuaryOverlay;
     private boolean showRelicOverlay;
@@ -155,211 +149,158 @@ public class Game extends JPanel implements Runnable {
     private static final int SANCTUARY_OPTION_RELIC = 0;
     private static final int SANCTUARY_OPTION_HEAL = 1;
     private static final int SANCTUARY_OPTION_LEAVE = 2;
-    private static final int SANCTUARY_RELIC_COST = 35;
-    private static final int SANCTUARY_HEAL_COST = 15;
-    private static final int SANCTUARY_HEAL_AMOUNT = 45;
 
-    private final CombatManager combatManager = new CombatManager();
+    private BufferedImage frameBuffer;
+    private final TileChunkCache tileChunks = new TileChunkCache(
+            new TileRenderer(TILE_SIZE, COLOR_FLOOR, COLOR_WALL), GameConfig.RASTER_TILE_LAYER);
+    private final Camera camera = new Camera(VIEW_COLUMNS * TILE_SIZE, VIEW_ROWS * TILE_SIZE);
+    private final FieldOfView fieldOfView = new FieldOfView(GRID_WIDTH, GRID_HEIGHT);
+    private final Minimap minimap = new Minimap();
+    private boolean showMinimap = true;
+    private final LightMap lightMap = new LightMap(GRID_WIDTH, GRID_HEIGHT);
+    private int torchLight = -1;
+    // Light source handle per enemy handle, or -1.
+    private int[] enemyLights = new int[GameConfig.ENEMIES_MAX];
+    private volatile AudioMixer audio;
+    private final Telemetry telemetry = GameConfig.TELEMETRY_ENABLED
+            ? new Telemetry(Paths.get(GameConfig.TELEMETRY_DIRECTORY), GameConfig.TELEMETRY_RING_EVENTS,
+                    GameConfig.TELEMETRY_FILE_BYTES)
+            : null;
+    private final SpectatorServer spectators = GameConfig.SPECTATOR_ENABLED
+            ? new SpectatorServer(GameConfig.SPECTATOR_PORT, GameConfig.SPECTATOR_RING_BYTES,
+                    GameConfig.SPECTATOR_VIEWER_BUFFER_BYTES, GameConfig.SPECTATOR_MAX_VIEWERS)
+            : null;
+    private final Runnable spectatorKeyframe = this::publishKeyframe;
+    private volatile boolean spectatorKeyframeQueued;
+    private final DijkstraMap exploreMap = new DijkstraMap(GRID_WIDTH, GRID_HEIGHT);
+    private final PathFinder pathFinder = new PathFinder(GRID_WIDTH, GRID_HEIGHT);
+    private final PathFinder.Blocker enemyBlocker = (x, y) -> enemies.handleAt(x, y) >= 0;
+    private final int[] travelPath = new int[GRID_WIDTH * GRID_HEIGHT];
+    private final Runnable travelStep = this::advanceTravel;
+    private int travelLength;
+    private int travelIndex;
+    private int travelEnemiesInView;
+    private volatile boolean travelStepQueued;
+    // Where the last frame landed in component coordinates, for mapping clicks back to frame pixels.
+    private double presentScale = 1.0;
+    private double presentOffsetX;
+    private double presentOffsetY;
 
     public Game() {
+        this(System.nanoTime());
+    }
+
+    public Game(long runSeed) {
         setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
         setFocusable(true);
         setDoubleBuffered(true);
         setBackground(COLOR_BG);
 
-        beginRun(System.nanoTime());
         initInput();
+        startLoading(runSeed);
     }
 
-    private void generateDungeon() {
-        rng.setSeed(currentSeed);
-        particles.clear();
-        enemies.clear();
-        player.moving = false;
-        player.moveTime = 0f;
-        sanctuaryX = sanctuaryY = -1;
-        stairsX = stairsY = -1;
-
-        dungeon.setFloor(currentFloor);
-        dungeon.generate(currentSeed);
-        currentFloor = dungeon.getFloor();
-
-        for (int x = 0; x < GRID_WIDTH; x++) {
-            for (int y = 0; y < GRID_HEIGHT; y++) {
-                Dungeon.TileType tile = dungeon.getTile(x, y);
-                if (tile == Dungeon.TileType.WALL) {
-                    floorShade[x][y] = 1f;
-                    floorDecals[x][y] = DECAL_NONE;
-                } else {
-                    floorShade[x][y] = 0.9f + rng.nextFloat() * 0.18f;
-                    if (tile == Dungeon.TileType.FLOOR && rng.nextFloat() < 0.08f) {
-                        floorDecals[x][y] = rng.nextInt(3);
-                    } else {
-                        floorDecals[x][y] = DECAL_NONE;
-                    }
-                }
-            }
-            if (overlaps) {
-                continue;
-            }
-
-            carveRoom(room);
-            if (!rooms.isEmpty()) {
-                Rect previous = rooms.get(rooms.size() - 1);
-                carveCorridor(previous, room);
-            }
-            rooms.add(room);
-        }
-
-        if (rooms.isEmpty()) {
-            int w = ROOM_MIN + 2;
-            int h = ROOM_MIN + 2;
-            int x = GRID_WIDTH / 2 - w / 2;
-            int y = GRID_HEIGHT / 2 - h / 2;
-            Rect fallback = new Rect(x, y, w, h);
-            carveRoom(fallback);
-            rooms.add(fallback);
+    // Swing brings the window up on the event thread while the first run is generated in the background and the
+    // text and shape renderers warm up. Frames show an empty HUD and input is ignored until the run is in.
+    private void startLoading(long runSeed) {
+        requestRun(runSeed);
+        // Warming up is extra work, which only pays when another core is idle during startup.
+        if (Runtime.getRuntime().availableProcessors() < 2) {
+            return;
         }
-
-        Rect start = rooms.get(0);
-        placePlayer(start.centerX(), start.centerY());
-
-        placeSanctuaryAndStairs();
-        populateEnemies();
+        tasks.execute(() -> {
+            warmUpRendering();
+            if (vignette == null) {
+                vignette = bakeVignette();
+            }
+        });
     }
 
-    private void carveRoom(Rect room) {
-        for (int x = room.x; x < room.x + room.w; x++) {
-            for (int y = room.y; y < room.y + room.h; y++) {
-                carveFloor(x, y);
-            }
-        }
+    // The first string drawn loads the font rasterizer and the first antialiased or gradient fill loads its
+    // pipeline; doing both here on a scratch image keeps that cost off the first real frame.
+    private static void warmUpRendering() {
+        BufferedImage scratch = new BufferedImage(64, 32, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = scratch.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(new Font(Font.DIALOG, Font.BOLD, 16));
+        g2.drawString("HP 0123456789/ Floor Shards Seed", 0, 24);
+        g2.setFont(new Font(Font.DIALOG, Font.PLAIN, 13));
+        g2.drawString("Move: WASD/Arrows/Click • Explore", 0, 24);
+        g2.setPaint(new GradientPaint(0, 0, COLOR_BG, 0, 16, COLOR_FLOOR));
+        g2.fillRoundRect(0, 0, 32, 16, 8, 8);
+        g2.setPaint(new RadialGradientPaint(new Point2D.Float(16f, 16f), 16f, new float[] {0f, 1f},
+                new Color[] {new Color(0, 0, 0, 0), new Color(0, 0, 0, 200)}));
+        g2.fillOval(0, 0, 32, 32);
+        g2.dispose();
     }
 
-    private void placeSanctuaryAndStairs() {
-        if (rooms.isEmpty()) {
-            return;
-        }
-        Rect sanctuaryRoom = rooms.size() > 1 ? rooms.get(rng.nextInt(rooms.size() - 1) + 1) : rooms.get(0);
-        Rect stairsRoom = rooms.get(rooms.size() - 1);
-        if (sanctuaryRoom == rooms.get(0)) {
-            sanctuaryRoom = rooms.get(rooms.size() / 2);
-        }
-        if (sanctuaryRoom == stairsRoom && rooms.size() > 2) {
-            sanctuaryRoom = rooms.get(rooms.size() / 2);
-        }
-        sanctuaryX = sanctuaryRoom.centerX();
-        sanctuaryY = sanctuaryRoom.centerY();
-        stairsX = stairsRoom.centerX();
-        stairsY = stairsRoom.centerY();
-        if (sanctuaryX == stairsX && sanctuaryY == stairsY) {
-            sanctuaryX = Math.min(GRID_WIDTH - 2, sanctuaryRoom.x + 1);
-            sanctuaryY = Math.min(GRID_HEIGHT - 2, sanctuaryRoom.y + 1);
+    // Called by the simulation once a floor is generated or restored and the player placed, before enemies are added.
+    private void resetFloorView() {
+        particles.clear();
+        cancelTravel();
+        showSanctuaryOverlay = false;
+        showRelicOverlay = false;
+        sanctuaryStatusText = "";
+        sanctuarySelection = 0;
+        if (spectators != null) {
+            spectators.floorEntered();
         }
-    }
 
-    private void populateEnemies() {
-        enemies.clear();
-        if (rooms.isEmpty()) {
-            return;
+        tileChunks.reset(dungeon, GameConfig.LIGHTING_ENABLED ? lightMap : null, preparedTiles);
+        preparedTiles = null;
+        lightMap.reset(dungeon, GameConfig.LIGHT_AMBIENT_RGB);
+        Arrays.fill(enemyLights, -1);
+        if (simulation.getSanctuaryX() >= 0) {
+            lightMap.addSource(simulation.getSanctuaryX(), simulation.getSanctuaryY(),
+                    GameConfig.SANCTUARY_LIGHT_RADIUS, LIGHT_SANCTUARY, 0.8f);
         }
-        int desired = Math.min(rooms.size(), 4 + currentFloor * 2);
-        for (int i = 1; i < rooms.size(); i++) {
-            if (enemies.size() >= desired) {
-                break;
-            }
-            Rect room = rooms.get(i);
-            int attempts = 0;
-            while (attempts++ < 6) {
-                int spawnX = room.x + 1 + rng.nextInt(Math.max(1, room.w - 2));
-                int spawnY = room.y + 1 + rng.nextInt(Math.max(1, room.h - 2));
-                if ((spawnX == sanctuaryX && spawnY == sanctuaryY) || (spawnX == stairsX && spawnY == stairsY)
-                        || (spawnX == player.tileX && spawnY == player.tileY)) {
-                    continue;
-                }
-                if (getEnemyAt(spawnX, spawnY) != null) {
-                    continue;
-                }
-                if (rng.nextFloat() > 0.6f) {
-                    continue;
-                }
-                Enemy enemy = new Enemy();
-                enemy.tileX = spawnX;
-                enemy.tileY = spawnY;
-                enemy.renderX = spawnX;
-                enemy.renderY = spawnY;
-                enemy.startX = spawnX;
-                enemy.startY = spawnY;
-                enemy.targetX = spawnX;
-                enemy.targetY = spawnY;
-                enemy.moving = false;
-                enemy.moveTime = 0f;
-                enemy.elite = rng.nextFloat() < 0.18f + currentFloor * 0.04f;
-                enemy.name = enemy.elite ? "Ascended Warden" : "Shattered Husk";
-                int baseHp = 60 + currentFloor * 18;
-                if (enemy.elite) {
-                    baseHp += 40 + currentFloor * 6;
-                }
-                enemy.maxHp = baseHp;
-                enemy.hp = baseHp;
-                enemy.attackPower = 10 + currentFloor * 2 + (enemy.elite ? 5 : 0);
-                enemy.shardReward = 12 + currentFloor * 4 + (enemy.elite ? 8 : 0);
-                enemies.add(enemy);
-                break;
-            }
+        if (simulation.getStairsX() >= 0) {
+            lightMap.addSource(simulation.getStairsX(), simulation.getStairsY(), GameConfig.STAIRS_LIGHT_RADIUS,
+                    LIGHT_STAIRS, 0.6f);
         }
-    }
+        camera.setWorldSize(dungeon.getWidth() * TILE_SIZE, dungeon.getHeight() * TILE_SIZE);
+        fieldOfView.reset();
+        minimap.reset(dungeon);
 
-    private Enemy getEnemyAt(int x, int y) {
-        for (Enemy enemy : enemies) {
-            if (enemy.tileX == x && enemy.tileY == y) {
-                return enemy;
-            }
-        }
-        return null;
+        snapPlayer();
+        torchLight = lightMap.addSource(simulation.getPlayerX(), simulation.getPlayerY(),
+                GameConfig.PLAYER_TORCH_RADIUS, LIGHT_TORCH, 1f);
+        updateFieldOfView();
     }
 
-    private void carveCorridor(Rect from, Rect to) {
-        int x1 = from.centerX();
-        int y1 = from.centerY();
-        int x2 = to.centerX();
-        int y2 = to.centerY();
-        boolean horizontalFirst = rng.nextBoolean();
-        if (horizontalFirst) {
-            carveHorizontalCorridor(x1, x2, y1);
-            carveVerticalCorridor(y1, y2, x2);
-        } else {
-            carveVerticalCorridor(y1, y2, x1);
-            carveHorizontalCorridor(x1, x2, y2);
+    // Every input that touches the rules goes through here, so the replay holds exactly what the simulation saw.
+    private int perform(int action) {
+        int result = simulation.apply(action);
+        if (replay != null) {
+            replay.record(action, simulation);
         }
-    }
-
-    private void carveHorizontalCorridor(int x1, int x2, int y) {
-        int start = Math.min(x1, x2);
-        int end = Math.max(x1, x2);
-        for (int x = start; x <= end; x++) {
-            carveFloor(x, y);
+        if (GameSimulation.isMove(action) && result == GameSimulation.DONE) {
+            updateFieldOfView();
+            lightMap.moveSource(torchLight, simulation.getPlayerX(), simulation.getPlayerY());
         }
+        if (spectators != null) {
+            spectators.publish(simulation);
+        }
+        return result;
     }
 
-    private void carveVerticalCorridor(int y1, int y2, int x) {
-        int start = Math.min(y1, y2);
-        int end = Math.max(y1, y2);
-        for (int y = start; y <= end; y++) {
-            carveFloor(x, y);
-        }
+    private void updateFieldOfView() {
+        fieldOfView.update(dungeon, simulation.getPlayerX(), simulation.getPlayerY(), GameConfig.PLAYER_SIGHT_RADIUS);
+        minimap.refresh(fieldOfView);
+    }
 
-        Point start = dungeon.getStartPosition();
-        placePlayer(start.x, start.y);
+    private int enemyLight(int handle) {
+        return handle < enemyLights.length ? enemyLights[handle] : -1;
     }
 
     private boolean inBounds(int x, int y) {
         return dungeon.inBounds(x, y);
     }
 
-    private void placePlayer(int tileX, int tileY) {
-        player.tileX = tileX;
-        player.tileY = tileY;
+    private void snapPlayer() {
+        int tileX = simulation.getPlayerX();
+        int tileY = simulation.getPlayerY();
         player.renderX = tileX;
         player.renderY = tileY;
         player.startX = tileX;
@@ -380,9 +321,89 @@ public class Game extends JPanel implements Runnable {
             }
         };
         addKeyListener(adapter);
+
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                requestFocusInWindow();
+                if (ready && e.getButton() == MouseEvent.BUTTON1) {
+                    travelToScreenPoint(e.getX(), e.getY());
+                }
+            }
+        });
+    }
+
+    // Undoes presentFrame's scaling and the camera to find the clicked tile, then walks there if it has been seen.
+    private void travelToScreenPoint(int screenX, int screenY) {
+        if (showSanctuaryOverlay || showRelicOverlay) {
+            return;
+        }
+        double frameX = (screenX - presentOffsetX) / presentScale;
+        double frameY = (screenY - presentOffsetY) / presentScale;
+        if (frameX < 0 || frameX >= PANEL_WIDTH || frameY < HUD_HEIGHT || frameY >= PANEL_HEIGHT) {
+            return;
+        }
+        int tileX = (int) Math.floor((frameX + camera.getX()) / TILE_SIZE);
+        int tileY = (int) Math.floor((frameY - HUD_HEIGHT + camera.getY()) / TILE_SIZE);
+        if (!fieldOfView.isExplored(tileX, tileY)) {
+            return;
+        }
+        cancelTravel();
+        // Enemies are obstacles on the way; clicking one walks up to it and the last step attacks.
+        if (!pathFinder.findPath(dungeon, simulation.getPlayerX(), simulation.getPlayerY(), tileX, tileY, enemyBlocker,
+                PathFinder.NO_LIMIT)
+                || pathFinder.getPathLength() == 0) {
+            return;
+        }
+        travelLength = pathFinder.getPathLength();
+        for (int i = 0; i < travelLength; i++) {
+            travelPath[i] = pathFinder.getStepY(i) * GRID_WIDTH + pathFinder.getStepX(i);
+        }
+        travelIndex = 0;
+        travelEnemiesInView = countEnemiesInView();
+        if (!player.moving) {
+            advanceTravel();
+        }
+    }
+
+    // One step per move animation, on the event thread like key input. Travel stops when a new enemy comes into
+    // view, the way is blocked, or anything interrupts the walk.
+    private void advanceTravel() {
+        travelStepQueued = false;
+        if (travelIndex >= travelLength || player.moving || showSanctuaryOverlay || showRelicOverlay) {
+            return;
+        }
+        int enemiesInView = countEnemiesInView();
+        if (enemiesInView > travelEnemiesInView) {
+            cancelTravel();
+            return;
+        }
+        travelEnemiesInView = enemiesInView;
+        int nextX = travelPath[travelIndex] % GRID_WIDTH;
+        int nextY = travelPath[travelIndex] / GRID_WIDTH;
+        boolean lastStep = travelIndex == travelLength - 1;
+        if (Math.abs(nextX - simulation.getPlayerX()) + Math.abs(nextY - simulation.getPlayerY()) != 1
+                || (!lastStep && enemies.handleAt(nextX, nextY) >= 0)) {
+            cancelTravel();
+            return;
+        }
+        travelIndex++;
+        tryMove(nextX - simulation.getPlayerX(), nextY - simulation.getPlayerY());
+        if (simulation.getPlayerX() != nextX || simulation.getPlayerY() != nextY) {
+            cancelTravel();
+        }
+    }
+
+    private void cancelTravel() {
+        travelLength = 0;
+        travelIndex = 0;
     }
 
     private boolean handleKey(int keyCode) {
+        if (!ready) {
+            return loadFailure != null && handleLoadFailureKey(keyCode);
+        }
+        cancelTravel();
         if (showSanctuaryOverlay) {
             return handleSanctuaryOverlayInput(keyCode);
         }
@@ -394,37 +415,36 @@ public class Game extends JPanel implements Runnable {
             return false;
         }
         if (keyCode == KeyEvent.VK_Q) {
+            shutdown();
             System.exit(0);
             return true;
         }
         if (keyCode == KeyEvent.VK_N) {
-            currentFloor = 1;
-            setSeed(System.nanoTime());
-            generateDungeon();
-            beginRun(System.nanoTime());
+            requestRun(System.nanoTime());
             return true;
         }
         if (keyCode == KeyEvent.VK_F5) {
-            regenerateCurrentFloor();
+            perform(GameSimulation.REGENERATE);
             return true;
         }
         if (keyCode == KeyEvent.VK_P) {
-            beginRun(DEMO_SEED);
+            requestRun(DEMO_SEED);
             return true;
         }
         if (keyCode == KeyEvent.VK_R) {
-            currentFloor = 1;
-            setSeed(DEMO_SEED);
-            generateDungeon();
             showRelicOverlay = !showRelicOverlay;
             return true;
         }
+        if (keyCode == KeyEvent.VK_M) {
+            showMinimap = !showMinimap;
+            return true;
+        }
         if (keyCode == KeyEvent.VK_E) {
-            if (player.tileX == sanctuaryX && player.tileY == sanctuaryY) {
+            if (simulation.isOnSanctuary()) {
                 openSanctuaryOverlay();
                 return true;
             }
-            if (player.tileX == stairsX && player.tileY == stairsY) {
+            if (simulation.isOnStairs()) {
                 descendStairs();
                 return true;
             }
@@ -434,6 +454,9 @@ public class Game extends JPanel implements Runnable {
             return false;
         }
         switch (keyCode) {
+            case KeyEvent.VK_X:
+                autoExplore();
+                return true;
             case KeyEvent.VK_UP:
             case KeyEvent.VK_W:
                 return tryMove(0, -1);
@@ -452,34 +475,21 @@ public class Game extends JPanel implements Runnable {
     }
 
     private boolean tryMove(int dx, int dy) {
-        int newX = player.tileX + dx;
-        int newY = player.tileY + dy;
-        if (!isWalkable(newX, newY)) {
-            return false;
+        int fromX = simulation.getPlayerX();
+        int fromY = simulation.getPlayerY();
+        int result = perform(GameSimulation.moveAction(dx, dy));
+        if (result != GameSimulation.DONE) {
+            return result == GameSimulation.DEFEATED;
         }
-        Enemy enemy = getEnemyAt(newX, newY);
-        if (enemy != null) {
-            boolean victory = combatManager.engage(enemy);
-            if (!victory) {
-                return true;
-            }
-        }
-        if (getEnemyAt(newX, newY) != null) {
-            return true;
-        }
-        int fromX = player.tileX;
-        int fromY = player.tileY;
-
         player.startX = player.renderX;
         player.startY = player.renderY;
-        player.targetX = newX;
-        player.targetY = newY;
-        player.tileX = newX;
-        player.tileY = newY;
+        player.targetX = simulation.getPlayerX();
+        player.targetY = simulation.getPlayerY();
         player.moveTime = 0f;
         player.moving = true;
 
         spawnStepParticles(fromX, fromY);
+        playSound(SoundBank.STEP, 0.5f, simulation.getPlayerX());
         return true;
     }
 
@@ -487,22 +497,88 @@ public class Game extends JPanel implements Runnable {
         return dungeon.isWalkable(x, y);
     }
 
+    // Walks toward the nearest unexplored frontier until an enemy is in view, the floor is fully explored or the
+    // step budget runs out. Steps are resolved as whole turns without animation and drawn once at the end. The
+    // distance map is only rebuilt when a step reveals new tiles, since only then can the frontier move.
+    private void autoExplore() {
+        int steps = 0;
+        boolean stale = true;
+        while (steps < GameConfig.AUTO_EXPLORE_MAX_STEPS && !isEnemyInView()) {
+            if (stale) {
+                buildExploreMap();
+                stale = false;
+            }
+            int next = exploreMap.downhill(simulation.getPlayerX(), simulation.getPlayerY());
+            if (next < 0) {
+                break;
+            }
+            int nextX = next % GRID_WIDTH;
+            int nextY = next / GRID_WIDTH;
+            if (enemies.handleAt(nextX, nextY) >= 0) {
+                break;
+            }
+            if (perform(GameSimulation.moveAction(nextX - simulation.getPlayerX(),
+                    nextY - simulation.getPlayerY())) != GameSimulation.DONE) {
+                break;
+            }
+            steps++;
+            stale = fieldOfView.getNewlyExplored() > 0;
+        }
+        if (steps > 0) {
+            snapPlayer();
+            playSound(SoundBank.STEP, 0.5f, simulation.getPlayerX());
+        }
+    }
+
+    // Goals are explored floor tiles with an unexplored neighbour.
+    private void buildExploreMap() {
+        exploreMap.clear();
+        TileBitset explored = fieldOfView.getExplored();
+        for (int tile = explored.nextSetTile(0); tile >= 0; tile = explored.nextSetTile(tile + 1)) {
+            int x = tile % GRID_WIDTH;
+            int y = tile / GRID_WIDTH;
+            if (isWalkable(x, y) && (isFrontier(x + 1, y) || isFrontier(x - 1, y)
+                    || isFrontier(x, y + 1) || isFrontier(x, y - 1))) {
+                exploreMap.addGoal(x, y);
+            }
+        }
+        exploreMap.propagate(dungeon);
+    }
+
+    private boolean isFrontier(int x, int y) {
+        return inBounds(x, y) && !fieldOfView.isExplored(x, y);
+    }
+
+    private boolean isEnemyInView() {
+        return countEnemiesInView() > 0;
+    }
+
+    private int countEnemiesInView() {
+        int count = 0;
+        for (int slot = 0; slot < enemies.size(); slot++) {
+            if (fieldOfView.isVisible(enemies.getX(slot), enemies.getY(slot))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     private void spawnStepParticles(int tileX, int tileY) {
-        int count = PARTICLES_MIN + rng.nextInt(PARTICLES_MAX - PARTICLES_MIN + 1);
+        int count = PARTICLES_MIN + cosmeticRng.nextInt(PARTICLES_MAX - PARTICLES_MIN + 1);
         float originX = (tileX + 0.5f) * TILE_SIZE;
         float originY = (tileY + 0.75f) * TILE_SIZE;
         for (int i = 0; i < count; i++) {
-            float angle = (float) (rng.nextFloat() * Math.PI * 2);
-            float speed = 20f + rng.nextFloat() * 40f;
+            float angle = (float) (cosmeticRng.nextFloat() * Math.PI * 2);
+            float speed = 20f + cosmeticRng.nextFloat() * 40f;
             Particle p = new Particle();
-            float offsetRadius = rng.nextFloat() * 6f;
+            float offsetRadius = cosmeticRng.nextFloat() * 6f;
             p.x = originX + (float) Math.cos(angle) * offsetRadius;
             p.y = originY + (float) Math.sin(angle) * offsetRadius;
             p.vx = (float) Math.cos(angle) * speed;
-            p.vy = (float) Math.sin(angle) * speed - rng.nextFloat() * 10f;
+            p.vy = (float) Math.sin(angle) * speed - cosmeticRng.nextFloat() * 10f;
             p.life = 0f;
-            p.maxLife = 0.2f + rng.nextFloat() * 0.2f;
-            p.radius = 2f + rng.nextFloat() * 2f;
+            p.maxLife = 0.2f + cosmeticRng.nextFloat() * 0.2f;
+            p.radius = 2f + cosmeticRng.nextFloat() * 2f;
             particles.add(p);
         }
     }
@@ -516,9 +592,53 @@ public class Game extends JPanel implements Runnable {
             Thread thread = new Thread(this, "GameLoop");
             thread.setDaemon(true);
             thread.start();
+            if (GameConfig.AUDIO_ENABLED) {
+                // Opening the line and synthesizing the sounds take a while; the game plays silently until then.
+                Thread audioStarter = new Thread(this::startAudio, "AudioStarter");
+                audioStarter.setDaemon(true);
+                audioStarter.start();
+            }
+            if (telemetry != null) {
+                telemetry.start();
+            }
+            if (spectators != null) {
+                spectators.start();
+            }
         }
     }
 
+    // Without an output device the mixer still runs against a discarding sink, so sound calls behave the same.
+    private void startAudio() {
+        AudioSink sink;
+        try {
+            sink = AudioSink.openLine(AudioMixer.FRAMES_PER_BLOCK * GameConfig.AUDIO_BUFFER_BLOCKS);
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            System.err.println("Audio output unavailable: " + e.getMessage());
+            sink = AudioSink.discard(true);
+        }
+        AudioMixer mixer = new AudioMixer(sink, SoundBank.synthesize(AudioMixer.SAMPLE_RATE));
+        mixer.setMasterGain(GameConfig.AUDIO_MASTER_GAIN);
+        mixer.start();
+        audio = mixer;
+    }
+
+    private void track(short type, long a, long b) {
+        if (telemetry != null) {
+            telemetry.record(type, simulation.getFloor(), a, b);
+        }
+    }
+
+    // Pans by where the tile sits in the view.
+    private void playSound(int soundId, float gain, int tileX) {
+        AudioMixer mixer = audio;
+        if (mixer == null) {
+            return;
+        }
+        float screenX = (tileX + 0.5f) * TILE_SIZE - camera.getX();
+        float pan = screenX / camera.getViewWidth() * 2f - 1f;
+        mixer.play(soundId, gain, pan * 0.7f);
+    }
+
     @Override
     public void run() {
         long lastTime = System.nanoTime();
@@ -540,7 +660,7 @@ public class Game extends JPanel implements Runnable {
                 updated = true;
             }
 
-            if (updated) {
+            if (updated && ready) {
                 repaint();
             }
 
@@ -557,14 +677,31 @@ public class Game extends JPanel implements Runnable {
     }
 
     private void tick(float dt) {
+        if (!ready) {
+            return;
+        }
         updatePlayer(dt);
         updateParticles(dt);
+        if (travelIndex < travelLength && !player.moving && !travelStepQueued) {
+            travelStepQueued = true;
+            SwingUtilities.invokeLater(travelStep);
+        }
+        // A viewer joined between actions; it gets its keyframe without waiting for the player to move.
+        if (spectators != null && spectators.isKeyframeRequested() && !spectatorKeyframeQueued) {
+            spectatorKeyframeQueued = true;
+            SwingUtilities.invokeLater(spectatorKeyframe);
+        }
+    }
+
+    private void publishKeyframe() {
+        spectatorKeyframeQueued = false;
+        spectators.publish(simulation);
     }
 
     private void updatePlayer(float dt) {
         if (!player.moving) {
-            player.renderX = player.tileX;
-            player.renderY = player.tileY;
+            player.renderX = simulation.getPlayerX();
+            player.renderY = simulation.getPlayerY();
             return;
         }
         player.moveTime += dt * 1000f;
@@ -595,91 +732,152 @@ public class Game extends JPanel implements Runnable {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Graphics2D g2 = (Graphics2D) g.create();
+        BufferedImage frame = frameBuffer();
+        Graphics2D frameGraphics = frame.createGraphics();
+        boolean playable = ready;
+        if (playable) {
+            renderFrame(frameGraphics);
+        } else {
+            renderLoadingFrame(frameGraphics);
+        }
+        frameGraphics.dispose();
+        presentFrame(g, frame);
+        if (firstFrameNanos == 0) {
+            firstFrameNanos = System.nanoTime();
+        }
+        if (playable && interactiveNanos == 0) {
+            interactiveNanos = System.nanoTime();
+        }
+    }
+
+    // Shapes only, so the first frame does not wait for fonts; text only appears if loading failed.
+    private void renderLoadingFrame(Graphics2D g2) {
+        g2.setColor(COLOR_BG);
+        g2.fillRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
+        g2.setColor(COLOR_OVERLAY_BACK);
+        g2.fillRect(0, 0, PANEL_WIDTH, HUD_HEIGHT);
+        if (loadFailure == null) {
+            return;
+        }
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(new Font(Font.DIALOG, Font.BOLD, 16));
+        g2.setColor(COLOR_TEXT_PRIMARY);
+        g2.drawString("No dungeon could be generated: " + loadFailure, 24, HUD_HEIGHT + 48);
+        g2.setFont(new Font(Font.DIALOG, Font.PLAIN, 13));
+        g2.setColor(COLOR_TEXT_SECONDARY);
+        g2.drawString("N: try another seed    Q: quit", 24, HUD_HEIGHT + 72);
+    }
+
+    private boolean handleLoadFailureKey(int keyCode) {
+        if (keyCode == KeyEvent.VK_Q) {
+            shutdown();
+            System.exit(0);
+            return true;
+        }
+        if (keyCode == KeyEvent.VK_N) {
+            loadFailure = null;
+            requestRun(System.nanoTime());
+            return true;
+        }
+        return false;
+    }
+
+    long getFirstFrameNanos() {
+        return firstFrameNanos;
+    }
+
+    long getInteractiveNanos() {
+        return interactiveNanos;
+    }
+
+    private BufferedImage frameBuffer() {
+        if (frameBuffer == null) {
+            GraphicsConfiguration config = getGraphicsConfiguration();
+            frameBuffer = config != null
+                    ? config.createCompatibleImage(PANEL_WIDTH, PANEL_HEIGHT)
+                    : new BufferedImage(PANEL_WIDTH, PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        }
+        return frameBuffer;
+    }
+
+    // Everything is drawn at the fixed logical resolution, so the cost of a frame does not grow with the window.
+    private void renderFrame(Graphics2D g2) {
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
         g2.setColor(COLOR_BG);
-        g2.fillRect(0, 0, getWidth(), getHeight());
+        g2.fillRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
 
         drawHUD(g2);
 
-        g2.translate(0, HUD_HEIGHT);
+        camera.follow((player.renderX + 0.5f) * TILE_SIZE, (player.renderY + 0.5f) * TILE_SIZE);
+        Shape screenClip = g2.getClip();
+        g2.clipRect(0, HUD_HEIGHT, camera.getViewWidth(), camera.getViewHeight());
+        int worldX = -camera.getX();
+        int worldY = HUD_HEIGHT - camera.getY();
+        g2.translate(worldX, worldY);
         drawTiles(g2);
         drawEnemies(g2);
         drawParticles(g2);
         drawPlayer(g2);
-        g2.translate(0, -HUD_HEIGHT);
+        g2.translate(-worldX, -worldY);
+        g2.setClip(screenClip);
 
         drawVignette(g2);
+        if (showMinimap) {
+            drawMinimap(g2);
+        }
 
         if (showSanctuaryOverlay) {
             drawSanctuaryOverlay(g2);
         } else if (showRelicOverlay) {
             drawRelicOverlay(g2);
         }
+    }
 
+    // Scales by the largest whole factor that fits in device pixels, so HiDPI screens stay crisp, and centres
+    // the frame; the panel background fills the letterbox.
+    private void presentFrame(Graphics g, BufferedImage frame) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        AffineTransform device = g2.getTransform();
+        int deviceWidth = (int) Math.round(getWidth() * device.getScaleX());
+        int deviceHeight = (int) Math.round(getHeight() * device.getScaleY());
+        int scale = Math.max(1, Math.min(deviceWidth / PANEL_WIDTH, deviceHeight / PANEL_HEIGHT));
+        int drawWidth = PANEL_WIDTH * scale;
+        int drawHeight = PANEL_HEIGHT * scale;
+        presentScale = scale / device.getScaleX();
+        presentOffsetX = (deviceWidth - drawWidth) / 2 / device.getScaleX();
+        presentOffsetY = (deviceHeight - drawHeight) / 2 / device.getScaleY();
+        g2.setTransform(AffineTransform.getTranslateInstance(device.getTranslateX(), device.getTranslateY()));
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g2.drawImage(frame, (deviceWidth - drawWidth) / 2, (deviceHeight - drawHeight) / 2, drawWidth, drawHeight,
+                null);
         g2.dispose();
     }
 
     private void drawTiles(Graphics2D g2) {
-        for (int x = 0; x < GRID_WIDTH; x++) {
-            for (int y = 0; y < GRID_HEIGHT; y++) {
-                Dungeon.TileType tile = dungeon.getTile(x, y);
-                if (tile == Dungeon.TileType.WALL) {
-                    drawWallTile(g2, x, y);
-                } else {
-                    drawFloorTile(g2, x, y, tile);
-                }
-            }
+        tileChunks.draw(g2, camera);
+        int sanctuaryX = simulation.getSanctuaryX();
+        int sanctuaryY = simulation.getSanctuaryY();
+        int stairsX = simulation.getStairsX();
+        int stairsY = simulation.getStairsY();
+        if (sanctuaryX >= 0 && isTileVisible(sanctuaryX, sanctuaryY)) {
+            drawKeyTileGlyph(g2, sanctuaryX, sanctuaryY, dungeon.getTile(sanctuaryX, sanctuaryY));
+            drawSanctuaryTile(g2, sanctuaryX * TILE_SIZE, sanctuaryY * TILE_SIZE);
         }
+        if (stairsX >= 0 && isTileVisible(stairsX, stairsY)) {
+            drawKeyTileGlyph(g2, stairsX, stairsY, dungeon.getTile(stairsX, stairsY));
+            drawStairsTile(g2, stairsX * TILE_SIZE, stairsY * TILE_SIZE);
+        }
+    }
+
+    // A tile plus a little headroom, since health bars and glows spill past the tile's top edge.
+    private boolean isTileVisible(int x, int y) {
+        return camera.isVisible(x * TILE_SIZE - 4, y * TILE_SIZE - 8, TILE_SIZE + 8, TILE_SIZE + 12);
     }
 
-    private void drawFloorTile(Graphics2D g2, int x, int y, Dungeon.TileType tile) {
+    private void drawKeyTileGlyph(Graphics2D g2, int x, int y, Dungeon.TileType tile) {
         int px = x * TILE_SIZE;
         int py = y * TILE_SIZE;
-        float shade = floorShade[x][y];
-        Color base = scaleColor(COLOR_FLOOR, shade);
-        g2.setColor(base);
-        g2.fillRect(px, py, TILE_SIZE, TILE_SIZE);
-
-        Random tileRandom = new Random(tileHash(currentSeed, x, y));
-        for (int i = 0; i < 5; i++) {
-            float dotX = px + tileRandom.nextFloat() * TILE_SIZE;
-            float dotY = py + tileRandom.nextFloat() * TILE_SIZE;
-            float alpha = 0.05f + tileRandom.nextFloat() * 0.05f;
-            boolean light = tileRandom.nextBoolean();
-            Color dotColor = light ? new Color(255, 255, 255, (int) (alpha * 255))
-                    : new Color(0, 0, 0, (int) (alpha * 255));
-            g2.setColor(dotColor);
-            g2.fillRect(Math.round(dotX), Math.round(dotY), 1, 1);
-        }
-
-        int decal = floorDecals[x][y];
-        if (decal != DECAL_NONE) {
-            CompositeState state = new CompositeState(g2);
-            g2.setComposite(AlphaComposite.SrcOver.derive(0.12f));
-            g2.setColor(new Color(0x6B7285));
-            int cx = px + TILE_SIZE / 2;
-            int cy = py + TILE_SIZE / 2;
-            switch (decal) {
-                case DECAL_PLUS:
-                    g2.fillRect(cx - 1, py + TILE_SIZE / 4, 2, TILE_SIZE / 2);
-                    g2.fillRect(px + TILE_SIZE / 4, cy - 1, TILE_SIZE / 2, 2);
-                    break;
-                case DECAL_LINE:
-                    g2.setStroke(new BasicStroke(1f));
-                    g2.drawLine(px + TILE_SIZE / 4, py + TILE_SIZE / 4, px + TILE_SIZE * 3 / 4, py + TILE_SIZE * 3 / 4);
-                    break;
-                case DECAL_DOT:
-                    g2.fillOval(cx - 2, cy - 2, 4, 4);
-                    break;
-                default:
-                    break;
-            }
-            state.restore();
-        }
-
         if (tile == Dungeon.TileType.SANCTUARY) {
             CompositeState state = new CompositeState(g2);
             g2.setComposite(AlphaComposite.SrcOver.derive(GameConfig.SANCTUARY_GLOW_ALPHA));
@@ -713,18 +911,13 @@ public class Game extends JPanel implements Runnable {
             g2.drawLine(arrowX, arrowY, arrowX - 4, arrowY + 6);
             g2.drawLine(arrowX, arrowY, arrowX + 4, arrowY + 6);
         }
-        if (x == sanctuaryX && y == sanctuaryY) {
-            drawSanctuaryTile(g2, px, py);
-        } else if (x == stairsX && y == stairsY) {
-            drawStairsTile(g2, px, py);
-        }
     }
 
     private void drawSanctuaryTile(Graphics2D g2, int px, int py) {
         int size = TILE_SIZE - 6;
         int offset = 3;
         CompositeState state = new CompositeState(g2);
-        g2.setComposite(AlphaComposite.SrcOver.derive(0.85f));
+        g2.setComposite(AlphaComposite.SrcOver.derive(simulation.isSanctuaryUsed() ? 0.45f : 0.85f));
         g2.setColor(COLOR_SANCTUARY);
         g2.fillRoundRect(px + offset, py + offset, size, size, 12, 12);
         state.restore();
@@ -755,26 +948,11 @@ public class Game extends JPanel implements Runnable {
         g2.drawRoundRect(px + 3, py + 3, TILE_SIZE - 6, TILE_SIZE - 6, 10, 10);
     }
 
-    private void drawWallTile(Graphics2D g2, int x, int y) {
-        int px = x * TILE_SIZE;
-        int py = y * TILE_SIZE;
-        g2.setColor(COLOR_WALL);
-        g2.fillRect(px, py, TILE_SIZE, TILE_SIZE);
-
-        Color lightEdge = lightenColor(COLOR_WALL, 0.18f);
-        Color darkEdge = darkenColor(COLOR_WALL, 0.3f);
-        g2.setColor(lightEdge);
-        g2.fillRect(px, py, TILE_SIZE, 1);
-        g2.fillRect(px, py, 1, TILE_SIZE);
-        g2.setColor(darkEdge);
-        g2.fillRect(px, py + TILE_SIZE - 1, TILE_SIZE, 1);
-        g2.fillRect(px + TILE_SIZE - 1, py, 1, TILE_SIZE);
-    }
-
     private void drawParticles(Graphics2D g2) {
         for (Particle p : particles) {
             float alpha = 1f - (p.life / p.maxLife);
             if (alpha <= 0f) continue;
+            if (!camera.isVisible(p.x - p.radius, p.y - p.radius, p.radius * 2f, p.radius * 2f)) continue;
             alpha = Math.max(0f, Math.min(1f, alpha));
             CompositeState state = new CompositeState(g2);
             g2.setComposite(AlphaComposite.SrcOver.derive(alpha * 0.8f));
@@ -787,9 +965,13 @@ public class Game extends JPanel implements Runnable {
     }
 
     private void drawEnemies(Graphics2D g2) {
-        for (Enemy enemy : enemies) {
-            float ex = enemy.tileX * TILE_SIZE;
-            float ey = enemy.tileY * TILE_SIZE;
+        for (int slot = 0; slot < enemies.size(); slot++) {
+            if (!isTileVisible(enemies.getX(slot), enemies.getY(slot))) {
+                continue;
+            }
+            boolean elite = enemies.isElite(slot);
+            float ex = enemies.getX(slot) * TILE_SIZE;
+            float ey = enemies.getY(slot) * TILE_SIZE;
             float shadowW = TILE_SIZE * 0.6f;
             float shadowH = TILE_SIZE * 0.22f;
             float shadowX = ex + (TILE_SIZE - shadowW) / 2f;
@@ -804,17 +986,17 @@ public class Game extends JPanel implements Runnable {
             int bodyX = Math.round(ex + TILE_SIZE * 0.2f);
             int bodyY = Math.round(ey + TILE_SIZE * 0.2f);
             int bodySize = Math.round(TILE_SIZE * 0.6f);
-            Color base = enemy.elite ? COLOR_ELITE : COLOR_ENEMY;
+            Color base = elite ? COLOR_ELITE : COLOR_ENEMY;
             g2.setColor(base);
             g2.fillRoundRect(bodyX, bodyY, bodySize, bodySize, bodySize / 2, bodySize / 2);
 
-            if (enemy.elite) {
+            if (elite) {
                 g2.setColor(COLOR_OUTLINE);
                 g2.setStroke(new BasicStroke(2f));
                 g2.drawRoundRect(bodyX, bodyY, bodySize, bodySize, bodySize / 2, bodySize / 2);
             }
 
-            float healthRatio = Math.max(0f, Math.min(1f, enemy.hp / (float) enemy.maxHp));
+            float healthRatio = Math.max(0f, Math.min(1f, enemies.getHealth(slot) / (float) enemies.getMaxHealth(slot)));
             int barWidth = Math.round(bodySize * healthRatio);
             int barHeight = 4;
             int barX = bodyX;
@@ -858,8 +1040,16 @@ public class Game extends JPanel implements Runnable {
         g2.drawRoundRect(bodyX, bodyY, bodySize, bodySize, bodySize / 2, bodySize / 2);
     }
 
+    private void drawMinimap(Graphics2D g2) {
+        int scale = GameConfig.MINIMAP_SCALE;
+        int x = PANEL_WIDTH - 16 - minimap.getWidth() * scale;
+        int y = HUD_HEIGHT + 16;
+        minimap.draw(g2, x, y, scale, camera, TILE_SIZE, enemies, fieldOfView,
+                simulation.getPlayerX(), simulation.getPlayerY());
+    }
+
     private void drawHUD(Graphics2D g2) {
-        int width = getWidth();
+        int width = PANEL_WIDTH;
 
         CompositeState state = new CompositeState(g2);
         g2.setComposite(AlphaComposite.SrcOver.derive(0.35f));
@@ -883,14 +1073,11 @@ public class Game extends JPanel implements Runnable {
         g2.setFont(pillFont);
         FontMetrics pillMetrics = g2.getFontMetrics();
 
-        String hpText = "HP 100/100";
-        String stageText = "Floor " + currentFloor + " — Stage 4 Prototype";
-        String seedText = "Seed: " + currentSeed;
-        String hpText = "HP " + player.hp + "/" + player.maxHp;
+        String hpText = "HP " + simulation.getPlayerHp() + "/" + simulation.getPlayerMaxHp();
         String stageText = "Stage 4 — Sanctuaries & Relics";
-        String floorText = "Floor " + currentFloor;
-        String shardText = shardCount + " Shards";
-        String seedText = "Seed " + baseSeed;
+        String floorText = "Floor " + simulation.getFloor();
+        String shardText = simulation.getShards() + " Shards";
+        String seedText = "Seed " + simulation.getRunSeed();
 
         int hpWidth = pillWidth(pillMetrics, hpText);
         int stageWidth = pillWidth(pillMetrics, stageText);
@@ -927,7 +1114,7 @@ public class Game extends JPanel implements Runnable {
         Font controlsFont = getFont().deriveFont(Font.PLAIN, 13f);
         g2.setFont(controlsFont);
         g2.setColor(COLOR_TEXT_SECONDARY);
-        String controls = "Move: WASD/Arrows   •   Interact: E   •   Relics: R   •   New Seed: N   •   Demo Seed: P   •   Reload: F5   •   Quit: Q";
+        String controls = "Move: WASD/Arrows/Click   •   Explore: X   •   Interact: E   •   Relics: R   •   Map: M   •   New Seed: N   •   Demo Seed: P   •   Reload: F5   •   Quit: Q";
         FontMetrics controlsMetrics = g2.getFontMetrics();
         int controlsY = HUD_HEIGHT - 14;
         g2.drawString(controls, (width - controlsMetrics.stringWidth(controls)) / 2, controlsY);
@@ -956,6 +1143,7 @@ public class Game extends JPanel implements Runnable {
         int chipSize = 26;
         int spacing = 8;
         int maxVisible = Math.max(1, (availableWidth + spacing) / (chipSize + spacing));
+        List<GameSimulation.RelicDefinition> ownedRelics = simulation.getOwnedRelics();
         int shown = Math.min(ownedRelics.size(), maxVisible);
         int chipY = y;
 
@@ -967,7 +1155,7 @@ public class Game extends JPanel implements Runnable {
         }
 
         for (int i = 0; i < shown; i++) {
-            RelicDefinition relic = ownedRelics.get(i);
+            GameSimulation.RelicDefinition relic = ownedRelics.get(i);
             int chipX = x + i * (chipSize + spacing);
             g2.setColor(new Color(0x202B3A));
             g2.fillRoundRect(chipX, chipY, chipSize, chipSize, 10, 10);
@@ -998,32 +1186,40 @@ public class Game extends JPanel implements Runnable {
     }
 
     private void drawVignette(Graphics2D g2) {
-        int width = getWidth();
-        int height = getHeight();
+        BufferedImage image = vignette;
+        if (image == null) {
+            image = bakeVignette();
+            vignette = image;
+        }
+        g2.drawImage(image, 0, 0, null);
+    }
+
+    private static BufferedImage bakeVignette() {
+        int width = PANEL_WIDTH;
+        int height = PANEL_HEIGHT;
         float radius = Math.max(width, height);
         float[] dist = { 0f, 1f };
         Color[] colors = { new Color(0, 0, 0, 0), new Color(0, 0, 0, 200) };
-        RadialGradientPaint paint = new RadialGradientPaint(new Point2D.Float(width / 2f, height / 2f), radius, dist, colors);
-        PaintState paintState = new PaintState(g2);
-        CompositeState compositeState = new CompositeState(g2);
-        g2.setPaint(paint);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        g2.setPaint(new RadialGradientPaint(new Point2D.Float(width / 2f, height / 2f), radius, dist, colors));
         g2.setComposite(AlphaComposite.SrcOver.derive(0.85f));
         g2.fillRect(0, 0, width, height);
-        compositeState.restore();
-        paintState.restore();
+        g2.dispose();
+        return image;
     }
 
     private void drawSanctuaryOverlay(Graphics2D g2) {
         CompositeState state = new CompositeState(g2);
         g2.setComposite(AlphaComposite.SrcOver.derive(0.65f));
         g2.setColor(COLOR_OVERLAY_BACK);
-        g2.fillRect(0, 0, getWidth(), getHeight());
+        g2.fillRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
         state.restore();
 
         int panelWidth = 420;
         int panelHeight = 280;
-        int panelX = (getWidth() - panelWidth) / 2;
-        int panelY = (getHeight() - panelHeight) / 2;
+        int panelX = (PANEL_WIDTH - panelWidth) / 2;
+        int panelY = (PANEL_HEIGHT - panelHeight) / 2;
 
         g2.setColor(COLOR_OVERLAY_PANEL);
         g2.fillRoundRect(panelX, panelY, panelWidth, panelHeight, 24, 24);
@@ -1039,10 +1235,12 @@ public class Game extends JPanel implements Runnable {
         Font infoFont = getFont().deriveFont(Font.PLAIN, 16f);
         g2.setFont(infoFont);
         g2.setColor(COLOR_TEXT_SECONDARY);
+        int shardCount = simulation.getShards();
         g2.drawString("Shards: " + shardCount, panelX + panelWidth - 140, panelY + 48);
 
-        String relicOption = relicPool.isEmpty() ? "No relics remaining" : "Acquire Relic — " + relicCostForFloor() + " shards";
-        String healOption = "Restore Health — " + healCostForFloor() + " shards";
+        boolean inStock = simulation.hasRelicsInStock();
+        String relicOption = !inStock ? "No relics remaining" : "Acquire Relic — " + simulation.getRelicCost() + " shards";
+        String healOption = "Restore Health — " + simulation.getHealCost() + " shards";
         String leaveOption = "Leave Sanctuary";
         List<String> options = Arrays.asList(relicOption, healOption, leaveOption);
 
@@ -1059,9 +1257,10 @@ public class Game extends JPanel implements Runnable {
             }
 
             g2.setFont(getFont().deriveFont(Font.BOLD, 17f));
-            if (i == SANCTUARY_OPTION_RELIC && (relicPool.isEmpty() || shardCount < relicCostForFloor())) {
+            if (i == SANCTUARY_OPTION_RELIC && (!inStock || shardCount < simulation.getRelicCost())) {
                 g2.setColor(COLOR_TEXT_SECONDARY);
-            } else if (i == SANCTUARY_OPTION_HEAL && (player.hp >= player.maxHp || shardCount < healCostForFloor())) {
+            } else if (i == SANCTUARY_OPTION_HEAL && (simulation.getPlayerHp() >= simulation.getPlayerMaxHp()
+                    || shardCount < simulation.getHealCost())) {
                 g2.setColor(COLOR_TEXT_SECONDARY);
             } else {
                 g2.setColor(COLOR_TEXT_PRIMARY);
@@ -1083,13 +1282,13 @@ public class Game extends JPanel implements Runnable {
         CompositeState state = new CompositeState(g2);
         g2.setComposite(AlphaComposite.SrcOver.derive(0.65f));
         g2.setColor(COLOR_OVERLAY_BACK);
-        g2.fillRect(0, 0, getWidth(), getHeight());
+        g2.fillRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
         state.restore();
 
         int panelWidth = 460;
         int panelHeight = 320;
-        int panelX = (getWidth() - panelWidth) / 2;
-        int panelY = (getHeight() - panelHeight) / 2;
+        int panelX = (PANEL_WIDTH - panelWidth) / 2;
+        int panelY = (PANEL_HEIGHT - panelHeight) / 2;
 
         g2.setColor(COLOR_OVERLAY_PANEL);
         g2.fillRoundRect(panelX, panelY, panelWidth, panelHeight, 24, 24);
@@ -1107,6 +1306,7 @@ public class Game extends JPanel implements Runnable {
 
         int listY = panelY + 92;
         int lineSpacing = 48;
+        List<GameSimulation.RelicDefinition> ownedRelics = simulation.getOwnedRelics();
         if (ownedRelics.isEmpty()) {
             g2.setColor(COLOR_TEXT_SECONDARY);
             g2.drawString("No relics collected yet. Visit sanctuaries to acquire them.", panelX + 32, listY);
@@ -1114,7 +1314,7 @@ public class Game extends JPanel implements Runnable {
         }
 
         for (int i = 0; i < ownedRelics.size(); i++) {
-            RelicDefinition relic = ownedRelics.get(i);
+            GameSimulation.RelicDefinition relic = ownedRelics.get(i);
             int y = listY + i * lineSpacing;
             int chipSize = 36;
             int chipX = panelX + 32;
@@ -1137,20 +1337,6 @@ public class Game extends JPanel implements Runnable {
         }
     }
 
-    private long tileHash(long seed, int x, int y) {
-        long h = seed;
-        h ^= (long) x * 341873128712L;
-        h ^= (long) y * 132897987541L;
-        h *= 1099511628211L;
-        return h;
-    }
-
-    private static Color scaleColor(Color base, float factor) {
-        int r = clamp((int) (base.getRed() * factor));
-        int g = clamp((int) (base.getGreen() * factor));
-        int b = clamp((int) (base.getBlue() * factor));
-        return new Color(r, g, b);
-    }
 
     private static Color lightenColor(Color color, float amount) {
         amount = Math.max(0f, Math.min(1f, amount));
@@ -1160,14 +1346,6 @@ public class Game extends JPanel implements Runnable {
         return new Color(r, g, b);
     }
 
-    private static Color darkenColor(Color color, float amount) {
-        amount = Math.max(0f, Math.min(1f, amount));
-        int r = clamp((int) (color.getRed() * (1f - amount)));
-        int g = clamp((int) (color.getGreen() * (1f - amount)));
-        int b = clamp((int) (color.getBlue() * (1f - amount)));
-        return new Color(r, g, b);
-    }
-
     private static int clamp(int value) {
         return Math.max(0, Math.min(255, value));
     }
@@ -1177,92 +1355,130 @@ public class Game extends JPanel implements Runnable {
         return t * (2f - t);
     }
 
-    private boolean hasRelic(String id) {
-        for (RelicDefinition relic : ownedRelics) {
-            if (relic.id.equals(id)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private void healPlayer(int amount) {
-        player.hp = Math.min(player.maxHp, player.hp + amount);
-    }
-
-    private void handlePlayerDefeat() {
-        shardCount = Math.max(0, shardCount / 2);
-        player.hp = player.maxHp;
-        regenerateCurrentFloor();
-    }
-
     private void spawnRewardParticles(int tileX, int tileY) {
         float originX = (tileX + 0.5f) * TILE_SIZE;
         float originY = (tileY + 0.35f) * TILE_SIZE;
         for (int i = 0; i < 12; i++) {
             Particle p = new Particle();
-            float angle = (float) (rng.nextFloat() * Math.PI * 2);
-            float speed = 30f + rng.nextFloat() * 50f;
+            float angle = (float) (cosmeticRng.nextFloat() * Math.PI * 2);
+            float speed = 30f + cosmeticRng.nextFloat() * 50f;
             p.x = originX;
             p.y = originY;
             p.vx = (float) Math.cos(angle) * speed;
             p.vy = (float) Math.sin(angle) * speed;
             p.life = 0f;
-            p.maxLife = 0.5f + rng.nextFloat() * 0.25f;
-            p.radius = 2f + rng.nextFloat() * 1.5f;
+            p.maxLife = 0.5f + cosmeticRng.nextFloat() * 0.25f;
+            p.radius = 2f + cosmeticRng.nextFloat() * 1.5f;
             particles.add(p);
         }
     }
 
-    private void beginRun(long seed) {
-        baseSeed = seed;
-        currentFloor = 1;
-        shardCount = 0;
-        ownedRelics.clear();
-        relicPool.clear();
-        Collections.addAll(relicPool, RELIC_LIBRARY);
-        recalculateDerivedStats();
-        player.hp = player.maxHp;
-        sanctuaryStatusText = "";
-        showSanctuaryOverlay = false;
-        showRelicOverlay = false;
-        updateSeedForCurrentFloor();
-        generateDungeon();
-    }
-
-    private void regenerateCurrentFloor() {
-        showSanctuaryOverlay = false;
-        showRelicOverlay = false;
-        sanctuaryStatusText = "";
-        sanctuarySelection = 0;
-        updateSeedForCurrentFloor();
-        generateDungeon();
+    // The run is generated on a spare simulation that nothing draws, and the current run stays playable until it
+    // is swapped in. Asking again before then throws the pending run away, so mashing N never queues up work.
+    // The chunks the first screen shows are rendered here too, so the swap does not render a viewport of tiles.
+    // A seed whose generation throws is replaced with fresh ones a few times before the request gives up.
+    private void requestRun(long seed) {
+        tasks.submit(runLane, task -> {
+            GameSimulation next = spareSimulations.poll();
+            if (next == null) {
+                next = new GameSimulation();
+            }
+            long attemptSeed = seed;
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    next.beginRun(attemptSeed);
+                    break;
+                } catch (RuntimeException e) {
+                    System.err.println("Run " + attemptSeed + " failed to generate: " + e);
+                    if (attempt == RUN_ATTEMPTS || task.isCancelled()) {
+                        spareSimulations.offer(next);
+                        return new PreparedRun(null, null);
+                    }
+                    attemptSeed = System.nanoTime();
+                }
+            }
+            Dungeon floor = next.getDungeon();
+            Camera start = new Camera(VIEW_COLUMNS * TILE_SIZE, VIEW_ROWS * TILE_SIZE);
+            start.setWorldSize(floor.getWidth() * TILE_SIZE, floor.getHeight() * TILE_SIZE);
+            start.follow((next.getPlayerX() + 0.5f) * TILE_SIZE, (next.getPlayerY() + 0.5f) * TILE_SIZE);
+            return new PreparedRun(next, tileChunks.prepare(floor, start));
+        }, this::startRun, this::discardRun);
     }
 
-    private void updateSeedForCurrentFloor() {
-        currentSeed = computeFloorSeed(baseSeed, currentFloor);
+    private void discardRun(PreparedRun run) {
+        if (run.simulation != null) {
+            tileChunks.recycle(run.tiles);
+            spareSimulations.offer(run.simulation);
+        }
     }
 
-    private long computeFloorSeed(long seed, int floor) {
-        return seed + (long) floor * 104729L;
+    // On the event thread. The simulation generated the floor without a listener, so the view catches up here.
+    // A failed request leaves the current run in play; with no run yet, the loading frame says so.
+    private void startRun(PreparedRun run) {
+        if (run.simulation == null) {
+            if (!ready) {
+                loadFailure = RUN_ATTEMPTS + " seeds in a row failed, see the error output";
+                repaint();
+            }
+            return;
+        }
+        GameSimulation next = run.simulation;
+        endRun();
+        GameSimulation previous = simulation;
+        simulation = next;
+        dungeon = next.getDungeon();
+        enemies = next.getEnemies();
+        next.setListener(view);
+        long seed = next.getRunSeed();
+        cosmeticRng.setSeed(seed, RngStream.COSMETICS);
+        replay = GameConfig.REPLAY_RECORDING ? new Replay(seed) : null;
+        preparedTiles = run.tiles;
+        resetFloorView();
+        for (int slot = 0; slot < enemies.size(); slot++) {
+            view.enemyAdded(enemies.handleAt(slot));
+        }
+        track(Telemetry.RUN_STARTED, seed, 0);
+        if (previous != null) {
+            previous.setListener(null);
+            spareSimulations.offer(previous);
+        }
+        if (spectators != null) {
+            spectators.publish(simulation);
+        }
+        ready = true;
+        repaint();
+    }
+
+    // Hands the run's replay, if it has any moves, to a background save so it can be checked later with
+    // ReplayVerifier.
+    private void endRun() {
+        if (replay == null || replay.getActionCount() == 0) {
+            return;
+        }
+        replay.finish(simulation);
+        Replay finished = replay;
+        replay = null;
+        tasks.execute(() -> saveReplay(finished));
     }
 
-    private void recalculateDerivedStats() {
-        int maxHp = 100;
-        if (hasRelic("blood-chalice")) {
-            maxHp += 25;
-        }
-        if (hasRelic("sage-bloom")) {
-            maxHp += 10;
+    private static void saveReplay(Replay replay) {
+        Path directory = Paths.get(GameConfig.REPLAY_DIRECTORY);
+        try {
+            Files.createDirectories(directory);
+            replay.write(directory.resolve(String.format("replay-%d-%d.rgr", replay.getSeed(),
+                    System.currentTimeMillis())));
+        } catch (IOException e) {
+            System.err.println("Replay not saved: " + e.getMessage());
         }
-        player.maxHp = maxHp;
-        player.hp = Math.min(player.hp, player.maxHp);
     }
 
-    private void acquireRelic(RelicDefinition definition) {
-        ownedRelics.add(definition);
-        relicPool.remove(definition);
-        recalculateDerivedStats();
+    // Saves the current run and waits for pending saves before the JVM goes away.
+    private void shutdown() {
+        endRun();
+        tasks.close(2000);
+        if (spectators != null) {
+            spectators.close();
+        }
     }
 
     private void openSanctuaryOverlay() {
@@ -1311,55 +1527,45 @@ public class Game extends JPanel implements Runnable {
         }
     }
 
-    private int relicCostForFloor() {
-        return SANCTUARY_RELIC_COST + Math.max(0, currentFloor - 1) * 5;
-    }
-
-    private int healCostForFloor() {
-        return SANCTUARY_HEAL_COST + Math.max(0, currentFloor - 1) * 3;
-    }
-
     private void purchaseRelic() {
-        if (relicPool.isEmpty()) {
-            sanctuaryStatusText = "The sanctuary is out of relics.";
-            return;
-        }
-        int cost = relicCostForFloor();
-        if (shardCount < cost) {
-            sanctuaryStatusText = "Need " + (cost - shardCount) + " more shards.";
-            return;
+        int shortBy = simulation.getRelicCost() - simulation.getShards();
+        switch (perform(GameSimulation.BUY_RELIC)) {
+            case GameSimulation.DONE:
+                playSound(SoundBank.PURCHASE, 0.9f, simulation.getPlayerX());
+                sanctuaryStatusText = "You received " + simulation.getLastRelic().name + "!";
+                break;
+            case GameSimulation.OUT_OF_STOCK:
+                sanctuaryStatusText = "The sanctuary is out of relics.";
+                break;
+            case GameSimulation.TOO_FEW_SHARDS:
+                sanctuaryStatusText = "Need " + shortBy + " more shards.";
+                break;
+            default:
+                break;
         }
-        RelicDefinition definition = relicPool.get(rng.nextInt(relicPool.size()));
-        shardCount -= cost;
-        acquireRelic(definition);
-        sanctuaryStatusText = "You received " + definition.name + "!";
     }
 
     private void purchaseHeal() {
-        if (player.hp >= player.maxHp) {
-            sanctuaryStatusText = "Already at full strength.";
-            return;
-        }
-        int cost = healCostForFloor();
-        if (shardCount < cost) {
-            sanctuaryStatusText = "Need " + (cost - shardCount) + " more shards.";
-            return;
+        int shortBy = simulation.getHealCost() - simulation.getShards();
+        switch (perform(GameSimulation.BUY_HEAL)) {
+            case GameSimulation.DONE:
+                sanctuaryStatusText = "Recovered " + simulation.getLastHealAmount() + " HP.";
+                break;
+            case GameSimulation.FULL_HEALTH:
+                sanctuaryStatusText = "Already at full strength.";
+                break;
+            case GameSimulation.TOO_FEW_SHARDS:
+                sanctuaryStatusText = "Need " + shortBy + " more shards.";
+                break;
+            default:
+                break;
         }
-        shardCount -= cost;
-        int missing = player.maxHp - player.hp;
-        int healAmount = Math.min(missing, SANCTUARY_HEAL_AMOUNT + currentFloor * 5);
-        healPlayer(healAmount);
-        sanctuaryStatusText = "Recovered " + healAmount + " HP.";
     }
 
     private void descendStairs() {
-        currentFloor++;
-        showSanctuaryOverlay = false;
-        showRelicOverlay = false;
-        sanctuaryStatusText = "";
-        sanctuarySelection = 0;
-        updateSeedForCurrentFloor();
-        generateDungeon();
+        if (perform(GameSimulation.DESCEND) == GameSimulation.DONE) {
+            track(Telemetry.FLOOR_REACHED, simulation.getFloorSeed(), simulation.getShards());
+        }
     }
 
     private static class CompositeState {
@@ -1390,81 +1596,99 @@ public class Game extends JPanel implements Runnable {
         }
     }
 
-    private class CombatManager {
-        boolean engage(Enemy enemy) {
-            if (enemy == null) {
-                return false;
-            }
-            int enemyHp = enemy.hp;
-            int playerHp = player.hp;
+    // Sound, particles, lights and telemetry for what the simulation decides.
+    private final class SimulationView implements GameSimulation.Listener {
+        @Override
+        public void floorEntered() {
+            resetFloorView();
+        }
 
-            while (enemyHp > 0 && playerHp > 0) {
-                enemyHp -= Math.max(1, computePlayerDamage());
-                if (enemyHp <= 0) {
-                    break;
-                }
-                playerHp -= Math.max(0, computeEnemyDamage(enemy));
+        @Override
+        public void enemyAdded(int handle) {
+            int slot = enemies.slotOf(handle);
+            if (!enemies.isElite(slot)) {
+                return;
             }
+            if (handle >= enemyLights.length) {
+                int oldLength = enemyLights.length;
+                enemyLights = Arrays.copyOf(enemyLights, Math.max(handle + 1, oldLength * 2));
+                Arrays.fill(enemyLights, oldLength, enemyLights.length, -1);
+            }
+            enemyLights[handle] = lightMap.addSource(enemies.getX(slot), enemies.getY(slot),
+                    GameConfig.ELITE_AURA_RADIUS, LIGHT_ELITE, 0.5f);
+        }
 
-            player.hp = Math.max(0, playerHp);
-            enemy.hp = Math.max(0, enemyHp);
-
-            if (player.hp <= 0) {
-                handlePlayerDefeat();
-                return false;
+        @Override
+        public void enemyMoved(int handle, int x, int y) {
+            int light = enemyLight(handle);
+            if (light >= 0) {
+                lightMap.moveSource(light, x, y);
             }
+        }
 
-            handleEnemyDefeat(enemy);
-            return true;
+        @Override
+        public void fightStarted(int handle) {
+            fightStartNanos = System.nanoTime();
+            playSound(SoundBank.HIT, 0.8f, enemies.getX(enemies.slotOf(handle)));
         }
 
-        private int computePlayerDamage() {
-            int base = 18 + currentFloor * 2 + rng.nextInt(6);
-            if (hasRelic("glass-blade")) {
-                base += 8;
-            }
-            if (hasRelic("blood-chalice")) {
-                base += 2;
-            }
-            return base;
+        @Override
+        public void fightEnded(int handle, int enemyType, int rounds, boolean won) {
+            track(Telemetry.FIGHT, System.nanoTime() - fightStartNanos,
+                    (long) rounds << 16 | enemyType << 1 | (won ? 1 : 0));
         }
 
-        private int computeEnemyDamage(Enemy enemy) {
-            int base = enemy.attackPower + rng.nextInt(4);
-            if (enemy.elite) {
-                base += 4;
+        @Override
+        public void enemyDefeated(int handle, int x, int y, int reward) {
+            playSound(SoundBank.ENEMY_DEFEAT, 0.8f, x);
+            int light = enemyLight(handle);
+            if (light >= 0) {
+                lightMap.removeSource(light);
+                enemyLights[handle] = -1;
             }
-            if (hasRelic("ward-sigil")) {
-                base = Math.max(0, base - 4);
-            }
-            return base;
+            spawnRewardParticles(x, y);
         }
 
-        private void handleEnemyDefeat(Enemy enemy) {
-            enemies.remove(enemy);
-            int reward = enemy.shardReward;
-            if (hasRelic("echo-prism")) {
-                reward = Math.round(reward * 1.2f);
-            }
-            shardCount += reward;
-            if (hasRelic("sage-bloom")) {
-                healPlayer(8);
-            }
-            spawnRewardParticles(enemy.tileX, enemy.tileY);
+        @Override
+        public void playerDefeated(int shardsLost) {
+            playSound(SoundBank.PLAYER_DEFEAT, 1f, simulation.getPlayerX());
+            track(Telemetry.PLAYER_DIED, shardsLost, simulation.getOwnedRelics().size());
+        }
+
+        @Override
+        public void relicBought(int relicIndex, int cost) {
+            track(Telemetry.RELIC_BOUGHT, relicIndex, cost);
+        }
+
+        @Override
+        public void shardsSpent(int amount) {
+            track(Telemetry.SHARDS_SPENT, amount, simulation.getShards());
         }
     }
 
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> {
-            JFrame frame = new JFrame("Roguelike — Stage 4 (Sanctuaries & Relics)");
-            Game game = new Game();
-            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-            frame.setResizable(false);
-            frame.add(game);
-            frame.pack();
-            frame.setLocationRelativeTo(null);
-            frame.setVisible(true);
-            game.requestFocusInWindow();
+        long runSeed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime();
+        SwingUtilities.invokeLater(() -> openWindow(runSeed));
+    }
+
+    // Call on the event thread.
+    static Game openWindow(long runSeed) {
+        JFrame frame = new JFrame("Roguelike — Stage 4 (Sanctuaries & Relics)");
+        Game game = new Game(runSeed);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                game.shutdown();
+            }
         });
+        frame.setResizable(true);
+        frame.add(game);
+        frame.pack();
+        frame.setMinimumSize(frame.getSize());
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+        game.requestFocusInWindow();
+        return game;
     }
 }
@@ -1,31 +1,93 @@
+import java.awt.Color;
+
 public final class GameConfig {
     private GameConfig() {}
 
+    // Floor shape shared by the game and offline tools
+    public static final int DUNGEON_WIDTH = 64;
+    public static final int DUNGEON_HEIGHT = 40;
+    public static final int DUNGEON_MAX_ROOMS = 24;
+    public static final int DUNGEON_ROOM_MIN = 4;
+    public static final int DUNGEON_ROOM_MAX = 9;
+    public static final int DUNGEON_ROOM_ATTEMPTS = 100;
+
+    // Caves: every CAVE_FLOOR_INTERVAL-th floor is a cellular-automaton cave instead of rooms (0 turns them off)
+    public static final int CAVE_FLOOR_INTERVAL = 3;
+    public static final int CAVE_SMOOTHING_STEPS = 5;
+
     // Enemy population
-    public static final int ENEMIES_MIN = 6;
-    public static final int ENEMIES_MAX = 10;
+    public static final int ENEMIES_MIN = 10;
+    public static final int ENEMIES_MAX = 16;
 
     // Weighted spawn odds per floor
     public static final double ENEMY_ELITE_CHANCE = 0.12;
+    public static final double ENEMY_ELITE_CHANCE_PER_FLOOR = 0.01;
+    public static final double ENEMY_ELITE_CHANCE_MAX = 0.35;
+
+    // Turn order: actors gain their speed in energy per tick
+    public static final int PLAYER_SPEED = 12;
+    public static final int ENEMY_AGGRO_RADIUS = 7;
 
     // Floor scaling multipliers (applied per floor past the first)
     public static final double ENEMY_FLOOR_HP_MULTIPLIER = 1.20;
     public static final double ENEMY_FLOOR_ATTACK_MULTIPLIER = 1.15;
     public static final double ENEMY_FLOOR_DEFENSE_MULTIPLIER = 1.10;
+    // Speed grows at the attack rate at first, soft-capped at ENEMY_SPEED_CAP times the base, and never passes
+    // ENEMY_SPEED_MAX, so one player turn always costs a bounded number of enemy turns
+    public static final double ENEMY_FLOOR_SPEED_MULTIPLIER = 1.15;
+    public static final double ENEMY_SPEED_CAP = 2.0;
+    public static final int ENEMY_SPEED_MAX = PLAYER_SPEED * 5 / 2;
 
     // Elite bonuses
     public static final double ELITE_HP_MULTIPLIER = 1.6;
     public static final double ELITE_ATTACK_MULTIPLIER = 1.35;
     public static final int ELITE_DEFENSE_BONUS = 4;
 
+    // Tile layer: direct pixel writes, or the Graphics2D reference path
+    public static final boolean RASTER_TILE_LAYER = true;
+
+    // Player sight in tiles; drives exploration and the minimap
+    public static final int PLAYER_SIGHT_RADIUS = 8;
+    public static final int MINIMAP_SCALE = 2;
+    public static final int AUTO_EXPLORE_MAX_STEPS = 400;
+
+    // Lighting: tiles are multiplied by ambient plus every source in range
+    public static final boolean LIGHTING_ENABLED = true;
+    public static final int LIGHT_AMBIENT_RGB = 0x4A4A58;
+    public static final int PLAYER_TORCH_RADIUS = 7;
+    public static final int SANCTUARY_LIGHT_RADIUS = 5;
+    public static final int STAIRS_LIGHT_RADIUS = 4;
+    public static final int ELITE_AURA_RADIUS = 2;
+
+    // Audio: the output buffer is a few mixer blocks, which bounds latency
+    public static final boolean AUDIO_ENABLED = true;
+    public static final float AUDIO_MASTER_GAIN = 0.6f;
+    public static final int AUDIO_BUFFER_BLOCKS = 4;
+
+    // Telemetry: ring size in events (power of two) and rolling file size
+    public static final boolean TELEMETRY_ENABLED = true;
+    public static final String TELEMETRY_DIRECTORY = "telemetry";
+    public static final int TELEMETRY_RING_EVENTS = 4096;
+    public static final long TELEMETRY_FILE_BYTES = 4L << 20;
+
+    // Spectators: off unless launched with -Droguelike.spectators=true; localhost port (-Droguelike.spectatorPort),
+    // frame ring size (power of two), per-viewer outbound buffer and viewer limit
+    public static final boolean SPECTATOR_ENABLED = Boolean.getBoolean("roguelike.spectators");
+    public static final int SPECTATOR_PORT = Integer.getInteger("roguelike.spectatorPort", 7777);
+    public static final int SPECTATOR_RING_BYTES = 1 << 20;
+    public static final int SPECTATOR_VIEWER_BUFFER_BYTES = 256 << 10;
+    public static final int SPECTATOR_MAX_VIEWERS = 32;
+
+    // Background work: run generation, render baking and saving share this many threads
+    public static final int BACKGROUND_THREADS = 2;
+
+    // Replays: each run's actions are saved when it ends, for ReplayVerifier
+    public static final boolean REPLAY_RECORDING = true;
+    public static final String REPLAY_DIRECTORY = "replays";
+
     // Sanctuary / Stairs visuals
     public static final float SANCTUARY_GLOW_ALPHA = 0.45f;
     public static final float STAIRS_GLOW_ALPHA = 0.35f;
-import java.awt.Color;
-
-public final class GameConfig {
-    private GameConfig() {
-    }
 
     public static final int SHARD_PER_WIN = 12;
     public static final int SHARD_PER_ELITE = 24;
@@ -44,8 +106,6 @@ public final class GameConfig {
     public static final int COST_HEAL = 80;
     public static final int SHOP_HEAL_AMOUNT = 40;
 
-    public static final int ENEMIES_MIN = 4;
-    public static final int ENEMIES_MAX = 8;
     public static final float ELITE_CHANCE = 0.2f;
     public static final float ARCHER_WEIGHT = 0.25f;
     public static final float SLIME_WEIGHT = 0.35f;
@@ -0,0 +1,641 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The rules of a run with nothing drawn: floors, the player, enemy turns, combat, shards, relics and sanctuary
+// purchases. Everything follows from the run seed and the actions applied, so a run can be re-simulated exactly
+// from its action list. Game drives one of these and draws it; ReplayVerifier re-runs recorded ones. Presentation
+// reacts through a Listener. One instance serves one thread.
+public final class GameSimulation {
+    // Actions, which are also the alphabet of a replay.
+    public static final int MOVE_UP = 0;
+    public static final int MOVE_DOWN = 1;
+    public static final int MOVE_LEFT = 2;
+    public static final int MOVE_RIGHT = 3;
+    public static final int DESCEND = 4;
+    public static final int BUY_RELIC = 5;
+    public static final int BUY_HEAL = 6;
+    public static final int REGENERATE = 7;
+    public static final int ACTION_COUNT = 8;
+
+    // Results of apply(). Anything but DONE and DEFEATED left the state untouched.
+    public static final int NOTHING = 0;
+    public static final int DONE = 1;
+    public static final int DEFEATED = 2;
+    public static final int OUT_OF_STOCK = 3;
+    public static final int FULL_HEALTH = 4;
+    public static final int TOO_FEW_SHARDS = 5;
+
+    private static final int FLOOR_CACHE_CAPACITY = 8;
+    private static final int PLAYER_ACTOR = 0;
+    // Between two player turns an enemy gains at most ENEMY_SPEED_MAX / PLAYER_SPEED actions' worth of energy,
+    // plus one for the partial action it carried in and one for rounding up to whole ticks.
+    private static final int MAX_TURNS_PER_ENEMY = GameConfig.ENEMY_SPEED_MAX / GameConfig.PLAYER_SPEED + 2;
+    private static final int BASE_MAX_HP = 100;
+    private static final int SANCTUARY_RELIC_COST = 35;
+    private static final int SANCTUARY_HEAL_COST = 15;
+    private static final int SANCTUARY_HEAL_AMOUNT = 45;
+
+    static final class RelicDefinition {
+        final String id;
+        final String name;
+        final String description;
+        final int cost;
+
+        RelicDefinition(String id, String name, String description, int cost) {
+            this.id = id;
+            this.name = name;
+            this.description = description;
+            this.cost = cost;
+        }
+    }
+
+    static final RelicDefinition[] RELIC_LIBRARY = {
+            new RelicDefinition("blood-chalice", "Blood Chalice", "Increase max HP by 25.", 35),
+            new RelicDefinition("glass-blade", "Glass Blade", "Attacks deal +8 damage.", 40),
+            new RelicDefinition("echo-prism", "Echo Prism", "Gain +20% shards from combat.", 30),
+            new RelicDefinition("ward-sigil", "Ward Sigil", "Take 4 less damage from enemies.", 30),
+            new RelicDefinition("sage-bloom", "Sage's Bloom", "Heal 8 HP after each victory.", 28)
+    };
+
+    // Hooks for whatever presents the run. Called synchronously from apply() and beginRun().
+    public interface Listener {
+        // A floor was generated or restored and the player placed; enemies are added right after.
+        default void floorEntered() {
+        }
+
+        default void enemyAdded(int handle) {
+        }
+
+        default void enemyMoved(int handle, int x, int y) {
+        }
+
+        default void fightStarted(int handle) {
+        }
+
+        default void fightEnded(int handle, int enemyType, int rounds, boolean won) {
+        }
+
+        default void enemyDefeated(int handle, int x, int y, int reward) {
+        }
+
+        // Before the shards are halved and the floor regenerated.
+        default void playerDefeated(int shardsLost) {
+        }
+
+        default void relicBought(int relicIndex, int cost) {
+        }
+
+        default void shardsSpent(int amount) {
+        }
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {
+    };
+
+    private final Dungeon dungeon;
+    private final ActorStore enemies = new ActorStore(GameConfig.DUNGEON_WIDTH, GameConfig.DUNGEON_HEIGHT,
+            GameConfig.ENEMIES_MAX);
+    private final TurnScheduler scheduler = new TurnScheduler(GameConfig.ENEMIES_MAX + 1);
+    private final FloorCache floorCache = new FloorCache(FLOOR_CACHE_CAPACITY);
+    private final Rng combatRng = new Rng();
+    private final Rng lootRng = new Rng();
+    // Scratch space for enemy turns, made on first use unless one is lent with setPathFinder().
+    private PathFinder pathFinder;
+    private final PathFinder.Blocker enemyBlocker = (x, y) -> enemies.handleAt(x, y) >= 0;
+    private final TurnScheduler.TurnHandler enemyTurn = this::takeEnemyTurn;
+    private final List<RelicDefinition> ownedRelics = new ArrayList<>();
+    private final List<RelicDefinition> ownedRelicsView = Collections.unmodifiableList(ownedRelics);
+    private final List<RelicDefinition> relicPool = new ArrayList<>();
+    private Listener listener = NO_LISTENER;
+    private FloorSnapshot currentSnapshot;
+
+    private long baseSeed;
+    private long currentSeed;
+    private int currentFloor = 1;
+    private int shardCount;
+    private int playerX;
+    private int playerY;
+    private int playerHp = BASE_MAX_HP;
+    private int playerMaxHp = BASE_MAX_HP;
+    private int sanctuaryX = -1;
+    private int sanctuaryY = -1;
+    private int stairsX = -1;
+    private int stairsY = -1;
+    private int actionsApplied;
+    private RelicDefinition lastRelic;
+    private int lastHealAmount;
+
+    public GameSimulation() {
+        this(new Dungeon(GameConfig.DUNGEON_WIDTH, GameConfig.DUNGEON_HEIGHT, GameConfig.DUNGEON_MAX_ROOMS,
+                GameConfig.DUNGEON_ROOM_MIN, GameConfig.DUNGEON_ROOM_MAX, GameConfig.DUNGEON_ROOM_ATTEMPTS));
+    }
+
+    public GameSimulation(Dungeon dungeon) {
+        this.dungeon = dungeon;
+    }
+
+    // For runs nobody draws, such as replay checks and hosted sessions: generation skips the cosmetics stage, which
+    // has its own RNG stream, so layouts, spawns and checksums stay the same as in the game.
+    public static GameSimulation headless() {
+        Dungeon dungeon = new Dungeon(GameConfig.DUNGEON_WIDTH, GameConfig.DUNGEON_HEIGHT,
+                GameConfig.DUNGEON_MAX_ROOMS, GameConfig.DUNGEON_ROOM_MIN, GameConfig.DUNGEON_ROOM_MAX,
+                GameConfig.DUNGEON_ROOM_ATTEMPTS, SeedExplorer.searchPipeline());
+        dungeon.getGenerationStats().setEnabled(false);
+        return new GameSimulation(dungeon);
+    }
+
+    // The path finder only holds scratch space during apply(), so simulations that never run at the same time can
+    // share one; SessionHost lends each worker thread's to the session it is about to run.
+    public void setPathFinder(PathFinder pathFinder) {
+        this.pathFinder = pathFinder;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener != null ? listener : NO_LISTENER;
+    }
+
+    public void beginRun(long seed) {
+        combatRng.setSeed(seed, RngStream.COMBAT);
+        lootRng.setSeed(seed, RngStream.LOOT);
+        baseSeed = seed;
+        currentFloor = 1;
+        shardCount = 0;
+        actionsApplied = 0;
+        lastRelic = null;
+        lastHealAmount = 0;
+        floorCache.clear();
+        ownedRelics.clear();
+        relicPool.clear();
+        Collections.addAll(relicPool, RELIC_LIBRARY);
+        recalculateDerivedStats();
+        playerHp = playerMaxHp;
+        enterFloor();
+    }
+
+    public int apply(int action) {
+        int result;
+        switch (action) {
+            case MOVE_UP:
+                result = tryMove(0, -1);
+                break;
+            case MOVE_DOWN:
+                result = tryMove(0, 1);
+                break;
+            case MOVE_LEFT:
+                result = tryMove(-1, 0);
+                break;
+            case MOVE_RIGHT:
+                result = tryMove(1, 0);
+                break;
+            case DESCEND:
+                result = descend();
+                break;
+            case BUY_RELIC:
+                result = buyRelic();
+                break;
+            case BUY_HEAL:
+                result = buyHeal();
+                break;
+            case REGENERATE:
+                enterFloor();
+                result = DONE;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown action: " + action);
+        }
+        actionsApplied++;
+        return result;
+    }
+
+    public static boolean isMove(int action) {
+        return action >= MOVE_UP && action <= MOVE_RIGHT;
+    }
+
+    public static int moveAction(int dx, int dy) {
+        if (dx == 0 && dy == -1) {
+            return MOVE_UP;
+        }
+        if (dx == 0 && dy == 1) {
+            return MOVE_DOWN;
+        }
+        if (dx == -1 && dy == 0) {
+            return MOVE_LEFT;
+        }
+        if (dx == 1 && dy == 0) {
+            return MOVE_RIGHT;
+        }
+        throw new IllegalArgumentException("Not a single step: " + dx + "," + dy);
+    }
+
+    private void enterFloor() {
+        currentSeed = Rng.deriveSeed(baseSeed, currentFloor);
+        enemies.clear();
+        dungeon.setFloor(currentFloor);
+        FloorSnapshot snapshot = floorCache.get(baseSeed, currentFloor);
+        if (snapshot == null) {
+            dungeon.generate(currentSeed);
+            snapshot = dungeon.snapshot();
+            floorCache.put(baseSeed, currentFloor, snapshot);
+        } else {
+            dungeon.restore(snapshot);
+        }
+        currentSnapshot = snapshot;
+        currentFloor = dungeon.getFloor();
+
+        Point sanctuary = dungeon.getSanctuaryPosition();
+        sanctuaryX = sanctuary != null ? sanctuary.x : -1;
+        sanctuaryY = sanctuary != null ? sanctuary.y : -1;
+        Point stairs = dungeon.getStairsPosition();
+        stairsX = stairs != null ? stairs.x : -1;
+        stairsY = stairs != null ? stairs.y : -1;
+        Point start = dungeon.getStartPosition();
+        playerX = start.x;
+        playerY = start.y;
+        listener.floorEntered();
+        populateEnemies();
+    }
+
+    private void populateEnemies() {
+        scheduler.clear();
+        scheduler.add(PLAYER_ACTOR, GameConfig.PLAYER_SPEED);
+        ActorStore spawns = dungeon.getEnemies();
+        for (int slot = 0; slot < spawns.size(); slot++) {
+            if (currentSnapshot.isEnemyKilled(spawns.getSpawnIndex(slot))) {
+                continue;
+            }
+            int handle = enemies.copyFrom(spawns, slot);
+            listener.enemyAdded(handle);
+            scheduler.add(actorId(handle), spawns.getSpeed(slot));
+        }
+        // Anything faster than the player gets its opening moves before the first input.
+        runEnemyTurns();
+    }
+
+    private static int actorId(int enemyHandle) {
+        return enemyHandle + 1;
+    }
+
+    private void endPlayerTurn() {
+        scheduler.endTurn(PLAYER_ACTOR);
+        runEnemyTurns();
+    }
+
+    private void runEnemyTurns() {
+        int limit = (scheduler.size() - 1) * MAX_TURNS_PER_ENEMY;
+        if (scheduler.runUntil(PLAYER_ACTOR, enemyTurn, limit) < 0) {
+            throw new IllegalStateException("Enemies took " + limit + " turns without the player getting one");
+        }
+    }
+
+    // Enemies within aggro range close in on the player; combat still starts when the player bumps them.
+    private void takeEnemyTurn(int actorId) {
+        int slot = enemies.slotOf(actorId - 1);
+        if (slot < 0) {
+            return;
+        }
+        int dx = playerX - enemies.getX(slot);
+        int dy = playerY - enemies.getY(slot);
+        int distance = Math.abs(dx) + Math.abs(dy);
+        if (distance <= 1 || distance > GameConfig.ENEMY_AGGRO_RADIUS) {
+            return;
+        }
+        if (pathFinder == null) {
+            pathFinder = new PathFinder(GameConfig.DUNGEON_WIDTH, GameConfig.DUNGEON_HEIGHT);
+        }
+        // Route around walls and other enemies; a short detour is fine, a long one means the player is out of reach.
+        if (pathFinder.findPath(dungeon, enemies.getX(slot), enemies.getY(slot), playerX, playerY,
+                enemyBlocker, GameConfig.ENEMY_AGGRO_RADIUS * 2) && pathFinder.getPathLength() > 1) {
+            int stepX = pathFinder.getStepX(0) - enemies.getX(slot);
+            int stepY = pathFinder.getStepY(0) - enemies.getY(slot);
+            if (tryStepEnemy(slot, stepX, stepY)) {
+                return;
+            }
+        }
+        int stepX = Integer.signum(dx);
+        int stepY = Integer.signum(dy);
+        if (Math.abs(dx) >= Math.abs(dy)) {
+            if (!tryStepEnemy(slot, stepX, 0)) {
+                tryStepEnemy(slot, 0, stepY);
+            }
+        } else if (!tryStepEnemy(slot, 0, stepY)) {
+            tryStepEnemy(slot, stepX, 0);
+        }
+    }
+
+    private boolean tryStepEnemy(int slot, int dx, int dy) {
+        if (dx == 0 && dy == 0) {
+            return false;
+        }
+        int newX = enemies.getX(slot) + dx;
+        int newY = enemies.getY(slot) + dy;
+        if (!dungeon.isWalkable(newX, newY) || (newX == playerX && newY == playerY)
+                || enemies.handleAt(newX, newY) >= 0) {
+            return false;
+        }
+        enemies.moveTo(slot, newX, newY);
+        listener.enemyMoved(enemies.handleAt(slot), newX, newY);
+        return true;
+    }
+
+    // Bumping an enemy fights it to the end; winning steps onto its tile.
+    private int tryMove(int dx, int dy) {
+        int newX = playerX + dx;
+        int newY = playerY + dy;
+        if (!dungeon.isWalkable(newX, newY)) {
+            return NOTHING;
+        }
+        int enemy = enemies.handleAt(newX, newY);
+        if (enemy >= 0 && !engage(enemy)) {
+            return DEFEATED;
+        }
+        playerX = newX;
+        playerY = newY;
+        endPlayerTurn();
+        return DONE;
+    }
+
+    private boolean engage(int enemy) {
+        int slot = enemies.slotOf(enemy);
+        int rounds = 0;
+        int enemyHp = enemies.getHealth(slot);
+        int hp = playerHp;
+        listener.fightStarted(enemy);
+
+        while (enemyHp > 0 && hp > 0) {
+            rounds++;
+            enemyHp -= Math.max(1, computePlayerDamage());
+            if (enemyHp <= 0) {
+                break;
+            }
+            hp -= Math.max(0, computeEnemyDamage(slot));
+        }
+
+        playerHp = Math.max(0, hp);
+        enemies.setHealth(slot, Math.max(0, enemyHp));
+        listener.fightEnded(enemy, enemies.getType(slot).ordinal(), rounds, playerHp > 0);
+
+        if (playerHp <= 0) {
+            handlePlayerDefeat();
+            return false;
+        }
+        handleEnemyDefeat(enemy);
+        return true;
+    }
+
+    private int computePlayerDamage() {
+        int base = 18 + currentFloor * 2 + combatRng.nextInt(6);
+        if (hasRelic("glass-blade")) {
+            base += 8;
+        }
+        if (hasRelic("blood-chalice")) {
+            base += 2;
+        }
+        return base;
+    }
+
+    private int computeEnemyDamage(int slot) {
+        int base = enemies.getAttack(slot) + combatRng.nextInt(4);
+        if (enemies.isElite(slot)) {
+            base += 4;
+        }
+        if (hasRelic("ward-sigil")) {
+            base = Math.max(0, base - 4);
+        }
+        return base;
+    }
+
+    private void handleEnemyDefeat(int enemy) {
+        int slot = enemies.slotOf(enemy);
+        int tileX = enemies.getX(slot);
+        int tileY = enemies.getY(slot);
+        int reward = 12 + currentFloor * 4 + (enemies.isElite(slot) ? 8 : 0);
+        currentSnapshot.markEnemyKilled(enemies.getSpawnIndex(slot));
+        scheduler.remove(actorId(enemy));
+        enemies.remove(enemy);
+        if (hasRelic("echo-prism")) {
+            reward = Math.round(reward * 1.2f);
+        }
+        shardCount += reward;
+        if (hasRelic("sage-bloom")) {
+            healPlayer(8);
+        }
+        listener.enemyDefeated(enemy, tileX, tileY, reward);
+    }
+
+    private void handlePlayerDefeat() {
+        listener.playerDefeated(shardCount - shardCount / 2);
+        shardCount = Math.max(0, shardCount / 2);
+        playerHp = playerMaxHp;
+        enterFloor();
+    }
+
+    private int descend() {
+        if (!isOnStairs()) {
+            return NOTHING;
+        }
+        currentFloor++;
+        enterFloor();
+        return DONE;
+    }
+
+    private int buyRelic() {
+        if (!isOnSanctuary()) {
+            return NOTHING;
+        }
+        if (relicPool.isEmpty()) {
+            return OUT_OF_STOCK;
+        }
+        int cost = getRelicCost();
+        if (shardCount < cost) {
+            return TOO_FEW_SHARDS;
+        }
+        RelicDefinition definition = relicPool.get(lootRng.nextInt(relicPool.size()));
+        shardCount -= cost;
+        listener.relicBought(relicIndex(definition), cost);
+        listener.shardsSpent(cost);
+        currentSnapshot.markSanctuaryUsed();
+        ownedRelics.add(definition);
+        relicPool.remove(definition);
+        recalculateDerivedStats();
+        lastRelic = definition;
+        return DONE;
+    }
+
+    private int buyHeal() {
+        if (!isOnSanctuary()) {
+            return NOTHING;
+        }
+        if (playerHp >= playerMaxHp) {
+            return FULL_HEALTH;
+        }
+        int cost = getHealCost();
+        if (shardCount < cost) {
+            return TOO_FEW_SHARDS;
+        }
+        shardCount -= cost;
+        listener.shardsSpent(cost);
+        currentSnapshot.markSanctuaryUsed();
+        int missing = playerMaxHp - playerHp;
+        lastHealAmount = Math.min(missing, SANCTUARY_HEAL_AMOUNT + currentFloor * 5);
+        healPlayer(lastHealAmount);
+        return DONE;
+    }
+
+    private static int relicIndex(RelicDefinition definition) {
+        for (int i = 0; i < RELIC_LIBRARY.length; i++) {
+            if (RELIC_LIBRARY[i] == definition) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean hasRelic(String id) {
+        for (RelicDefinition relic : ownedRelics) {
+            if (relic.id.equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void healPlayer(int amount) {
+        playerHp = Math.min(playerMaxHp, playerHp + amount);
+    }
+
+    private void recalculateDerivedStats() {
+        int maxHp = BASE_MAX_HP;
+        if (hasRelic("blood-chalice")) {
+            maxHp += 25;
+        }
+        if (hasRelic("sage-bloom")) {
+            maxHp += 10;
+        }
+        playerMaxHp = maxHp;
+        playerHp = Math.min(playerHp, playerMaxHp);
+    }
+
+    // A fingerprint of everything the rules act on. Two simulations that agree here after the same actions have
+    // made the same decisions; replays store it at intervals so a divergence shows up close to where it happened.
+    public long checksum() {
+        long h = mix(0x9E3779B97F4A7C15L, baseSeed);
+        h = mix(h, currentFloor);
+        h = mix(h, actionsApplied);
+        h = mix(h, (long) playerX << 32 | playerY);
+        h = mix(h, (long) playerHp << 32 | playerMaxHp);
+        h = mix(h, shardCount);
+        for (RelicDefinition relic : ownedRelics) {
+            h = mix(h, relicIndex(relic));
+        }
+        h = mix(h, enemies.size());
+        for (int slot = 0; slot < enemies.size(); slot++) {
+            h = mix(h, (long) enemies.getX(slot) << 48 | (long) enemies.getY(slot) << 32 | enemies.getHealth(slot));
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        h ^= value;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+
+    public boolean isOnStairs() {
+        return playerX == stairsX && playerY == stairsY;
+    }
+
+    public boolean isOnSanctuary() {
+        return playerX == sanctuaryX && playerY == sanctuaryY;
+    }
+
+    public boolean isSanctuaryUsed() {
+        return currentSnapshot.isSanctuaryUsed();
+    }
+
+    public int getRelicCost() {
+        return SANCTUARY_RELIC_COST + Math.max(0, currentFloor - 1) * 5;
+    }
+
+    public int getHealCost() {
+        return SANCTUARY_HEAL_COST + Math.max(0, currentFloor - 1) * 3;
+    }
+
+    public boolean hasRelicsInStock() {
+        return !relicPool.isEmpty();
+    }
+
+    List<RelicDefinition> getOwnedRelics() {
+        return ownedRelicsView;
+    }
+
+    // The relic the last successful BUY_RELIC handed out.
+    RelicDefinition getLastRelic() {
+        return lastRelic;
+    }
+
+    public int getLastHealAmount() {
+        return lastHealAmount;
+    }
+
+    public Dungeon getDungeon() {
+        return dungeon;
+    }
+
+    public ActorStore getEnemies() {
+        return enemies;
+    }
+
+    public long getRunSeed() {
+        return baseSeed;
+    }
+
+    public long getFloorSeed() {
+        return currentSeed;
+    }
+
+    public int getFloor() {
+        return currentFloor;
+    }
+
+    public int getShards() {
+        return shardCount;
+    }
+
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    public int getPlayerHp() {
+        return playerHp;
+    }
+
+    public int getPlayerMaxHp() {
+        return playerMaxHp;
+    }
+
+    public int getSanctuaryX() {
+        return sanctuaryX;
+    }
+
+    public int getSanctuaryY() {
+        return sanctuaryY;
+    }
+
+    public int getStairsX() {
+        return stairsX;
+    }
+
+    public int getStairsY() {
+        return stairsY;
+    }
+
+    public int getActionsApplied() {
+        return actionsApplied;
+    }
+}
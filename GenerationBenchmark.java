@@ -0,0 +1,57 @@
+import java.util.Locale;
+
+public final class GenerationBenchmark {
+    private static final int[][] SIZES = {
+            {40, 24},
+            {128, 128},
+            {256, 256},
+            {512, 512}
+    };
+    private static final int[][] CAVE_SIZES = {
+            {64, 40},
+            {256, 256},
+            {1024, 1024}
+    };
+
+    private GenerationBenchmark() {
+        throw new AssertionError("No instances");
+    }
+
+    public static void main(String[] args) {
+        int floors = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            // Keep room density roughly constant as the map grows.
+            int areaScale = Math.max(1, (width * height) / (40 * 24));
+            Dungeon dungeon = new Dungeon(width, height, 14 * areaScale, 4, 9, 60 * areaScale);
+            for (int i = 0; i < Math.min(floors, 50); i++) {
+                dungeon.generate(i);
+            }
+            dungeon.getGenerationStats().reset();
+            for (int i = 0; i < floors; i++) {
+                dungeon.setFloor(1 + i % 10);
+                dungeon.generate(1_000_003L * i);
+            }
+            System.out.println(String.format(Locale.ROOT, "%dx%d, average per floor:", width, height));
+            System.out.println(dungeon.getGenerationStats().summary());
+        }
+        for (int[] size : CAVE_SIZES) {
+            int width = size[0];
+            int height = size[1];
+            Dungeon dungeon = new Dungeon(width, height, 1, 4, 9, 1);
+            dungeon.setLayout(Dungeon.Layout.CAVES);
+            int caveFloors = Math.max(1, floors * 64 * 40 / (width * height));
+            for (int i = 0; i < Math.min(caveFloors, 20); i++) {
+                dungeon.generate(i);
+            }
+            dungeon.getGenerationStats().reset();
+            for (int i = 0; i < caveFloors; i++) {
+                dungeon.setFloor(1 + i % 10);
+                dungeon.generate(1_000_003L * i);
+            }
+            System.out.println(String.format(Locale.ROOT, "%dx%d caves, average per floor:", width, height));
+            System.out.println(dungeon.getGenerationStats().summary());
+        }
+    }
+}
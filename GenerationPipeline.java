@@ -0,0 +1,47 @@
+public final class GenerationPipeline {
+    private final GenerationStage[] stages;
+
+    public GenerationPipeline(GenerationStage... stages) {
+        if (stages.length == 0) {
+            throw new IllegalArgumentException("A pipeline needs at least one stage");
+        }
+        this.stages = stages.clone();
+    }
+
+    public static GenerationPipeline standard() {
+        return new GenerationPipeline(
+                new RoomLayoutStage(),
+                new CaveLayoutStage(),
+                new CorridorStage(),
+                new KeyTileStage(),
+                new ReachabilityStage(),
+                new SpawnStage(),
+                new CosmeticsStage());
+    }
+
+    public int getStageCount() {
+        return stages.length;
+    }
+
+    public String getStageName(int index) {
+        return stages[index].getName();
+    }
+
+    public void run(Dungeon dungeon, GenerationStats stats) {
+        if (!stats.isEnabled()) {
+            for (GenerationStage stage : stages) {
+                stage.run(dungeon);
+            }
+            return;
+        }
+        for (int i = 0; i < stages.length; i++) {
+            long allocatedBefore = GenerationStats.currentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            stages[i].run(dungeon);
+            long elapsed = System.nanoTime() - start;
+            long allocatedAfter = GenerationStats.currentThreadAllocatedBytes();
+            stats.record(i, elapsed, allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore);
+        }
+        stats.finishRun();
+    }
+}
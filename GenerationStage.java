@@ -0,0 +1,5 @@
+public interface GenerationStage {
+    String getName();
+
+    void run(Dungeon dungeon);
+}
@@ -0,0 +1,121 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+public final class GenerationStats {
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    private final String[] stageNames;
+    private final long[] lastNanos;
+    private final long[] lastBytes;
+    private final long[] totalNanos;
+    private final long[] totalBytes;
+    private long runs;
+    private boolean enabled = true;
+
+    public GenerationStats(GenerationPipeline pipeline) {
+        int count = pipeline.getStageCount();
+        stageNames = new String[count];
+        for (int i = 0; i < count; i++) {
+            stageNames[i] = pipeline.getStageName(i);
+        }
+        lastNanos = new long[count];
+        lastBytes = new long[count];
+        totalNanos = new long[count];
+        totalBytes = new long[count];
+    }
+
+    // Bulk tools that generate thousands of floors per second can skip the per-stage clock and MXBean reads.
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    void record(int stage, long nanos, long bytes) {
+        lastNanos[stage] = nanos;
+        lastBytes[stage] = bytes;
+        totalNanos[stage] += nanos;
+        totalBytes[stage] += Math.max(0, bytes);
+    }
+
+    void finishRun() {
+        runs++;
+    }
+
+    public void reset() {
+        for (int i = 0; i < stageNames.length; i++) {
+            lastNanos[i] = 0;
+            lastBytes[i] = 0;
+            totalNanos[i] = 0;
+            totalBytes[i] = 0;
+        }
+        runs = 0;
+    }
+
+    public int getStageCount() {
+        return stageNames.length;
+    }
+
+    public String getStageName(int stage) {
+        return stageNames[stage];
+    }
+
+    public long getLastNanos(int stage) {
+        return lastNanos[stage];
+    }
+
+    // -1 when the JVM cannot report per-thread allocation.
+    public long getLastAllocatedBytes(int stage) {
+        return lastBytes[stage];
+    }
+
+    public long getTotalNanos(int stage) {
+        return totalNanos[stage];
+    }
+
+    public long getTotalAllocatedBytes(int stage) {
+        return totalBytes[stage];
+    }
+
+    public long getRuns() {
+        return runs;
+    }
+
+    public String summary() {
+        StringBuilder builder = new StringBuilder();
+        long divisor = Math.max(1, runs);
+        long nanosSum = 0;
+        long bytesSum = 0;
+        for (int i = 0; i < stageNames.length; i++) {
+            long nanos = totalNanos[i] / divisor;
+            long bytes = totalBytes[i] / divisor;
+            nanosSum += nanos;
+            bytesSum += bytes;
+            builder.append(String.format(Locale.ROOT, "  %-12s %10.1f us %12d B%n", stageNames[i], nanos / 1000.0, bytes));
+        }
+        builder.append(String.format(Locale.ROOT, "  %-12s %10.1f us %12d B  (%d runs)", "total", nanosSum / 1000.0,
+                bytesSum, runs));
+        return builder.toString();
+    }
+
+    static long currentThreadAllocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads;
+    }
+}
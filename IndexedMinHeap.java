@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+// Binary min-heap over small integer ids with a position index, so any id can be removed or re-keyed in
+// O(log n). Keys live beside the ids in heap order, keeping sift loops on two dense arrays. Storage grows
+// only when an id beyond the current capacity is inserted.
+public final class IndexedMinHeap {
+    private int[] heap;
+    private int[] positions;
+    private long[] keys;
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        int initial = Math.max(1, capacity);
+        heap = new int[initial];
+        positions = new int[initial];
+        keys = new long[initial];
+        Arrays.fill(positions, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < positions.length && positions[id] >= 0;
+    }
+
+    public long getKey(int id) {
+        return keys[positionOf(id)];
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    public void insert(int id, long key) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id: " + id);
+        }
+        ensureCapacity(id + 1);
+        if (positions[id] >= 0) {
+            throw new IllegalStateException("Id already in heap: " + id);
+        }
+        heap[size] = id;
+        keys[size] = key;
+        positions[id] = size;
+        siftUp(size++);
+    }
+
+    public void insertOrUpdate(int id, long key) {
+        if (contains(id)) {
+            update(id, key);
+        } else {
+            insert(id, key);
+        }
+    }
+
+    public void update(int id, long key) {
+        int position = positionOf(id);
+        long previous = keys[position];
+        keys[position] = key;
+        if (key < previous) {
+            siftUp(position);
+        } else {
+            siftDown(position);
+        }
+    }
+
+    public void remove(int id) {
+        int position = positionOf(id);
+        int last = heap[--size];
+        positions[id] = -1;
+        if (position == size) {
+            return;
+        }
+        heap[position] = last;
+        keys[position] = keys[size];
+        positions[last] = position;
+        siftUp(position);
+        siftDown(positions[last]);
+    }
+
+    public int peek() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty");
+        }
+        return heap[0];
+    }
+
+    public int poll() {
+        int top = peek();
+        remove(top);
+        return top;
+    }
+
+    private int positionOf(int id) {
+        if (!contains(id)) {
+            throw new IllegalArgumentException("Id not in heap: " + id);
+        }
+        return positions[id];
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= positions.length) {
+            return;
+        }
+        int capacity = Math.max(required, positions.length * 2);
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        int oldLength = positions.length;
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, oldLength, capacity, -1);
+    }
+
+    // Ties go to the lower id so scheduling stays deterministic.
+    private static boolean less(long keyA, int idA, long keyB, int idB) {
+        return keyA < keyB || (keyA == keyB && idA < idB);
+    }
+
+    private void siftUp(int position) {
+        int id = heap[position];
+        long key = keys[position];
+        while (position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            int parent = heap[parentPosition];
+            long parentKey = keys[parentPosition];
+            if (!less(key, id, parentKey, parent)) {
+                break;
+            }
+            heap[position] = parent;
+            keys[position] = parentKey;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = id;
+        keys[position] = key;
+        positions[id] = position;
+    }
+
+    private void siftDown(int position) {
+        int id = heap[position];
+        long key = keys[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && less(keys[right], heap[right], keys[child], heap[child])) {
+                child = right;
+            }
+            int childId = heap[child];
+            long childKey = keys[child];
+            if (!less(childKey, childId, key, id)) {
+                break;
+            }
+            heap[position] = childId;
+            keys[position] = childKey;
+            positions[childId] = position;
+            position = child;
+        }
+        heap[position] = id;
+        keys[position] = key;
+        positions[id] = position;
+    }
+}
@@ -0,0 +1,104 @@
+import java.awt.Point;
+import java.util.List;
+
+public final class KeyTileStage implements GenerationStage {
+    @Override
+    public String getName() {
+        return "key-tiles";
+    }
+
+    @Override
+    public void run(Dungeon dungeon) {
+        List<Dungeon.Rect> rooms = dungeon.rooms();
+        Dungeon.Rect startRoom = rooms.get(0);
+        Point start = new Point(startRoom.centerX(), startRoom.centerY());
+        if (dungeon.getTile(start.x, start.y) != Dungeon.TileType.FLOOR) {
+            // Cave regions are not solid floor like rooms, so their centre can be rock.
+            start = placeWithinRoom(dungeon, startRoom, null);
+        }
+        dungeon.setStartPosition(start);
+
+        Dungeon.Rect stairsRoom = findFarthestRoom(rooms, startRoom, null);
+        if (stairsRoom == null) {
+            stairsRoom = startRoom;
+        }
+        Point stairs = placeWithinRoom(dungeon, stairsRoom, start);
+        dungeon.setStairsPosition(stairs);
+
+        Dungeon.Rect sanctuaryRoom = findFarthestRoom(rooms, startRoom, stairsRoom);
+        if (sanctuaryRoom == null) {
+            sanctuaryRoom = rooms.size() > 1 ? rooms.get(rooms.size() - 1) : startRoom;
+        }
+        dungeon.setSanctuaryPosition(placeWithinRoom(dungeon, sanctuaryRoom, stairs));
+    }
+
+    private Dungeon.Rect findFarthestRoom(List<Dungeon.Rect> rooms, Dungeon.Rect origin, Dungeon.Rect exclude) {
+        Dungeon.Rect result = null;
+        double bestDistance = -1;
+        for (Dungeon.Rect room : rooms) {
+            if (room == origin || room == exclude) {
+                continue;
+            }
+            double distance = squaredDistance(origin.centerX(), origin.centerY(), room.centerX(), room.centerY());
+            if (distance > bestDistance) {
+                bestDistance = distance;
+                result = room;
+            }
+        }
+        return result;
+    }
+
+    // Picks uniformly among the room's floor tiles other than avoid, numbered column by column, counting them first
+    // and walking to the chosen one instead of collecting them. The start tile is only used when nothing else is left.
+    private Point placeWithinRoom(Dungeon dungeon, Dungeon.Rect room, Point avoid) {
+        if (room == null) {
+            return null;
+        }
+        Point start = dungeon.getStartPosition();
+        int preferred = 0;
+        boolean startAllowed = false;
+        for (int x = room.x; x < room.x + room.w; x++) {
+            for (int y = room.y; y < room.y + room.h; y++) {
+                if (!isCandidate(dungeon, x, y, avoid)) {
+                    continue;
+                }
+                if (isAt(start, x, y)) {
+                    startAllowed = true;
+                } else {
+                    preferred++;
+                }
+            }
+        }
+        if (preferred == 0) {
+            if (!startAllowed) {
+                return null;
+            }
+            // Unused draw: the old collect-then-pick code drew here too, so later layouts stay the same for a seed.
+            dungeon.layoutRng().nextInt(1);
+            return new Point(start.x, start.y);
+        }
+        int remaining = dungeon.layoutRng().nextInt(preferred);
+        for (int x = room.x; x < room.x + room.w; x++) {
+            for (int y = room.y; y < room.y + room.h; y++) {
+                if (isCandidate(dungeon, x, y, avoid) && !isAt(start, x, y) && remaining-- == 0) {
+                    return new Point(x, y);
+                }
+            }
+        }
+        throw new IllegalStateException("Room tiles changed while placing a key tile");
+    }
+
+    private static boolean isCandidate(Dungeon dungeon, int x, int y, Point avoid) {
+        return dungeon.getTile(x, y) == Dungeon.TileType.FLOOR && !isAt(avoid, x, y);
+    }
+
+    private static boolean isAt(Point point, int x, int y) {
+        return point != null && point.x == x && point.y == y;
+    }
+
+    private double squaredDistance(int x1, int y1, int x2, int y2) {
+        int dx = x1 - x2;
+        int dy = y1 - y2;
+        return dx * dx + dy * dy;
+    }
+}
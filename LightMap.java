@@ -0,0 +1,253 @@
+import java.util.Arrays;
+
+// Per-tile RGB light from point sources. Each source floods outward over walkable tiles up to its radius, lighting
+// the walls it touches but not passing through them, and fades with distance. Tiles hold the sum of every source's
+// contribution, so moving or removing one source subtracts its old footprint and adds the new one without touching
+// the rest of the map. Changed tiles are collected in a dirty rectangle for the renderer to relight.
+public final class LightMap {
+    // Channel multipliers are fixed point: FULL leaves a pixel unchanged.
+    public static final int FULL = 256;
+
+    private final int width;
+    private final int height;
+    private final int[] red;
+    private final int[] green;
+    private final int[] blue;
+    private final int[] visitStamp;
+    private final int[] queue;
+    private int stamp;
+
+    private Dungeon dungeon;
+    private int ambientRed;
+    private int ambientGreen;
+    private int ambientBlue;
+
+    private int sourceCount;
+    private boolean[] active = new boolean[8];
+    private int[] sourceX = new int[8];
+    private int[] sourceY = new int[8];
+    private int[] sourceRadius = new int[8];
+    private int[] sourceRed = new int[8];
+    private int[] sourceGreen = new int[8];
+    private int[] sourceBlue = new int[8];
+    private int[] freeSources = new int[8];
+    private int freeCount;
+
+    private int dirtyLeft;
+    private int dirtyTop;
+    private int dirtyRight = -1;
+    private int dirtyBottom = -1;
+    private long tilesRelit;
+
+    public LightMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.red = new int[width * height];
+        this.green = new int[width * height];
+        this.blue = new int[width * height];
+        this.visitStamp = new int[width * height];
+        this.queue = new int[width * height];
+    }
+
+    // Drops every source and marks the whole map dirty. The ambient colour is what unlit tiles are multiplied by.
+    public void reset(Dungeon dungeon, int ambientRgb) {
+        this.dungeon = dungeon;
+        ambientRed = channel(ambientRgb >> 16);
+        ambientGreen = channel(ambientRgb >> 8);
+        ambientBlue = channel(ambientRgb);
+        Arrays.fill(red, 0);
+        Arrays.fill(green, 0);
+        Arrays.fill(blue, 0);
+        Arrays.fill(active, false);
+        sourceCount = 0;
+        freeCount = 0;
+        markDirty(0, 0, width - 1, height - 1);
+    }
+
+    public int addSource(int x, int y, int radius, int rgb, float intensity) {
+        int handle;
+        if (freeCount > 0) {
+            handle = freeSources[--freeCount];
+        } else {
+            handle = sourceCount++;
+            if (handle == active.length) {
+                grow(handle * 2);
+            }
+        }
+        active[handle] = true;
+        sourceX[handle] = x;
+        sourceY[handle] = y;
+        sourceRadius[handle] = radius;
+        sourceRed[handle] = Math.round(channel(rgb >> 16) * intensity);
+        sourceGreen[handle] = Math.round(channel(rgb >> 8) * intensity);
+        sourceBlue[handle] = Math.round(channel(rgb) * intensity);
+        propagate(handle, 1);
+        return handle;
+    }
+
+    public void moveSource(int handle, int x, int y) {
+        checkSource(handle);
+        if (sourceX[handle] == x && sourceY[handle] == y) {
+            return;
+        }
+        propagate(handle, -1);
+        sourceX[handle] = x;
+        sourceY[handle] = y;
+        propagate(handle, 1);
+    }
+
+    public void removeSource(int handle) {
+        checkSource(handle);
+        propagate(handle, -1);
+        active[handle] = false;
+        if (freeCount == freeSources.length) {
+            freeSources = Arrays.copyOf(freeSources, freeCount * 2);
+        }
+        freeSources[freeCount++] = handle;
+    }
+
+    // Breadth-first flood from the source over walkable tiles within its radius; sign is +1 to add the
+    // footprint and -1 to take it away again. The flood is deterministic, so removal undoes addition exactly.
+    private void propagate(int handle, int sign) {
+        int originX = sourceX[handle];
+        int originY = sourceY[handle];
+        int radius = sourceRadius[handle];
+        if (dungeon == null || !dungeon.inBounds(originX, originY)) {
+            return;
+        }
+        int limit = radius * radius;
+        float reach = radius + 1f;
+        int lightRed = sourceRed[handle];
+        int lightGreen = sourceGreen[handle];
+        int lightBlue = sourceBlue[handle];
+
+        stamp++;
+        int head = 0;
+        int tail = 0;
+        int origin = originY * width + originX;
+        visitStamp[origin] = stamp;
+        queue[tail++] = origin;
+        while (head < tail) {
+            int tile = queue[head++];
+            int x = tile % width;
+            int y = tile / width;
+            int dx = x - originX;
+            int dy = y - originY;
+            float falloff = 1f - (float) Math.sqrt(dx * dx + dy * dy) / reach;
+            red[tile] += sign * Math.round(lightRed * falloff);
+            green[tile] += sign * Math.round(lightGreen * falloff);
+            blue[tile] += sign * Math.round(lightBlue * falloff);
+            if (!dungeon.isWalkable(x, y)) {
+                continue;
+            }
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + (direction == 0 ? 1 : direction == 1 ? -1 : 0);
+                int ny = y + (direction == 2 ? 1 : direction == 3 ? -1 : 0);
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+                int ndx = nx - originX;
+                int ndy = ny - originY;
+                int next = ny * width + nx;
+                if (ndx * ndx + ndy * ndy > limit || visitStamp[next] == stamp) {
+                    continue;
+                }
+                visitStamp[next] = stamp;
+                queue[tail++] = next;
+            }
+        }
+        tilesRelit += tail;
+        markDirty(originX - radius, originY - radius, originX + radius, originY + radius);
+    }
+
+    private void markDirty(int left, int top, int right, int bottom) {
+        left = Math.max(0, left);
+        top = Math.max(0, top);
+        right = Math.min(width - 1, right);
+        bottom = Math.min(height - 1, bottom);
+        if (dirtyRight < dirtyLeft) {
+            dirtyLeft = left;
+            dirtyTop = top;
+            dirtyRight = right;
+            dirtyBottom = bottom;
+            return;
+        }
+        dirtyLeft = Math.min(dirtyLeft, left);
+        dirtyTop = Math.min(dirtyTop, top);
+        dirtyRight = Math.max(dirtyRight, right);
+        dirtyBottom = Math.max(dirtyBottom, bottom);
+    }
+
+    private void grow(int capacity) {
+        active = Arrays.copyOf(active, capacity);
+        sourceX = Arrays.copyOf(sourceX, capacity);
+        sourceY = Arrays.copyOf(sourceY, capacity);
+        sourceRadius = Arrays.copyOf(sourceRadius, capacity);
+        sourceRed = Arrays.copyOf(sourceRed, capacity);
+        sourceGreen = Arrays.copyOf(sourceGreen, capacity);
+        sourceBlue = Arrays.copyOf(sourceBlue, capacity);
+    }
+
+    private void checkSource(int handle) {
+        if (handle < 0 || handle >= sourceCount || !active[handle]) {
+            throw new IllegalArgumentException("Unknown light source: " + handle);
+        }
+    }
+
+    private static int channel(int value) {
+        int c = value & 0xFF;
+        return c + (c >>> 7);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // Fixed-point multipliers in [0, FULL], ambient included.
+    public int getRed(int x, int y) {
+        return Math.min(FULL, ambientRed + red[y * width + x]);
+    }
+
+    public int getGreen(int x, int y) {
+        return Math.min(FULL, ambientGreen + green[y * width + x]);
+    }
+
+    public int getBlue(int x, int y) {
+        return Math.min(FULL, ambientBlue + blue[y * width + x]);
+    }
+
+    public boolean isDirty() {
+        return dirtyRight >= dirtyLeft;
+    }
+
+    public int getDirtyLeft() {
+        return dirtyLeft;
+    }
+
+    public int getDirtyTop() {
+        return dirtyTop;
+    }
+
+    public int getDirtyRight() {
+        return dirtyRight;
+    }
+
+    public int getDirtyBottom() {
+        return dirtyBottom;
+    }
+
+    public void clearDirty() {
+        dirtyLeft = 0;
+        dirtyTop = 0;
+        dirtyRight = -1;
+        dirtyBottom = -1;
+    }
+
+    public long getTilesRelit() {
+        return tilesRelit;
+    }
+}
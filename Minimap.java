@@ -0,0 +1,117 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+// One pixel per tile. Pixels are only rewritten for tiles the field of view reports as changed, so a turn costs
+// as much as the edge of the player's sight rather than the whole floor. Enemy blips are drawn over the image.
+public final class Minimap {
+    private static final int UNSEEN = 0;
+    private static final int WALL_SEEN = 0xC0464C5C;
+    private static final int WALL_VISIBLE = 0xF07E8598;
+    private static final int FLOOR_SEEN = 0xA0262B36;
+    private static final int FLOOR_VISIBLE = 0xE0505868;
+    private static final int SANCTUARY = 0xFF6D5BFF;
+    private static final int STAIRS = 0xFF8ED0E8;
+
+    private static final Color COLOR_BACK = new Color(0xB00D0F14, true);
+    private static final Color COLOR_BORDER = new Color(0x40AEB6C2, true);
+    private static final Color COLOR_VIEW = new Color(0x80EDEFF3, true);
+    private static final Color COLOR_PLAYER = new Color(0x52FFB8);
+    private static final Color COLOR_ENEMY = new Color(0xD9607C);
+    private static final Color COLOR_ELITE = new Color(0xF28F45);
+
+    private Dungeon dungeon;
+    private BufferedImage image;
+    private int[] pixels;
+    private long pixelsWritten;
+
+    public void reset(Dungeon dungeon) {
+        this.dungeon = dungeon;
+        if (image == null || image.getWidth() != dungeon.getWidth() || image.getHeight() != dungeon.getHeight()) {
+            image = new BufferedImage(dungeon.getWidth(), dungeon.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        } else {
+            Arrays.fill(pixels, UNSEEN);
+        }
+    }
+
+    public void refresh(FieldOfView fov) {
+        int width = dungeon.getWidth();
+        for (int i = 0; i < fov.getChangedCount(); i++) {
+            int tile = fov.getChangedTile(i);
+            int x = tile % width;
+            int y = tile / width;
+            pixels[tile] = colorOf(x, y, fov.isVisible(x, y), fov.isExplored(x, y));
+        }
+        pixelsWritten += fov.getChangedCount();
+    }
+
+    private int colorOf(int x, int y, boolean visible, boolean explored) {
+        if (!explored) {
+            return UNSEEN;
+        }
+        switch (dungeon.getTile(x, y)) {
+            case SANCTUARY:
+                return SANCTUARY;
+            case STAIRS:
+                return STAIRS;
+            case FLOOR:
+                return visible ? FLOOR_VISIBLE : FLOOR_SEEN;
+            default:
+                return visible ? WALL_VISIBLE : WALL_SEEN;
+        }
+    }
+
+    // Draws the map at the given integer scale with the camera's view outlined. Only enemies the player can
+    // currently see get a blip.
+    public void draw(Graphics2D g2, int x, int y, int scale, Camera camera, int tileSize, ActorStore enemies,
+                     FieldOfView fov, int playerX, int playerY) {
+        if (image == null) {
+            return;
+        }
+        int width = image.getWidth() * scale;
+        int height = image.getHeight() * scale;
+        g2.setColor(COLOR_BACK);
+        g2.fillRect(x - 4, y - 4, width + 8, height + 8);
+        g2.setColor(COLOR_BORDER);
+        g2.drawRect(x - 4, y - 4, width + 7, height + 7);
+
+        Object interpolation = g2.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g2.drawImage(image, x, y, width, height, null);
+        if (interpolation != null) {
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        }
+
+        for (int slot = 0; slot < enemies.size(); slot++) {
+            int ex = enemies.getX(slot);
+            int ey = enemies.getY(slot);
+            if (fov.isVisible(ex, ey)) {
+                g2.setColor(enemies.isElite(slot) ? COLOR_ELITE : COLOR_ENEMY);
+                g2.fillRect(x + ex * scale, y + ey * scale, scale, scale);
+            }
+        }
+        g2.setColor(COLOR_PLAYER);
+        g2.fillRect(x + playerX * scale - 1, y + playerY * scale - 1, scale + 2, scale + 2);
+
+        g2.setColor(COLOR_VIEW);
+        g2.drawRect(x + Math.max(0, camera.getX()) * scale / tileSize, y + Math.max(0, camera.getY()) * scale / tileSize,
+                Math.min(width, camera.getViewWidth() * scale / tileSize) - 1,
+                Math.min(height, camera.getViewHeight() * scale / tileSize) - 1);
+    }
+
+    public int getWidth() {
+        return image != null ? image.getWidth() : 0;
+    }
+
+    public int getHeight() {
+        return image != null ? image.getHeight() : 0;
+    }
+
+    public long getPixelsWritten() {
+        return pixelsWritten;
+    }
+}
@@ -0,0 +1,161 @@
+import java.util.Arrays;
+
+// A* over Dungeon.isWalkable with four-way unit-cost moves and a Manhattan heuristic. The open set is a reused
+// IndexedMinHeap keyed by tile index, and g-scores, parents and the closed set live in int arrays that are
+// invalidated by bumping a generation stamp, so a query allocates nothing. One instance serves one thread.
+public final class PathFinder {
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    // Extra per-query obstacles, such as occupied tiles. The goal tile is never asked.
+    public interface Blocker {
+        boolean isBlocked(int x, int y);
+    }
+
+    private static final int[] STEP_X = {1, -1, 0, 0};
+    private static final int[] STEP_Y = {0, 0, 1, -1};
+
+    private final int width;
+    private final int height;
+    private final IndexedMinHeap open;
+    private final int[] gScore;
+    private final int[] parent;
+    // A tile's stamp is 2 * generation once reached and 2 * generation + 1 once closed.
+    private final int[] stamp;
+    private final int[] path;
+    private int generation;
+    private int pathLength;
+    private int expanded;
+
+    public PathFinder(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.open = new IndexedMinHeap(width * height);
+        this.gScore = new int[width * height];
+        this.parent = new int[width * height];
+        this.stamp = new int[width * height];
+        this.path = new int[width * height];
+    }
+
+    public boolean findPath(Dungeon dungeon, int startX, int startY, int goalX, int goalY) {
+        return findPath(dungeon, startX, startY, goalX, goalY, null, NO_LIMIT);
+    }
+
+    // Finds a shortest path and keeps it for getStep(); false when the goal is unreachable, blocked, or further
+    // than maxLength steps. The start tile itself is not part of the path.
+    public boolean findPath(Dungeon dungeon, int startX, int startY, int goalX, int goalY, Blocker blocker,
+                            int maxLength) {
+        pathLength = 0;
+        expanded = 0;
+        if (!dungeon.inBounds(startX, startY) || !dungeon.isWalkable(goalX, goalY)) {
+            return false;
+        }
+        if (Math.abs(goalX - startX) + Math.abs(goalY - startY) > maxLength) {
+            return false;
+        }
+        if (startX == goalX && startY == goalY) {
+            return true;
+        }
+        if (generation == Integer.MAX_VALUE / 2) {
+            Arrays.fill(stamp, 0);
+            generation = 0;
+        }
+        generation++;
+        int reached = generation * 2;
+        int closed = reached + 1;
+        open.clear();
+
+        int start = startY * width + startX;
+        int goal = goalY * width + goalX;
+        stamp[start] = reached;
+        gScore[start] = 0;
+        parent[start] = -1;
+        open.insert(start, key(0, startX, startY, goalX, goalY));
+
+        while (!open.isEmpty()) {
+            int tile = open.poll();
+            if (tile == goal) {
+                tracePath(start, goal);
+                return true;
+            }
+            stamp[tile] = closed;
+            expanded++;
+            int x = tile % width;
+            int y = tile / width;
+            int nextScore = gScore[tile] + 1;
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + STEP_X[direction];
+                int ny = y + STEP_Y[direction];
+                if (!dungeon.isWalkable(nx, ny)) {
+                    continue;
+                }
+                int neighbour = ny * width + nx;
+                int neighbourStamp = stamp[neighbour];
+                if (neighbourStamp == closed) {
+                    continue;
+                }
+                boolean seen = neighbourStamp == reached;
+                if (seen && gScore[neighbour] <= nextScore) {
+                    continue;
+                }
+                int remaining = Math.abs(goalX - nx) + Math.abs(goalY - ny);
+                if (nextScore + remaining > maxLength
+                        || (neighbour != goal && blocker != null && blocker.isBlocked(nx, ny))) {
+                    continue;
+                }
+                stamp[neighbour] = reached;
+                gScore[neighbour] = nextScore;
+                parent[neighbour] = tile;
+                long key = key(nextScore, nx, ny, goalX, goalY);
+                if (seen) {
+                    open.update(neighbour, key);
+                } else {
+                    open.insert(neighbour, key);
+                }
+            }
+        }
+        return false;
+    }
+
+    // Orders by f = g + h and, among equal f, by smaller h, which pushes the search straight at the goal
+    // instead of widening across every equally short route.
+    private static long key(int g, int x, int y, int goalX, int goalY) {
+        int h = Math.abs(goalX - x) + Math.abs(goalY - y);
+        return ((long) (g + h) << 32) | h;
+    }
+
+    private void tracePath(int start, int goal) {
+        int length = 0;
+        for (int tile = goal; tile != start; tile = parent[tile]) {
+            length++;
+        }
+        pathLength = length;
+        for (int tile = goal, i = length - 1; tile != start; tile = parent[tile], i--) {
+            path[i] = tile;
+        }
+    }
+
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    public int getStepX(int i) {
+        return path[i] % width;
+    }
+
+    public int getStepY(int i) {
+        return path[i] / width;
+    }
+
+    // Tiles closed by the last query; a measure of how much of the map it searched.
+    public int getExpanded() {
+        return expanded;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
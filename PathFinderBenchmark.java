@@ -0,0 +1,61 @@
+import java.util.Arrays;
+import java.util.Locale;
+
+// Times A* between random walkable tiles on large floors. Pairs are picked from the same connected map, so
+// failed queries are ones the path length limit or the layout rules out, and are reported separately.
+public final class PathFinderBenchmark {
+    private static final int[] SIZES = {64, 128, 256};
+
+    private PathFinderBenchmark() {
+        throw new AssertionError("No instances");
+    }
+
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        for (int size : SIZES) {
+            int areaScale = Math.max(1, (size * size) / (40 * 24));
+            Dungeon dungeon = new Dungeon(size, size, 14 * areaScale, 4, 9, 60 * areaScale);
+            dungeon.generate(size * 7919L);
+            int[] walkable = new int[size * size];
+            int walkableCount = 0;
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    if (dungeon.isWalkable(x, y)) {
+                        walkable[walkableCount++] = y * size + x;
+                    }
+                }
+            }
+
+            PathFinder pathFinder = new PathFinder(size, size);
+            Rng rng = new Rng(size);
+            long[] nanos = new long[queries];
+            long totalNanos = 0;
+            long totalLength = 0;
+            long totalExpanded = 0;
+            int found = 0;
+            for (int i = -queries / 4; i < queries; i++) {
+                int from = walkable[rng.nextInt(walkableCount)];
+                int to = walkable[rng.nextInt(walkableCount)];
+                long start = System.nanoTime();
+                boolean ok = pathFinder.findPath(dungeon, from % size, from / size, to % size, to / size);
+                long elapsed = System.nanoTime() - start;
+                // Negative rounds warm up the JIT and are not timed.
+                if (i < 0) {
+                    continue;
+                }
+                totalNanos += elapsed;
+                nanos[i] = elapsed;
+                totalExpanded += pathFinder.getExpanded();
+                if (ok) {
+                    found++;
+                    totalLength += pathFinder.getPathLength();
+                }
+            }
+            Arrays.sort(nanos);
+            System.out.println(String.format(Locale.ROOT,
+                    "%dx%d: %.1f us mean, %.1f us p99, %d/%d found, mean length %.0f, mean expanded %.0f",
+                    size, size, totalNanos / 1e3 / queries, nanos[queries * 99 / 100] / 1e3, found, queries,
+                    totalLength / (double) Math.max(1, found), totalExpanded / (double) queries));
+        }
+    }
+}
@@ -0,0 +1,11 @@
+public final class ReachabilityStage implements GenerationStage {
+    @Override
+    public String getName() {
+        return "reachability";
+    }
+
+    @Override
+    public void run(Dungeon dungeon) {
+        dungeon.getConnectivity().validateAndRepair(dungeon);
+    }
+}
@@ -1,5 +1,4 @@
 import java.util.List;
-import java.util.Random;
 
 public final class RelicCatalog {
     public static final List<Relic> ALL = List.of(
@@ -73,7 +72,7 @@ public final class RelicCatalog {
         throw new AssertionError("No instances");
     }
 
-    public static Relic random(Random rng) {
+    public static Relic random(Rng rng) {
         if (ALL.isEmpty()) {
             throw new IllegalStateException("No relics configured");
         }
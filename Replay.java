@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// A run as its seed and the GameSimulation actions applied to it, one byte each, plus the simulation checksum after
+// every CHECKPOINT_INTERVAL actions and at the end. Re-applying the actions to a fresh run of the same seed must
+// reproduce every checksum; the first one that differs marks where a replay stopped matching the rules.
+//
+// File layout, little-endian: "RGRP", version (short), checkpoint interval (short), run seed (long),
+// action count (int), actions (bytes), checkpoint count (int), checkpoints (longs), final checksum (long).
+public final class Replay {
+    public static final int FILE_MAGIC = 0x50524752; // "RGRP" read little-endian
+    // Also the rules version: bumped whenever a change to the rules would make older replays diverge, so they are
+    // turned away as incompatible instead. 2: every third floor is a cave. 3: enemy speed is capped.
+    public static final int FILE_VERSION = 3;
+    public static final int CHECKPOINT_INTERVAL = 64;
+
+    // A replay file written under another version of the rules; re-simulating it says nothing about the run.
+    public static final class IncompatibleVersionException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int version;
+
+        IncompatibleVersionException(int version) {
+            super("Recorded under rules version " + version + ", this build plays version " + FILE_VERSION);
+            this.version = version;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+    }
+
+    private final long seed;
+    private final int interval;
+    private byte[] actions;
+    private int actionCount;
+    private long[] checkpoints;
+    private int checkpointCount;
+    private long finalChecksum;
+
+    public Replay(long seed) {
+        this(seed, CHECKPOINT_INTERVAL, new byte[256], 0, new long[8], 0, 0L);
+    }
+
+    private Replay(long seed, int interval, byte[] actions, int actionCount, long[] checkpoints, int checkpointCount,
+                   long finalChecksum) {
+        this.seed = seed;
+        this.interval = interval;
+        this.actions = actions;
+        this.actionCount = actionCount;
+        this.checkpoints = checkpoints;
+        this.checkpointCount = checkpointCount;
+        this.finalChecksum = finalChecksum;
+    }
+
+    // Call after the simulation has applied the action.
+    public void record(int action, GameSimulation simulation) {
+        if (actionCount == actions.length) {
+            actions = Arrays.copyOf(actions, actions.length * 2);
+        }
+        actions[actionCount++] = (byte) action;
+        if (actionCount % interval == 0) {
+            if (checkpointCount == checkpoints.length) {
+                checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+            }
+            checkpoints[checkpointCount++] = simulation.checksum();
+        }
+    }
+
+    // Seals the replay with the simulation's state after the last recorded action.
+    public void finish(GameSimulation simulation) {
+        finalChecksum = simulation.checksum();
+    }
+
+    public void write(Path path) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(20 + actionCount + 4 + checkpointCount * 8 + 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(FILE_MAGIC).putShort((short) FILE_VERSION).putShort((short) interval).putLong(seed);
+        data.putInt(actionCount).put(actions, 0, actionCount);
+        data.putInt(checkpointCount);
+        for (int i = 0; i < checkpointCount; i++) {
+            data.putLong(checkpoints[i]);
+        }
+        data.putLong(finalChecksum);
+        Files.write(path, data.array());
+    }
+
+    public static Replay read(Path path) throws IOException {
+        return parse(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    static Replay parse(ByteBuffer data) throws IOException {
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (data.getInt() != FILE_MAGIC) {
+                throw new IOException("Not a replay file");
+            }
+            int version = data.getShort();
+            if (version != FILE_VERSION) {
+                throw new IncompatibleVersionException(version);
+            }
+            int interval = data.getShort();
+            long seed = data.getLong();
+            int actionCount = data.getInt();
+            if (interval < 1 || actionCount < 0 || actionCount > data.remaining()) {
+                throw new IOException("Corrupt replay header");
+            }
+            byte[] actions = new byte[actionCount];
+            data.get(actions);
+            int checkpointCount = data.getInt();
+            if (checkpointCount != actionCount / interval) {
+                throw new IOException("Checkpoint count does not match the action count");
+            }
+            long[] checkpoints = new long[checkpointCount];
+            for (int i = 0; i < checkpointCount; i++) {
+                checkpoints[i] = data.getLong();
+            }
+            long finalChecksum = data.getLong();
+            return new Replay(seed, interval, actions, actionCount, checkpoints, checkpointCount, finalChecksum);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated replay");
+        }
+    }
+
+    // Re-simulates on the given instance and returns the number of actions applied before the first checksum that
+    // disagreed, or -1 when every checkpoint and the final state match. Stops at the first divergence.
+    public int verify(GameSimulation simulation) {
+        simulation.beginRun(seed);
+        int checkpoint = 0;
+        for (int i = 0; i < actionCount; i++) {
+            int action = actions[i];
+            if (action < 0 || action >= GameSimulation.ACTION_COUNT) {
+                return i;
+            }
+            simulation.apply(action);
+            if ((i + 1) % interval == 0 && simulation.checksum() != checkpoints[checkpoint++]) {
+                return i + 1;
+            }
+        }
+        return simulation.checksum() == finalChecksum ? -1 : actionCount;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    public int getAction(int i) {
+        return actions[i];
+    }
+}
@@ -0,0 +1,270 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Command-line check for submitted runs: re-simulates every replay in a directory on all cores and reports which
+// ones reproduce their recorded checksums. Each worker keeps one GameSimulation for all the replays it claims, and a
+// replay stops at its first divergent checkpoint. --generate writes bot-played replays to test against.
+public final class ReplayVerifier {
+    public static final class Result {
+        private final Path file;
+        private final long seed;
+        private final int actions;
+        // Actions applied before the first mismatch, or -1 when the replay matched.
+        private final int divergedAt;
+        private final String error;
+        // Recorded under other rules, so it could not be checked at all.
+        private final boolean incompatible;
+        private final long nanos;
+
+        Result(Path file, long seed, int actions, int divergedAt, String error, boolean incompatible, long nanos) {
+            this.file = file;
+            this.seed = seed;
+            this.actions = actions;
+            this.divergedAt = divergedAt;
+            this.error = error;
+            this.incompatible = incompatible;
+            this.nanos = nanos;
+        }
+
+        public boolean isPassed() {
+            return error == null && divergedAt < 0;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public int getActions() {
+            return actions;
+        }
+
+        public int getDivergedAt() {
+            return divergedAt;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isIncompatible() {
+            return incompatible;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    private ReplayVerifier() {
+        throw new AssertionError("No instances");
+    }
+
+    // Results come back in the order of the files given.
+    public static Result[] verify(List<Path> files, int threads) throws InterruptedException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        Result[] results = new Result[files.size()];
+        AtomicInteger next = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(threads, Math.max(1, files.size())); i++) {
+            Thread worker = new Thread(() -> {
+                GameSimulation simulation = GameSimulation.headless();
+                int index;
+                while ((index = next.getAndIncrement()) < results.length) {
+                    results[index] = verifyOne(files.get(index), simulation);
+                }
+            }, "replay-verifier-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return results;
+    }
+
+    private static Result verifyOne(Path file, GameSimulation simulation) {
+        long start = System.nanoTime();
+        Replay replay;
+        try {
+            replay = Replay.read(file);
+        } catch (IOException e) {
+            return new Result(file, 0L, 0, -1, e.getMessage(), e instanceof Replay.IncompatibleVersionException,
+                    System.nanoTime() - start);
+        }
+        int divergedAt;
+        try {
+            divergedAt = replay.verify(simulation);
+        } catch (RuntimeException e) {
+            return new Result(file, replay.getSeed(), replay.getActionCount(), -1, e.toString(), false,
+                    System.nanoTime() - start);
+        }
+        return new Result(file, replay.getSeed(), replay.getActionCount(), divergedAt, null, false,
+                System.nanoTime() - start);
+    }
+
+    // A bot that walks to the sanctuary when it can afford a relic there, then to the stairs, going around enemies
+    // where it can and through them where it cannot, until it reaches the given floor or runs out of actions.
+    static Replay playRun(GameSimulation simulation, long seed, int floors) {
+        Replay replay = new Replay(seed);
+        simulation.beginRun(seed);
+        PathFinder pathFinder = new PathFinder(GameConfig.DUNGEON_WIDTH, GameConfig.DUNGEON_HEIGHT);
+        ActorStore enemies = simulation.getEnemies();
+        PathFinder.Blocker enemyBlocker = (x, y) -> enemies.handleAt(x, y) >= 0;
+        int budget = floors * 500;
+        while (simulation.getFloor() < floors && replay.getActionCount() < budget) {
+            int action;
+            if (simulation.isOnSanctuary() && simulation.hasRelicsInStock()
+                    && simulation.getShards() >= simulation.getRelicCost()) {
+                action = GameSimulation.BUY_RELIC;
+            } else if (simulation.isOnSanctuary() && simulation.getPlayerHp() < simulation.getPlayerMaxHp() / 2
+                    && simulation.getShards() >= simulation.getHealCost()) {
+                action = GameSimulation.BUY_HEAL;
+            } else if (simulation.isOnStairs()) {
+                action = GameSimulation.DESCEND;
+            } else {
+                boolean shopping = simulation.getSanctuaryX() >= 0 && !simulation.isSanctuaryUsed()
+                        && simulation.hasRelicsInStock() && simulation.getShards() >= simulation.getRelicCost();
+                int goalX = shopping ? simulation.getSanctuaryX() : simulation.getStairsX();
+                int goalY = shopping ? simulation.getSanctuaryY() : simulation.getStairsY();
+                Dungeon dungeon = simulation.getDungeon();
+                int x = simulation.getPlayerX();
+                int y = simulation.getPlayerY();
+                boolean found = goalX >= 0 && (pathFinder.findPath(dungeon, x, y, goalX, goalY, enemyBlocker,
+                        PathFinder.NO_LIMIT) || pathFinder.findPath(dungeon, x, y, goalX, goalY));
+                if (!found || pathFinder.getPathLength() == 0) {
+                    action = GameSimulation.REGENERATE;
+                } else {
+                    action = GameSimulation.moveAction(pathFinder.getStepX(0) - x, pathFinder.getStepY(0) - y);
+                }
+            }
+            simulation.apply(action);
+            replay.record(action, simulation);
+        }
+        replay.finish(simulation);
+        return replay;
+    }
+
+    private static void generate(Path directory, int count, int floors, long firstSeed) throws IOException {
+        Files.createDirectories(directory);
+        GameSimulation simulation = GameSimulation.headless();
+        for (int i = 0; i < count; i++) {
+            long seed = firstSeed + i;
+            playRun(simulation, seed, floors).write(directory.resolve(String.format("replay-%d.rgr", seed)));
+        }
+    }
+
+    private static List<Path> listReplays(Path path) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.rgr")) {
+                for (Path file : stream) {
+                    files.add(file);
+                }
+            }
+        } else {
+            files.add(path);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path path = Paths.get(GameConfig.REPLAY_DIRECTORY);
+        int threads = Runtime.getRuntime().availableProcessors();
+        int generate = 0;
+        int floors = 10;
+        long from = 1;
+        boolean quiet = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--generate":
+                        generate = Integer.parseInt(args[++i]);
+                        break;
+                    case "--floors":
+                        floors = Integer.parseInt(args[++i]);
+                        break;
+                    case "--from":
+                        from = Long.parseLong(args[++i]);
+                        break;
+                    case "--quiet":
+                        quiet = true;
+                        break;
+                    default:
+                        if (arg.startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option: " + arg);
+                        }
+                        path = Paths.get(arg);
+                        break;
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: java ReplayVerifier [DIR|FILE] [--threads N] [--quiet]");
+            System.err.println("       java ReplayVerifier DIR --generate COUNT [--floors N] [--from SEED]");
+            System.exit(2);
+            return;
+        }
+
+        if (generate > 0) {
+            long start = System.nanoTime();
+            generate(path, generate, floors, from);
+            System.out.println(String.format(Locale.ROOT, "Wrote %d replays of %d floors to %s in %.2f s", generate,
+                    floors, path, (System.nanoTime() - start) / 1e9));
+            return;
+        }
+
+        List<Path> files = listReplays(path);
+        long start = System.nanoTime();
+        Result[] results = verify(files, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int failed = 0;
+        int incompatible = 0;
+        long actions = 0;
+        for (Result result : results) {
+            actions += result.getActions();
+            if (result.isIncompatible()) {
+                incompatible++;
+            } else if (!result.isPassed()) {
+                failed++;
+            }
+            if (quiet && result.isPassed()) {
+                continue;
+            }
+            String verdict = result.isPassed() ? "PASS"
+                    : result.isIncompatible() ? "SKIP  " + result.getError()
+                    : result.getError() != null ? "FAIL  " + result.getError()
+                    : "FAIL  diverged by action " + result.getDivergedAt();
+            System.out.println(String.format(Locale.ROOT, "%-40s seed %-20d %6d actions %8.2f ms  %s",
+                    result.getFile().getFileName(), result.getSeed(), result.getActions(),
+                    result.getNanos() / 1e6, verdict));
+        }
+        System.out.println(String.format(Locale.ROOT, "Verified %d replays (%d actions) with %d threads in %.2f s"
+                        + " (%.0f runs/min): %d passed, %d failed, %d from other rule versions", results.length,
+                actions, threads, seconds, results.length / Math.max(seconds, 1e-9) * 60,
+                results.length - failed - incompatible, failed, incompatible));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
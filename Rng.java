@@ -0,0 +1,102 @@
+// xoshiro256** generator seeded through SplitMix64. Not thread-safe: give every thread and every
+// gameplay concern its own instance instead of sharing one.
+public final class Rng {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+
+    public Rng() {
+        this(System.nanoTime());
+    }
+
+    public Rng(long seed) {
+        setSeed(seed);
+    }
+
+    public Rng(long seed, RngStream stream) {
+        setSeed(seed, stream);
+    }
+
+    public void setSeed(long seed) {
+        long z = seed;
+        s0 = mix64(z += GOLDEN_GAMMA);
+        s1 = mix64(z += GOLDEN_GAMMA);
+        s2 = mix64(z += GOLDEN_GAMMA);
+        s3 = mix64(z + GOLDEN_GAMMA);
+    }
+
+    public void setSeed(long seed, RngStream stream) {
+        setSeed(mix64(seed ^ stream.getSalt()));
+    }
+
+    public Rng split() {
+        return new Rng(nextLong());
+    }
+
+    public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    // Lemire's multiply-shift with rejection, so small bounds stay unbiased without a division per call.
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive: " + bound);
+        }
+        long product = (nextLong() >>> 32) * bound;
+        long low = product & 0xFFFFFFFFL;
+        if (low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                product = (nextLong() >>> 32) * bound;
+                low = product & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static long deriveSeed(long seed, long index) {
+        return mix64(seed ^ mix64(index * GOLDEN_GAMMA + GOLDEN_GAMMA));
+    }
+
+    public static long hash(long seed, int x, int y, int salt) {
+        long packed = ((long) x << 32) | (y & 0xFFFFFFFFL);
+        return mix64(mix64(seed ^ packed * GOLDEN_GAMMA) + salt);
+    }
+
+    public static float hashFloat(long seed, int x, int y, int salt) {
+        return (hash(seed, x, y, salt) >>> 40) * 0x1.0p-24f;
+    }
+}
@@ -0,0 +1,17 @@
+public enum RngStream {
+    LAYOUT(0x6C8E9CF570932BD5L),
+    SPAWNS(0x2545F4914F6CDD1DL),
+    COMBAT(0x9E6C63D0676A9A99L),
+    LOOT(0xD1B54A32D192ED03L),
+    COSMETICS(0xABC98388FB8FAC03L);
+
+    private final long salt;
+
+    RngStream(long salt) {
+        this.salt = salt;
+    }
+
+    public long getSalt() {
+        return salt;
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.List;
+
+public final class RoomLayoutStage implements GenerationStage {
+    @Override
+    public String getName() {
+        return "layout";
+    }
+
+    @Override
+    public void run(Dungeon dungeon) {
+        if (dungeon.getLayout() != Dungeon.Layout.ROOMS) {
+            return;
+        }
+        Rng rng = dungeon.layoutRng();
+        List<Dungeon.Rect> rooms = dungeon.rooms();
+        int width = dungeon.getWidth();
+        int height = dungeon.getHeight();
+        int roomMin = dungeon.getRoomMin();
+        int roomMax = dungeon.getRoomMax();
+
+        int attempts = 0;
+        while (rooms.size() < dungeon.getMaxRooms() && attempts < dungeon.getRoomAttempts()) {
+            attempts++;
+            int w = roomMin + rng.nextInt(roomMax - roomMin + 1);
+            int h = roomMin + rng.nextInt(roomMax - roomMin + 1);
+            if (w >= width - 2 || h >= height - 2) {
+                continue;
+            }
+            int x = 1 + rng.nextInt(Math.max(1, width - w - 1));
+            int y = 1 + rng.nextInt(Math.max(1, height - h - 1));
+            Dungeon.Rect room = new Dungeon.Rect(x, y, w, h);
+
+            boolean overlaps = false;
+            for (Dungeon.Rect other : rooms) {
+                if (room.expanded(1).intersects(other)) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            if (overlaps) {
+                continue;
+            }
+
+            dungeon.carveRoom(room);
+            rooms.add(room);
+        }
+
+        if (rooms.isEmpty()) {
+            int w = roomMin + 2;
+            int h = roomMin + 2;
+            int x = width / 2 - w / 2;
+            int y = height / 2 - h / 2;
+            Dungeon.Rect fallback = new Dungeon.Rect(x, y, w, h);
+            dungeon.carveRoom(fallback);
+            rooms.add(fallback);
+        }
+    }
+}
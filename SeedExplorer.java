@@ -0,0 +1,205 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Command-line seed search: generates one floor per run seed on every core and keeps the best scores.
+// Run seeds are what the game takes as its starting seed (java Game <seed>).
+public final class SeedExplorer {
+    private static final int SEEDS_PER_CLAIM = 1024;
+
+    public static final class Result implements Comparable<Result> {
+        private final long runSeed;
+        private final double score;
+
+        Result(long runSeed, double score) {
+            this.runSeed = runSeed;
+            this.score = score;
+        }
+
+        public long getRunSeed() {
+            return runSeed;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        // Worst first, so the ranking heap can evict its head; equal scores prefer the lower seed.
+        @Override
+        public int compareTo(Result other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Long.compare(other.runSeed, runSeed);
+        }
+    }
+
+    private SeedExplorer() {
+        throw new AssertionError("No instances");
+    }
+
+    // Results come back best first. The listener, if any, sees each result as it enters the running top-k.
+    public static List<Result> explore(long firstSeed, long seedCount, int floor, SeedMetric metric, int topK,
+                                       int threads, Consumer<Result> listener) throws InterruptedException {
+        if (topK < 1 || threads < 1 || seedCount < 0) {
+            throw new IllegalArgumentException("top-k and threads must be positive, seed count non-negative");
+        }
+        Ranking ranking = new Ranking(topK, listener);
+        AtomicLong nextOffset = new AtomicLong();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                Dungeon dungeon = new Dungeon(GameConfig.DUNGEON_WIDTH, GameConfig.DUNGEON_HEIGHT,
+                        GameConfig.DUNGEON_MAX_ROOMS, GameConfig.DUNGEON_ROOM_MIN, GameConfig.DUNGEON_ROOM_MAX,
+                        GameConfig.DUNGEON_ROOM_ATTEMPTS, searchPipeline());
+                dungeon.getGenerationStats().setEnabled(false);
+                FloorProbe probe = new FloorProbe(dungeon);
+                long offset;
+                while ((offset = nextOffset.getAndAdd(SEEDS_PER_CLAIM)) < seedCount) {
+                    long end = Math.min(seedCount, offset + SEEDS_PER_CLAIM);
+                    for (long o = offset; o < end; o++) {
+                        probe.load(firstSeed + o, floor);
+                        double score = metric.score(probe);
+                        if (!Double.isNaN(score) && score >= ranking.threshold) {
+                            ranking.offer(new Result(probe.getRunSeed(), score));
+                        }
+                    }
+                }
+            }, "seed-explorer-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return ranking.bestFirst();
+    }
+
+    // Cosmetics draw from their own stream, so skipping them leaves layouts and spawns identical to the game.
+    static GenerationPipeline searchPipeline() {
+        return new GenerationPipeline(
+                new RoomLayoutStage(),
+                new CaveLayoutStage(),
+                new CorridorStage(),
+                new KeyTileStage(),
+                new ReachabilityStage(),
+                new SpawnStage());
+    }
+
+    private static final class Ranking {
+        private final int capacity;
+        private final Consumer<Result> listener;
+        private final PriorityQueue<Result> heap = new PriorityQueue<>();
+        // Workers read this without locking; a stale value only lets an extra candidate through to offer().
+        // Ties still reach offer() so the lower seed wins regardless of which worker found it.
+        private volatile double threshold = Double.NEGATIVE_INFINITY;
+
+        Ranking(int capacity, Consumer<Result> listener) {
+            this.capacity = capacity;
+            this.listener = listener;
+        }
+
+        synchronized void offer(Result result) {
+            if (heap.size() >= capacity) {
+                if (result.compareTo(heap.peek()) <= 0) {
+                    return;
+                }
+                heap.poll();
+            }
+            heap.add(result);
+            if (heap.size() >= capacity) {
+                threshold = heap.peek().getScore();
+            }
+            if (listener != null) {
+                listener.accept(result);
+            }
+        }
+
+        synchronized List<Result> bestFirst() {
+            List<Result> results = new ArrayList<>(heap);
+            results.sort((a, b) -> b.compareTo(a));
+            return results;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long from = 0;
+        long count = 1_000_000;
+        int floor = 1;
+        int top = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String score = "stairs-distance";
+        String filter = null;
+        boolean stream = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--from":
+                        from = Long.parseLong(args[++i]);
+                        break;
+                    case "--count":
+                        count = Long.parseLong(args[++i]);
+                        break;
+                    case "--floor":
+                        floor = Integer.parseInt(args[++i]);
+                        break;
+                    case "--top":
+                        top = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--score":
+                        score = args[++i];
+                        break;
+                    case "--where":
+                        filter = args[++i];
+                        break;
+                    case "--stream":
+                        stream = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: java SeedExplorer [--from SEED] [--count N] [--floor N] [--top K]"
+                    + " [--threads N] [--score stairs-distance|enemies|fewest-enemies|elites|rooms]"
+                    + " [--where no-elites|has-sanctuary|stairs-reachable] [--stream]");
+            System.exit(2);
+            return;
+        }
+
+        SeedMetric metric;
+        try {
+            metric = SeedMetric.named(score);
+            if (filter != null) {
+                metric = metric.where(SeedMetric.namedFilter(filter));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        Consumer<Result> listener = stream
+                ? result -> System.out.println(String.format(Locale.ROOT, "  + seed %d  score %.2f",
+                        result.getRunSeed(), result.getScore()))
+                : null;
+        long start = System.nanoTime();
+        List<Result> results = explore(from, count, floor, metric, top, threads, listener);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(String.format(Locale.ROOT, "Scanned %d seeds on floor %d with %d threads in %.2f s"
+                + " (%.0f floors/s)", count, floor, threads, seconds, count / Math.max(seconds, 1e-9)));
+        System.out.println("Top " + results.size() + " by " + score + (filter != null ? " where " + filter : "") + ":");
+        for (Result result : results) {
+            System.out.println(String.format(Locale.ROOT, "  seed %-20d score %.2f", result.getRunSeed(),
+                    result.getScore()));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.Locale;
+import java.util.function.Predicate;
+
+// Scores a probed floor; higher is better. NaN rejects the seed outright.
+public interface SeedMetric {
+    double score(FloorProbe probe);
+
+    default SeedMetric where(Predicate<FloorProbe> filter) {
+        return probe -> filter.test(probe) ? score(probe) : Double.NaN;
+    }
+
+    static SeedMetric named(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "stairs-distance":
+                return probe -> {
+                    int distance = probe.getStairsDistance();
+                    return distance < 0 ? Double.NaN : distance;
+                };
+            case "enemies":
+                return FloorProbe::getEnemyCount;
+            case "fewest-enemies":
+                return probe -> -probe.getEnemyCount();
+            case "elites":
+                return FloorProbe::getEliteCount;
+            case "rooms":
+                return FloorProbe::getRoomCount;
+            default:
+                throw new IllegalArgumentException("Unknown score: " + name
+                        + " (expected stairs-distance, enemies, fewest-enemies, elites or rooms)");
+        }
+    }
+
+    static Predicate<FloorProbe> namedFilter(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "no-elites":
+                return probe -> probe.getEliteCount() == 0;
+            case "has-sanctuary":
+                return FloorProbe::hasSanctuary;
+            case "stairs-reachable":
+                return probe -> probe.getStairsDistance() >= 0;
+            default:
+                throw new IllegalArgumentException("Unknown filter: " + name
+                        + " (expected no-elites, has-sanctuary or stairs-reachable)");
+        }
+    }
+}
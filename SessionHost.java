@@ -0,0 +1,393 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs many independent games in one JVM with nothing drawn: a browser front end or a bot tournament feeds each
+// session actions, and a few worker threads apply them. The game is turn based, so a session only needs a thread
+// while it has input: offering an action schedules the session once, and the worker that picks it up applies up
+// to a batch of queued actions before handing the thread to the next session. A session's simulation is only ever
+// touched by one worker at a time. Input queues are bounded; offer() refuses an action when the queue is full so
+// a fast client is pushed back instead of growing memory.
+//
+//   java SessionHost [--sessions N] [--threads N] [--queue N] [--batch N] [--seconds N]
+//
+// runs the bot from ReplayVerifier in every session at once and reports memory per session and sessions per core.
+// --close-check instead closes sessions while their input is still being applied and fails unless every one of
+// them is released.
+public final class SessionHost {
+    // Called on the worker thread right after each action, while the session's simulation may be read.
+    public interface Observer {
+        void applied(Session session, int action, int result);
+    }
+
+    public static final class Session {
+        private final int id;
+        private final GameSimulation simulation;
+        private final byte[] queue;
+        private int queueHead;
+        private int queued;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Runnable drain;
+        private volatile boolean closed;
+        private boolean released;
+        private volatile long actions;
+        // Clients may offer from several threads at once.
+        private final LongAdder refused = new LongAdder();
+
+        Session(int id, GameSimulation simulation, int queueCapacity, SessionHost host) {
+            this.id = id;
+            this.simulation = simulation;
+            this.queue = new byte[queueCapacity];
+            this.drain = () -> host.drain(this);
+        }
+
+        private synchronized boolean push(int action) {
+            if (queued == queue.length) {
+                return false;
+            }
+            queue[(queueHead + queued) % queue.length] = (byte) action;
+            queued++;
+            return true;
+        }
+
+        private synchronized int poll() {
+            if (queued == 0) {
+                return -1;
+            }
+            int action = queue[queueHead];
+            queueHead = (queueHead + 1) % queue.length;
+            queued--;
+            return action;
+        }
+
+        public synchronized int getQueued() {
+            return queued;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        // Only safe to read from an Observer, or once the session is idle.
+        public GameSimulation getSimulation() {
+            return simulation;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        public long getActions() {
+            return actions;
+        }
+
+        // Actions offer() turned away because the queue was full.
+        public long getRefused() {
+            return refused.sum();
+        }
+    }
+
+    private final ExecutorService workers;
+    private final int queueCapacity;
+    private final int batch;
+    private final Observer observer;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong actions = new AtomicLong();
+    // Enemy path finding is most of a simulation's scratch memory and is only busy inside apply(), so sessions
+    // borrow their worker's instead of keeping one each.
+    private final ThreadLocal<PathFinder> pathFinders = ThreadLocal.withInitial(
+            () -> new PathFinder(GameConfig.DUNGEON_WIDTH, GameConfig.DUNGEON_HEIGHT));
+    // Simulations of closed sessions, reused by open() so a busy host does not keep regrowing its heap.
+    private final ConcurrentLinkedQueue<GameSimulation> spare = new ConcurrentLinkedQueue<>();
+
+    public SessionHost(int threads, int queueCapacity, int batch, Observer observer) {
+        if (threads < 1 || queueCapacity < 1 || batch < 1) {
+            throw new IllegalArgumentException("threads, queue capacity and batch must be positive");
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "SessionHost-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.queueCapacity = queueCapacity;
+        this.batch = batch;
+        this.observer = observer;
+    }
+
+    // Generates the first floor on the calling thread; the session takes input as soon as this returns. Enemy turns
+    // can run while the floor is populated, so the simulation borrows the calling thread's path finder for it.
+    public Session open(long seed) {
+        GameSimulation simulation = spare.poll();
+        if (simulation == null) {
+            simulation = GameSimulation.headless();
+        }
+        simulation.setPathFinder(pathFinders.get());
+        simulation.beginRun(seed);
+        open.incrementAndGet();
+        return new Session(nextId.incrementAndGet(), simulation, queueCapacity, this);
+    }
+
+    // False when the session's queue is full or the session is closed; the caller retries later or drops the input.
+    public boolean offer(Session session, int action) {
+        if (action < 0 || action >= GameSimulation.ACTION_COUNT) {
+            throw new IllegalArgumentException("Unknown action: " + action);
+        }
+        if (session.closed) {
+            return false;
+        }
+        if (!session.push(action)) {
+            session.refused.increment();
+            return false;
+        }
+        schedule(session);
+        return true;
+    }
+
+    // Queued actions are dropped; the simulation goes back to the pool once no worker holds it.
+    public void close(Session session) {
+        if (!session.closed) {
+            session.closed = true;
+            schedule(session);
+        }
+    }
+
+    public void shutdown(long timeoutMillis) {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void schedule(Session session) {
+        if (session.scheduled.compareAndSet(false, true)) {
+            workers.execute(session.drain);
+        }
+    }
+
+    private void drain(Session session) {
+        if (!session.closed) {
+            GameSimulation simulation = session.simulation;
+            simulation.setPathFinder(pathFinders.get());
+            int applied = 0;
+            int action;
+            while (applied < batch && !session.closed && (action = session.poll()) >= 0) {
+                int result;
+                try {
+                    result = simulation.apply(action);
+                } catch (RuntimeException e) {
+                    System.err.println("Session " + session.id + " failed: " + e);
+                    session.closed = true;
+                    break;
+                }
+                applied++;
+                if (observer != null) {
+                    observer.applied(session, action, result);
+                }
+            }
+            session.actions += applied;
+            actions.addAndGet(applied);
+        }
+        releaseIfClosed(session);
+        unschedule(session);
+    }
+
+    private void releaseIfClosed(Session session) {
+        if (session.closed && !session.released) {
+            session.released = true;
+            open.decrementAndGet();
+            session.simulation.setListener(null);
+            // The worker's path finder stays with the worker; open() lends the next one.
+            session.simulation.setPathFinder(null);
+            spare.offer(session.simulation);
+        }
+    }
+
+    private void unschedule(Session session) {
+        session.scheduled.set(false);
+        // Input or a close() that arrived after the checks above found the flag still set and did not schedule;
+        // pick it up here.
+        if (!session.released && (session.closed || session.getQueued() > 0)) {
+            schedule(session);
+        }
+    }
+
+    public int getOpenSessions() {
+        return open.get();
+    }
+
+    public long getActions() {
+        return actions.get();
+    }
+
+    // Closes every session right after feeding it, while a worker is likely still applying its input, and again
+    // once it may have gone idle. Each close must release the session, whichever side of a drain it lands on.
+    private static boolean closeCheck(int threads, int sessionCount, int rounds) throws InterruptedException {
+        // One action per drain and a yield after each widens the window between a drain's checks and its exit.
+        SessionHost host = new SessionHost(threads, 16, 1, (session, action, result) -> Thread.yield());
+        Session[] sessions = new Session[sessionCount];
+        long opened = 0;
+        // First the narrowest case, played out step by step: close() lands after a drain checked for it but
+        // before the drain let go of the session, so close() cannot schedule and the drain has to.
+        for (int i = 0; i < sessionCount; i++) {
+            Session session = host.open(opened++);
+            session.scheduled.set(true);
+            host.releaseIfClosed(session);
+            host.close(session);
+            host.unschedule(session);
+        }
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < sessionCount; i++) {
+                sessions[i] = host.open(opened++);
+                for (int k = 0; k < 4; k++) {
+                    host.offer(sessions[i], GameSimulation.moveAction(k % 2 == 0 ? 1 : -1, 0));
+                }
+                if (i % 2 == 0) {
+                    host.close(sessions[i]);
+                }
+            }
+            for (int i = 1; i < sessionCount; i += 2) {
+                host.close(sessions[i]);
+            }
+        }
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (host.getOpenSessions() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        host.shutdown(2000);
+        int leaked = host.getOpenSessions();
+        System.out.println(String.format(Locale.ROOT, "Closed %d sessions on %d worker threads: %d not released, "
+                + "%d simulations pooled", opened, threads, leaked, host.spare.size()));
+        return leaked == 0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int sessionCount = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = 16;
+        int batch = 8;
+        int seconds = 10;
+        boolean closeCheck = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--sessions":
+                        sessionCount = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--queue":
+                        queue = Integer.parseInt(args[++i]);
+                        break;
+                    case "--batch":
+                        batch = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seconds":
+                        seconds = Integer.parseInt(args[++i]);
+                        break;
+                    case "--close-check":
+                        closeCheck = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: java SessionHost [--sessions N] [--threads N] [--queue N] [--batch N] "
+                    + "[--seconds N]");
+            System.err.println("       java SessionHost --close-check [--sessions N] [--threads N]");
+            System.exit(2);
+            return;
+        }
+        if (closeCheck) {
+            if (!closeCheck(Math.max(2, threads), Math.min(sessionCount, 200), 20)) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        // The bot's path finding stands in for clients and is not the host's cost, so its inputs are recorded up
+        // front and each session replays one of them.
+        Replay[] scripts = new Replay[16];
+        for (int i = 0; i < scripts.length; i++) {
+            scripts[i] = ReplayVerifier.playRun(GameSimulation.headless(), i + 1, 10);
+        }
+
+        SessionHost host = new SessionHost(threads, queue, batch, null);
+        long heapBefore = usedHeap();
+        long openStart = System.nanoTime();
+        List<Session> sessions = new ArrayList<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            sessions.add(host.open(scripts[i % scripts.length].getSeed()));
+        }
+        double openMillis = (System.nanoTime() - openStart) / 1e6;
+        long bytesPerSession = (usedHeap() - heapBefore) / sessionCount;
+
+        // One client thread feeds every session as fast as backpressure lets it.
+        int[] position = new int[sessionCount];
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long start = System.nanoTime();
+        int finished = 0;
+        while (finished < sessionCount && System.nanoTime() < deadline) {
+            finished = 0;
+            for (int i = 0; i < sessionCount; i++) {
+                Replay script = scripts[i % scripts.length];
+                Session session = sessions.get(i);
+                while (position[i] < script.getActionCount() && host.offer(session, script.getAction(position[i]))) {
+                    position[i]++;
+                }
+                if (position[i] == script.getActionCount()) {
+                    finished++;
+                }
+            }
+            Thread.yield();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        // Sessions keep the floors they left in their floor cache, so they grow as they descend.
+        long playedBytesPerSession = (usedHeap() - heapBefore) / sessionCount;
+        long applied = host.getActions();
+        long refused = 0;
+        for (Session session : sessions) {
+            refused += session.getRefused();
+            host.close(session);
+        }
+        host.shutdown(2000);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double perSecond = applied / elapsed;
+        double perCore = perSecond / Math.min(cores, threads + 1);
+        System.out.println(String.format(Locale.ROOT, "%d sessions on %d worker threads (%d cores), queue %d, "
+                + "batch %d", sessionCount, threads, cores, queue, batch));
+        System.out.println(String.format(Locale.ROOT, "opened in %.0f ms, %.1f KB heap per session, %.1f KB after "
+                + "playing", openMillis, bytesPerSession / 1024.0, playedBytesPerSession / 1024.0));
+        System.out.println(String.format(Locale.ROOT, "%d actions in %.2f s: %.0f actions/s, %.0f per core, "
+                + "%d offers refused, %d of %d scripts finished", applied, elapsed, perSecond, perCore, refused,
+                finished, sessionCount));
+        // A person plays a few actions a second; a tournament bot is held to a fixed rate.
+        for (int rate : new int[] {4, 50}) {
+            System.out.println(String.format(Locale.ROOT, "at %d actions/s per session: %.0f sessions per core, "
+                    + "heap allows %d per GB", rate, perCore / rate, (1L << 30) / Math.max(1, playedBytesPerSession)));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+// The game's sound effects, synthesized once at startup into mono 16-bit PCM so nothing is decoded or loaded
+// while playing. Ids index the array handed to AudioMixer.
+public final class SoundBank {
+    public static final int STEP = 0;
+    public static final int HIT = 1;
+    public static final int ENEMY_DEFEAT = 2;
+    public static final int PLAYER_DEFEAT = 3;
+    public static final int PURCHASE = 4;
+    public static final int COUNT = 5;
+
+    private SoundBank() {
+        throw new AssertionError("No instances");
+    }
+
+    public static short[][] synthesize(int sampleRate) {
+        Rng noise = new Rng(0x5EED_50D5L);
+        short[][] sounds = new short[COUNT][];
+        sounds[STEP] = noiseBurst(sampleRate, 0.045f, 0.35f, noise);
+        sounds[HIT] = sweep(sampleRate, 0.09f, 420f, 140f, 0.6f, 0.35f, noise);
+        sounds[ENEMY_DEFEAT] = sweep(sampleRate, 0.26f, 620f, 150f, 0.55f, 0.1f, noise);
+        sounds[PLAYER_DEFEAT] = sweep(sampleRate, 0.7f, 300f, 55f, 0.7f, 0.15f, noise);
+        sounds[PURCHASE] = chime(sampleRate, 0.32f, 880f, 1320f, 0.45f);
+        return sounds;
+    }
+
+    // Low-passed white noise with a fast exponential decay: a footstep scuff.
+    private static short[] noiseBurst(int sampleRate, float seconds, float gain, Rng noise) {
+        short[] pcm = new short[Math.round(sampleRate * seconds)];
+        float smoothed = 0f;
+        for (int i = 0; i < pcm.length; i++) {
+            float t = i / (float) pcm.length;
+            smoothed += (noise.nextFloat() * 2f - 1f - smoothed) * 0.25f;
+            pcm[i] = toSample(smoothed * gain * (float) Math.exp(-5f * t));
+        }
+        return pcm;
+    }
+
+    // A square wave gliding between two pitches, roughened with some noise.
+    private static short[] sweep(int sampleRate, float seconds, float fromHz, float toHz, float gain,
+                                 float grit, Rng noise) {
+        short[] pcm = new short[Math.round(sampleRate * seconds)];
+        double phase = 0;
+        for (int i = 0; i < pcm.length; i++) {
+            float t = i / (float) pcm.length;
+            phase += (fromHz + (toHz - fromHz) * t) / sampleRate;
+            float square = (phase % 1.0) < 0.5 ? 1f : -1f;
+            float value = square * (1f - grit) + (noise.nextFloat() * 2f - 1f) * grit;
+            pcm[i] = toSample(value * gain * envelope(t, 0.02f));
+        }
+        return pcm;
+    }
+
+    // Two sine notes, the second entering halfway through.
+    private static short[] chime(int sampleRate, float seconds, float firstHz, float secondHz, float gain) {
+        short[] pcm = new short[Math.round(sampleRate * seconds)];
+        int half = pcm.length / 2;
+        for (int i = 0; i < pcm.length; i++) {
+            float t = i / (float) pcm.length;
+            float value = (float) Math.sin(2 * Math.PI * firstHz * i / sampleRate) * envelope(t, 0.01f);
+            if (i >= half) {
+                float t2 = (i - half) / (float) (pcm.length - half);
+                value += (float) Math.sin(2 * Math.PI * secondHz * (i - half) / sampleRate) * envelope(t2, 0.01f);
+            }
+            pcm[i] = toSample(value * gain * 0.6f);
+        }
+        return pcm;
+    }
+
+    // Short linear attack, then a linear release to silence so voices never end on a click.
+    private static float envelope(float t, float attack) {
+        return t < attack ? t / attack : (1f - t) / (1f - attack);
+    }
+
+    private static short toSample(float value) {
+        return (short) Math.round(Math.max(-1f, Math.min(1f, value)) * Short.MAX_VALUE);
+    }
+}
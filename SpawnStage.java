@@ -0,0 +1,118 @@
+import java.awt.Point;
+
+public final class SpawnStage implements GenerationStage {
+    @Override
+    public String getName() {
+        return "spawns";
+    }
+
+    @Override
+    public void run(Dungeon dungeon) {
+        Rng rng = dungeon.spawnRng();
+        Point start = dungeon.getStartPosition();
+        int width = dungeon.getWidth();
+        int height = dungeon.getHeight();
+        int startIndex = isSpawnable(dungeon, start.x, start.y) ? start.y * width + start.x : -1;
+
+        // Spawnable tiles are numbered column by column, the order the picks are defined in, without storing them.
+        int spawnableCount = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (isSpawnable(dungeon, x, y)) {
+                    spawnableCount++;
+                }
+            }
+        }
+        if (startIndex >= 0) {
+            spawnableCount--;
+        }
+        if (spawnableCount == 0) {
+            return;
+        }
+
+        int minCount = Math.min(GameConfig.ENEMIES_MIN, spawnableCount);
+        int maxCount = Math.min(GameConfig.ENEMIES_MAX, spawnableCount);
+        int countRange = Math.max(0, maxCount - minCount);
+        int enemyCount = minCount + (countRange > 0 ? rng.nextInt(countRange + 1) : 0);
+
+        // A Fisher-Yates shuffle of the numbered tiles run from the top settles one pick per step, so it stops after
+        // enemyCount steps; only positions that were swapped into are remembered. The draws the rest of the shuffle
+        // would make are still taken, so the types and elites rolled after it come out the same for every seed.
+        int[] picks = new int[enemyCount];
+        int[] movedFrom = new int[enemyCount];
+        int[] movedValue = new int[enemyCount];
+        int moved = 0;
+        for (int pick = 0; pick < enemyCount; pick++) {
+            int i = spawnableCount - 1 - pick;
+            int valueAtI = valueAt(i, movedFrom, movedValue, moved);
+            if (i == 0) {
+                picks[pick] = valueAtI;
+                continue;
+            }
+            int j = rng.nextInt(i + 1);
+            picks[pick] = valueAt(j, movedFrom, movedValue, moved);
+            movedFrom[moved] = j;
+            movedValue[moved] = valueAtI;
+            moved++;
+        }
+        for (int i = spawnableCount - 1 - enemyCount; i > 0; i--) {
+            rng.nextInt(i + 1);
+        }
+
+        int[] tiles = resolvePicks(dungeon, picks, startIndex);
+        SpawnTable table = dungeon.spawnTable();
+        ActorStore actors = dungeon.actors();
+        for (int pick = 0; pick < enemyCount; pick++) {
+            EnemyType type = table.sample(rng);
+            boolean elite = table.rollElite(rng);
+            actors.spawn(type, elite, tiles[pick] % width, tiles[pick] / width, dungeon.getFloor(), actors.size());
+        }
+    }
+
+    private static boolean isSpawnable(Dungeon dungeon, int x, int y) {
+        return dungeon.getTile(x, y) == Dungeon.TileType.FLOOR;
+    }
+
+    // The latest write wins, since a position can be swapped into more than once.
+    private static int valueAt(int position, int[] movedFrom, int[] movedValue, int moved) {
+        for (int k = moved - 1; k >= 0; k--) {
+            if (movedFrom[k] == position) {
+                return movedValue[k];
+            }
+        }
+        return position;
+    }
+
+    // Turns tile numbers into packed y * width + x indices in one more pass over the floor, visiting the picks in
+    // number order.
+    private static int[] resolvePicks(Dungeon dungeon, int[] picks, int startIndex) {
+        int width = dungeon.getWidth();
+        int height = dungeon.getHeight();
+        int[] order = new int[picks.length];
+        for (int k = 0; k < order.length; k++) {
+            int pick = k;
+            int slot = k;
+            while (slot > 0 && picks[order[slot - 1]] > picks[pick]) {
+                order[slot] = order[slot - 1];
+                slot--;
+            }
+            order[slot] = pick;
+        }
+        int[] tiles = new int[picks.length];
+        int next = 0;
+        int number = 0;
+        for (int x = 0; x < width && next < order.length; x++) {
+            for (int y = 0; y < height && next < order.length; y++) {
+                int index = y * width + x;
+                if (index == startIndex || !isSpawnable(dungeon, x, y)) {
+                    continue;
+                }
+                if (picks[order[next]] == number) {
+                    tiles[order[next++]] = index;
+                }
+                number++;
+            }
+        }
+        return tiles;
+    }
+}
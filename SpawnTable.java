@@ -0,0 +1,99 @@
+public final class SpawnTable {
+    private static final EnemyType[] TYPES = EnemyType.values();
+
+    private final int floor;
+    private final double[] probability;
+    private final int[] alias;
+    private final double eliteChance;
+
+    private SpawnTable(int floor, double[] probability, int[] alias, double eliteChance) {
+        this.floor = floor;
+        this.probability = probability;
+        this.alias = alias;
+        this.eliteChance = eliteChance;
+    }
+
+    public static SpawnTable forFloor(int floor) {
+        int effectiveFloor = Math.max(1, floor);
+        double[] weights = new double[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+            weights[i] = TYPES[i].getWeight(effectiveFloor);
+        }
+        double eliteChance = Math.min(GameConfig.ENEMY_ELITE_CHANCE_MAX,
+                GameConfig.ENEMY_ELITE_CHANCE + GameConfig.ENEMY_ELITE_CHANCE_PER_FLOOR * (effectiveFloor - 1));
+        return build(effectiveFloor, weights, eliteChance);
+    }
+
+    // Vose's alias method: every column holds its own outcome with probability[i] and alias[i] otherwise.
+    static SpawnTable build(int floor, double[] weights, double eliteChance) {
+        int n = weights.length;
+        double total = 0;
+        for (double weight : weights) {
+            total += Math.max(0, weight);
+        }
+        double[] probability = new double[n];
+        int[] alias = new int[n];
+        if (total <= 0) {
+            for (int i = 0; i < n; i++) {
+                alias[i] = EnemyType.GRUNT.ordinal();
+            }
+            return new SpawnTable(floor, probability, alias, eliteChance);
+        }
+
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = Math.max(0, weights[i]) * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        while (largeCount > 0) {
+            int index = large[--largeCount];
+            probability[index] = 1.0;
+            alias[index] = index;
+        }
+        while (smallCount > 0) {
+            // Only reachable through floating point drift; these columns are effectively full.
+            int index = small[--smallCount];
+            probability[index] = 1.0;
+            alias[index] = index;
+        }
+        return new SpawnTable(floor, probability, alias, eliteChance);
+    }
+
+    public int getFloor() {
+        return floor;
+    }
+
+    public double getEliteChance() {
+        return eliteChance;
+    }
+
+    public EnemyType sample(Rng rng) {
+        double roll = rng.nextDouble() * probability.length;
+        int column = (int) roll;
+        return TYPES[roll - column < probability[column] ? column : alias[column]];
+    }
+
+    public boolean rollElite(Rng rng) {
+        return rng.nextDouble() < eliteChance;
+    }
+}
@@ -0,0 +1,525 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+// Streams the run to spectators over localhost TCP. After each action the game thread diffs the simulation against
+// what it last sent, encodes the changes into a preallocated frame and copies that into a single-producer ring; it
+// never touches a socket. An NIO thread fans frames out into each viewer's fixed outbound buffer and writes what the
+// socket will take. A viewer whose buffer cannot hold the next frame is disconnected rather than slowing anyone
+// down. Viewers start from a keyframe, which the game sends on every floor change and when a viewer joins.
+//
+// Frame layout, little-endian: length of the rest of the frame (int), type (byte), sequence (int), then
+//   KEYFRAME: run seed (long), floor (int), width, height (shorts), tile ordinals row by row (bytes), sanctuary
+//             spent (byte), player, actor count (short), actors as in ACTOR_ADDED without the kind byte
+//   DELTA: record count (short), then records of a kind byte and its fields:
+//     PLAYER          x, y (shorts), hp, max hp, shards (ints)
+//     ACTOR_ADDED     handle (int), type, elite (bytes), x, y (shorts), hp, max hp (ints)
+//     ACTOR_MOVED     handle (int), x, y (shorts)
+//     ACTOR_HEALTH    handle (int), hp (int)
+//     ACTOR_REMOVED   handle (int)
+//     TILE            tile index y * width + x (int), tile ordinal (byte), flags (byte)
+// Sequence numbers are consecutive; after a keyframe every frame follows on from the one before.
+public final class SpectatorServer {
+    public static final byte KEYFRAME = 1;
+    public static final byte DELTA = 2;
+
+    public static final byte PLAYER = 1;
+    public static final byte ACTOR_ADDED = 2;
+    public static final byte ACTOR_MOVED = 3;
+    public static final byte ACTOR_HEALTH = 4;
+    public static final byte ACTOR_REMOVED = 5;
+    public static final byte TILE = 6;
+
+    // TILE flags. Within a floor only the sanctuary changes, when it is used up.
+    public static final int TILE_SPENT = 1;
+
+    public static final int HEADER_BYTES = 9;
+    static final int PLAYER_BYTES = 16;
+    static final int ACTOR_BYTES = 18;
+
+    private static final long POLL_MILLIS = 5;
+
+    private final int requestedPort;
+    private final int capacity;
+    private final int viewerBufferBytes;
+    private final int maxViewers;
+    private final ByteBuffer ring;
+    private final ByteBuffer drainView;
+    private final ByteBuffer readScratch = ByteBuffer.allocateDirect(256);
+
+    // Single producer, single consumer: the game thread advances tail, the server thread advances head.
+    private volatile long head;
+    private volatile long tail;
+    private volatile boolean running;
+    private volatile boolean keyframeRequested;
+    private volatile int viewerCount;
+    private volatile long droppedFrames;
+    private volatile long droppedViewers;
+    private volatile long sentBytes;
+    private Thread thread;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private int boundPort = -1;
+    private final List<Viewer> viewers = new ArrayList<>();
+
+    // Game thread only: the frame being built and the state the viewers were last sent.
+    private ByteBuffer frame = ByteBuffer.allocateDirect(4096).order(ByteOrder.LITTLE_ENDIAN);
+    private boolean keyframePending = true;
+    private int sequence;
+    private int playerX;
+    private int playerY;
+    private int playerHp;
+    private int playerMaxHp;
+    private int shards;
+    private boolean sanctuarySpent;
+    private boolean[] actorAlive = new boolean[GameConfig.ENEMIES_MAX];
+    private int[] actorX = new int[GameConfig.ENEMIES_MAX];
+    private int[] actorY = new int[GameConfig.ENEMIES_MAX];
+    private int[] actorHp = new int[GameConfig.ENEMIES_MAX];
+    private int[] actorSeen = new int[GameConfig.ENEMIES_MAX];
+    private int epoch;
+
+    private static final class Viewer {
+        final SocketChannel channel;
+        final ByteBuffer out;
+        boolean awaitingKeyframe = true;
+        boolean dropped;
+
+        Viewer(SocketChannel channel, int bufferBytes) {
+            this.channel = channel;
+            this.out = ByteBuffer.allocateDirect(bufferBytes);
+        }
+    }
+
+    // Port 0 picks a free port; see getPort().
+    public SpectatorServer(int port, int ringBytes, int viewerBufferBytes, int maxViewers) {
+        if (Integer.bitCount(ringBytes) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + ringBytes);
+        }
+        this.requestedPort = port;
+        this.capacity = ringBytes;
+        this.viewerBufferBytes = viewerBufferBytes;
+        this.maxViewers = maxViewers;
+        this.ring = ByteBuffer.allocateDirect(ringBytes);
+        this.drainView = ring.duplicate();
+    }
+
+    // Listens on the loopback interface only. Returns false, and the game carries on without spectators, when the
+    // port cannot be bound.
+    public synchronized boolean start() {
+        if (running) {
+            return true;
+        }
+        try {
+            selector = Selector.open();
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), requestedPort));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            boundPort = ((InetSocketAddress) server.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            System.err.println("Spectator server unavailable: " + e.getMessage());
+            closeQuietly();
+            return false;
+        }
+        running = true;
+        thread = new Thread(this::serve, "SpectatorServer");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public void close() {
+        Thread serving;
+        synchronized (this) {
+            running = false;
+            serving = thread;
+            thread = null;
+        }
+        if (serving != null && serving != Thread.currentThread()) {
+            selector.wakeup();
+            try {
+                serving.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Game thread: the next publish() starts viewers over from a keyframe.
+    public void floorEntered() {
+        keyframePending = true;
+    }
+
+    // True when a viewer joined and waits for a keyframe; the game then calls publish() even without an action.
+    public boolean isKeyframeRequested() {
+        return keyframeRequested;
+    }
+
+    // Game thread, after every change to the simulation. With nobody watching this is a couple of field reads.
+    public void publish(GameSimulation simulation) {
+        if (!running) {
+            return;
+        }
+        if (viewerCount == 0) {
+            keyframePending = true;
+            return;
+        }
+        if (keyframePending || keyframeRequested) {
+            keyframeRequested = false;
+            encodeKeyframe(simulation);
+        } else if (!encodeDelta(simulation)) {
+            return;
+        }
+        enqueue();
+    }
+
+    private void encodeKeyframe(GameSimulation simulation) {
+        Dungeon dungeon = simulation.getDungeon();
+        ActorStore enemies = simulation.getEnemies();
+        int width = dungeon.getWidth();
+        int height = dungeon.getHeight();
+        ensureFrameCapacity(HEADER_BYTES + 16 + width * height + 1 + PLAYER_BYTES + 2 + enemies.size() * ACTOR_BYTES);
+        beginFrame(KEYFRAME);
+        frame.putLong(simulation.getRunSeed()).putInt(simulation.getFloor());
+        frame.putShort((short) width).putShort((short) height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                frame.put((byte) dungeon.getTile(x, y).ordinal());
+            }
+        }
+        sanctuarySpent = simulation.isSanctuaryUsed();
+        frame.put((byte) (sanctuarySpent ? 1 : 0));
+        putPlayer(simulation);
+        frame.putShort((short) enemies.size());
+        Arrays.fill(actorAlive, false);
+        for (int slot = 0; slot < enemies.size(); slot++) {
+            putActor(enemies, slot);
+        }
+        endFrame();
+        keyframePending = false;
+    }
+
+    private boolean encodeDelta(GameSimulation simulation) {
+        ActorStore enemies = simulation.getEnemies();
+        ensureFrameCapacity(HEADER_BYTES + 2 + 1 + PLAYER_BYTES + enemies.size() * (1 + ACTOR_BYTES)
+                + actorAlive.length * 5 + 7);
+        beginFrame(DELTA);
+        int countAt = frame.position();
+        frame.putShort((short) 0);
+        int records = 0;
+
+        if (simulation.getPlayerX() != playerX || simulation.getPlayerY() != playerY
+                || simulation.getPlayerHp() != playerHp || simulation.getPlayerMaxHp() != playerMaxHp
+                || simulation.getShards() != shards) {
+            frame.put(PLAYER);
+            putPlayer(simulation);
+            records++;
+        }
+
+        epoch++;
+        for (int slot = 0; slot < enemies.size(); slot++) {
+            int handle = enemies.handleAt(slot);
+            if (handle >= actorAlive.length || !actorAlive[handle]) {
+                frame.put(ACTOR_ADDED);
+                putActor(enemies, slot);
+                records++;
+            } else {
+                int x = enemies.getX(slot);
+                int y = enemies.getY(slot);
+                if (x != actorX[handle] || y != actorY[handle]) {
+                    frame.put(ACTOR_MOVED).putInt(handle).putShort((short) x).putShort((short) y);
+                    actorX[handle] = x;
+                    actorY[handle] = y;
+                    records++;
+                }
+                int hp = enemies.getHealth(slot);
+                if (hp != actorHp[handle]) {
+                    frame.put(ACTOR_HEALTH).putInt(handle).putInt(hp);
+                    actorHp[handle] = hp;
+                    records++;
+                }
+            }
+            actorSeen[handle] = epoch;
+        }
+        for (int handle = 0; handle < actorAlive.length; handle++) {
+            if (actorAlive[handle] && actorSeen[handle] != epoch) {
+                frame.put(ACTOR_REMOVED).putInt(handle);
+                actorAlive[handle] = false;
+                records++;
+            }
+        }
+
+        if (simulation.isSanctuaryUsed() != sanctuarySpent && simulation.getSanctuaryX() >= 0) {
+            sanctuarySpent = simulation.isSanctuaryUsed();
+            int index = simulation.getSanctuaryY() * simulation.getDungeon().getWidth() + simulation.getSanctuaryX();
+            frame.put(TILE).putInt(index).put((byte) Dungeon.TileType.SANCTUARY.ordinal())
+                    .put((byte) (sanctuarySpent ? TILE_SPENT : 0));
+            records++;
+        }
+
+        if (records == 0) {
+            sequence--;
+            return false;
+        }
+        frame.putShort(countAt, (short) records);
+        endFrame();
+        return true;
+    }
+
+    private void putPlayer(GameSimulation simulation) {
+        playerX = simulation.getPlayerX();
+        playerY = simulation.getPlayerY();
+        playerHp = simulation.getPlayerHp();
+        playerMaxHp = simulation.getPlayerMaxHp();
+        shards = simulation.getShards();
+        frame.putShort((short) playerX).putShort((short) playerY).putInt(playerHp).putInt(playerMaxHp).putInt(shards);
+    }
+
+    private void putActor(ActorStore enemies, int slot) {
+        int handle = enemies.handleAt(slot);
+        if (handle >= actorAlive.length) {
+            int length = Math.max(handle + 1, actorAlive.length * 2);
+            actorAlive = Arrays.copyOf(actorAlive, length);
+            actorX = Arrays.copyOf(actorX, length);
+            actorY = Arrays.copyOf(actorY, length);
+            actorHp = Arrays.copyOf(actorHp, length);
+            actorSeen = Arrays.copyOf(actorSeen, length);
+        }
+        actorAlive[handle] = true;
+        actorX[handle] = enemies.getX(slot);
+        actorY[handle] = enemies.getY(slot);
+        actorHp[handle] = enemies.getHealth(slot);
+        frame.putInt(handle).put((byte) enemies.getType(slot).ordinal()).put((byte) (enemies.isElite(slot) ? 1 : 0))
+                .putShort((short) actorX[handle]).putShort((short) actorY[handle]).putInt(actorHp[handle])
+                .putInt(enemies.getMaxHealth(slot));
+    }
+
+    private void ensureFrameCapacity(int bytes) {
+        if (frame.capacity() < bytes) {
+            frame = ByteBuffer.allocateDirect(Math.max(bytes, frame.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private void beginFrame(byte type) {
+        frame.clear();
+        frame.putInt(0).put(type).putInt(sequence++);
+    }
+
+    private void endFrame() {
+        frame.putInt(0, frame.position() - 4);
+    }
+
+    // A frame that does not fit is dropped, and so is every delta after it until a keyframe fits, so viewers never
+    // apply a delta to a state they did not get.
+    private void enqueue() {
+        frame.flip();
+        int length = frame.remaining();
+        long t = tail;
+        if (t - head + length > capacity) {
+            droppedFrames++;
+            keyframePending = true;
+            sequence--;
+            return;
+        }
+        int offset = (int) (t & (capacity - 1));
+        int first = Math.min(length, capacity - offset);
+        ring.clear().position(offset);
+        frame.limit(first);
+        ring.put(frame);
+        if (first < length) {
+            frame.limit(length);
+            ring.clear();
+            ring.put(frame);
+        }
+        tail = t + length;
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                selector.select(POLL_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        discardInput((Viewer) key.attachment());
+                    }
+                }
+                drain();
+                flush();
+                removeDropped();
+            }
+        } catch (IOException e) {
+            System.err.println("Spectator server stopped: " + e.getMessage());
+        } finally {
+            for (Viewer viewer : viewers) {
+                closeQuietly(viewer.channel);
+            }
+            viewers.clear();
+            viewerCount = 0;
+            closeQuietly();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            if (viewers.size() >= maxViewers) {
+                closeQuietly(channel);
+                continue;
+            }
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Viewer viewer = new Viewer(channel, viewerBufferBytes);
+            channel.register(selector, SelectionKey.OP_READ, viewer);
+            viewers.add(viewer);
+            viewerCount = viewers.size();
+            keyframeRequested = true;
+        }
+    }
+
+    // Viewers have nothing to say; reading only notices when they hang up.
+    private void discardInput(Viewer viewer) {
+        try {
+            readScratch.clear();
+            if (viewer.channel.read(readScratch) < 0) {
+                viewer.dropped = true;
+            }
+        } catch (IOException e) {
+            viewer.dropped = true;
+        }
+    }
+
+    private void drain() {
+        long h = head;
+        long t = tail;
+        while (h < t) {
+            int total = 4 + ringInt(h);
+            byte type = ring.get((int) ((h + 4) & (capacity - 1)));
+            for (Viewer viewer : viewers) {
+                deliver(viewer, h, total, type);
+            }
+            h += total;
+        }
+        head = h;
+    }
+
+    private void deliver(Viewer viewer, long position, int total, byte type) {
+        if (viewer.dropped) {
+            return;
+        }
+        if (viewer.awaitingKeyframe) {
+            if (type != KEYFRAME) {
+                return;
+            }
+            viewer.awaitingKeyframe = false;
+        }
+        if (viewer.out.remaining() < total) {
+            viewer.dropped = true;
+            droppedViewers++;
+            return;
+        }
+        int offset = (int) (position & (capacity - 1));
+        int first = Math.min(total, capacity - offset);
+        drainView.limit(offset + first).position(offset);
+        viewer.out.put(drainView);
+        if (first < total) {
+            drainView.limit(total - first).position(0);
+            viewer.out.put(drainView);
+        }
+    }
+
+    private int ringInt(long position) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value |= (ring.get((int) ((position + i) & (capacity - 1))) & 0xFF) << (i * 8);
+        }
+        return value;
+    }
+
+    private void flush() {
+        for (Viewer viewer : viewers) {
+            if (viewer.dropped || viewer.out.position() == 0) {
+                continue;
+            }
+            viewer.out.flip();
+            try {
+                sentBytes += viewer.channel.write(viewer.out);
+            } catch (IOException e) {
+                viewer.dropped = true;
+            }
+            viewer.out.compact();
+        }
+    }
+
+    private void removeDropped() {
+        for (int i = viewers.size() - 1; i >= 0; i--) {
+            Viewer viewer = viewers.get(i);
+            if (viewer.dropped) {
+                closeQuietly(viewer.channel);
+                viewers.remove(i);
+            }
+        }
+        viewerCount = viewers.size();
+    }
+
+    private void closeQuietly() {
+        closeQuietly(server);
+        if (selector != null) {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Spectator selector close failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void closeQuietly(java.nio.channels.Channel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already gone; nothing left to release.
+        }
+    }
+
+    public int getPort() {
+        return boundPort;
+    }
+
+    public int getViewerCount() {
+        return viewerCount;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public long getDroppedViewers() {
+        return droppedViewers;
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+}
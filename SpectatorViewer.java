@@ -0,0 +1,333 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+// Headless spectator: connects to a running game's SpectatorServer, rebuilds the run from its keyframes and deltas
+// and prints what happens.
+//
+//   java SpectatorViewer [--host localhost] [--port 7777] [--seconds 0] [--quiet]
+//
+// --seconds 0 watches until the game goes away; --quiet prints keyframes and the totals only.
+public final class SpectatorViewer {
+    private static final Dungeon.TileType[] TILES = Dungeon.TileType.values();
+    private static final EnemyType[] TYPES = EnemyType.values();
+
+    private long runSeed;
+    private int floor;
+    private int width;
+    private int height;
+    private byte[] tiles = new byte[0];
+    private boolean sanctuarySpent;
+    private int playerX;
+    private int playerY;
+    private int playerHp;
+    private int playerMaxHp;
+    private int shards;
+    private boolean[] alive = new boolean[GameConfig.ENEMIES_MAX];
+    private byte[] types = new byte[GameConfig.ENEMIES_MAX];
+    private boolean[] elite = new boolean[GameConfig.ENEMIES_MAX];
+    private int[] actorX = new int[GameConfig.ENEMIES_MAX];
+    private int[] actorY = new int[GameConfig.ENEMIES_MAX];
+    private int[] actorHp = new int[GameConfig.ENEMIES_MAX];
+    private int[] actorMaxHp = new int[GameConfig.ENEMIES_MAX];
+    private int actorCount;
+
+    private boolean synced;
+    private int lastSequence;
+    private long keyframes;
+    private long deltas;
+    private long gaps;
+    // What the last delta held, for printing.
+    private int moved;
+    private int hurt;
+    private int removed;
+
+    // Applies one whole frame, length prefix included, read from the buffer's position. Returns the frame type.
+    public byte apply(ByteBuffer frame) {
+        ByteBuffer in = frame.order(ByteOrder.LITTLE_ENDIAN);
+        in.getInt();
+        byte type = in.get();
+        int sequence = in.getInt();
+        if (type == SpectatorServer.KEYFRAME) {
+            readKeyframe(in);
+            keyframes++;
+            synced = true;
+        } else if (type == SpectatorServer.DELTA) {
+            if (!synced) {
+                throw new IllegalStateException("Delta before the first keyframe");
+            }
+            if (sequence != lastSequence + 1) {
+                gaps++;
+            }
+            readDelta(in);
+            deltas++;
+        } else {
+            throw new IllegalStateException("Unknown frame type " + type);
+        }
+        lastSequence = sequence;
+        return type;
+    }
+
+    private void readKeyframe(ByteBuffer in) {
+        runSeed = in.getLong();
+        floor = in.getInt();
+        width = in.getShort();
+        height = in.getShort();
+        if (tiles.length != width * height) {
+            tiles = new byte[width * height];
+        }
+        in.get(tiles);
+        sanctuarySpent = in.get() != 0;
+        readPlayer(in);
+        Arrays.fill(alive, false);
+        actorCount = 0;
+        int count = in.getShort();
+        for (int i = 0; i < count; i++) {
+            readActor(in);
+        }
+    }
+
+    private void readDelta(ByteBuffer in) {
+        moved = 0;
+        hurt = 0;
+        removed = 0;
+        int records = in.getShort();
+        for (int i = 0; i < records; i++) {
+            byte kind = in.get();
+            switch (kind) {
+                case SpectatorServer.PLAYER:
+                    readPlayer(in);
+                    break;
+                case SpectatorServer.ACTOR_ADDED:
+                    readActor(in);
+                    break;
+                case SpectatorServer.ACTOR_MOVED: {
+                    int handle = in.getInt();
+                    actorX[handle] = in.getShort();
+                    actorY[handle] = in.getShort();
+                    moved++;
+                    break;
+                }
+                case SpectatorServer.ACTOR_HEALTH: {
+                    int handle = in.getInt();
+                    actorHp[handle] = in.getInt();
+                    hurt++;
+                    break;
+                }
+                case SpectatorServer.ACTOR_REMOVED:
+                    alive[in.getInt()] = false;
+                    actorCount--;
+                    removed++;
+                    break;
+                case SpectatorServer.TILE: {
+                    int index = in.getInt();
+                    tiles[index] = in.get();
+                    sanctuarySpent = (in.get() & SpectatorServer.TILE_SPENT) != 0;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown delta record " + kind);
+            }
+        }
+    }
+
+    private void readPlayer(ByteBuffer in) {
+        playerX = in.getShort();
+        playerY = in.getShort();
+        playerHp = in.getInt();
+        playerMaxHp = in.getInt();
+        shards = in.getInt();
+    }
+
+    private void readActor(ByteBuffer in) {
+        int handle = in.getInt();
+        if (handle >= alive.length) {
+            int length = Math.max(handle + 1, alive.length * 2);
+            alive = Arrays.copyOf(alive, length);
+            types = Arrays.copyOf(types, length);
+            elite = Arrays.copyOf(elite, length);
+            actorX = Arrays.copyOf(actorX, length);
+            actorY = Arrays.copyOf(actorY, length);
+            actorHp = Arrays.copyOf(actorHp, length);
+            actorMaxHp = Arrays.copyOf(actorMaxHp, length);
+        }
+        alive[handle] = true;
+        types[handle] = in.get();
+        elite[handle] = in.get() != 0;
+        actorX[handle] = in.getShort();
+        actorY[handle] = in.getShort();
+        actorHp[handle] = in.getInt();
+        actorMaxHp[handle] = in.getInt();
+        actorCount++;
+    }
+
+    public long getRunSeed() {
+        return runSeed;
+    }
+
+    public int getFloor() {
+        return floor;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Dungeon.TileType getTile(int x, int y) {
+        return TILES[tiles[y * width + x]];
+    }
+
+    public boolean isSanctuarySpent() {
+        return sanctuarySpent;
+    }
+
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    public int getPlayerHp() {
+        return playerHp;
+    }
+
+    public int getPlayerMaxHp() {
+        return playerMaxHp;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public int getActorCount() {
+        return actorCount;
+    }
+
+    public boolean isAlive(int handle) {
+        return handle < alive.length && alive[handle];
+    }
+
+    public EnemyType getType(int handle) {
+        return TYPES[types[handle]];
+    }
+
+    public boolean isElite(int handle) {
+        return elite[handle];
+    }
+
+    public int getX(int handle) {
+        return actorX[handle];
+    }
+
+    public int getY(int handle) {
+        return actorY[handle];
+    }
+
+    public int getHealth(int handle) {
+        return actorHp[handle];
+    }
+
+    public int getMaxHealth(int handle) {
+        return actorMaxHp[handle];
+    }
+
+    public long getKeyframes() {
+        return keyframes;
+    }
+
+    public long getDeltas() {
+        return deltas;
+    }
+
+    public long getGaps() {
+        return gaps;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = "localhost";
+        int port = GameConfig.SPECTATOR_PORT;
+        long seconds = 0;
+        boolean quiet = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Long.parseLong(args[++i]);
+                    break;
+                case "--quiet":
+                    quiet = true;
+                    break;
+                default:
+                    System.err.println("Usage: java SpectatorViewer [--host name] [--port n] [--seconds n] [--quiet]");
+                    System.exit(2);
+                    return;
+            }
+        }
+
+        SpectatorViewer viewer = new SpectatorViewer();
+        long deadline = seconds > 0 ? System.nanoTime() + seconds * 1_000_000_000L : Long.MAX_VALUE;
+        long received = 0;
+        ByteBuffer in = ByteBuffer.allocate(64 << 10).order(ByteOrder.LITTLE_ENDIAN);
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+                Selector selector = Selector.open()) {
+            // Non-blocking so --seconds ends the watch even while the game is idle.
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+            System.out.println("Watching " + host + ":" + port);
+            while (System.nanoTime() < deadline) {
+                selector.select(250);
+                selector.selectedKeys().clear();
+                int read = channel.read(in);
+                if (read < 0) {
+                    System.out.println("Game closed the stream");
+                    break;
+                }
+                received += read;
+                in.flip();
+                while (in.remaining() >= 4) {
+                    int total = 4 + in.getInt(in.position());
+                    if (in.remaining() < total) {
+                        if (total > in.capacity()) {
+                            in = ByteBuffer.allocate(total).order(ByteOrder.LITTLE_ENDIAN).put(in).flip();
+                        }
+                        break;
+                    }
+                    int end = in.position() + total;
+                    byte type = viewer.apply(in);
+                    in.position(end);
+                    viewer.print(type, quiet);
+                }
+                in.compact();
+            }
+        }
+        System.out.printf("%d keyframes, %d deltas, %d sequence gaps, %d bytes%n", viewer.keyframes, viewer.deltas,
+                viewer.gaps, received);
+    }
+
+    private void print(byte type, boolean quiet) {
+        if (type == SpectatorServer.KEYFRAME) {
+            System.out.printf("#%d keyframe: seed %d floor %d (%dx%d), %d enemies, player %d,%d hp %d/%d, %d shards%n",
+                    lastSequence, runSeed, floor, width, height, actorCount, playerX, playerY, playerHp, playerMaxHp,
+                    shards);
+        } else if (!quiet) {
+            System.out.printf("#%d player %d,%d hp %d/%d, %d shards | %d moved, %d hit, %d gone, %d left%n",
+                    lastSequence, playerX, playerY, playerHp, playerMaxHp, shards, moved, hurt, removed, actorCount);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+// Time to first frame and time to interactive (first frame with a playable floor), measured from JVM start, each
+// in a fresh JVM since only a cold start shows the real cost. Without a display the game is painted into an
+// offscreen image at the frame rate instead of a window.
+//
+// --archive FILE records a class-data-sharing archive on the first use and measures with it after that, which is
+// how the game should be launched: java -XX:SharedArchiveFile=FILE Game.
+public final class StartupBenchmark {
+    private static final long SEED = 123456789L;
+    private static final long TIMEOUT_MILLIS = 30_000L;
+    private static final String RESULT_PREFIX = "startup-ms ";
+
+    private StartupBenchmark() {
+        throw new AssertionError("No instances");
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        String archive = null;
+        double maxInteractive = Double.NaN;
+        boolean once = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--runs":
+                        runs = Integer.parseInt(args[++i]);
+                        break;
+                    case "--archive":
+                        archive = args[++i];
+                        break;
+                    case "--max-interactive":
+                        maxInteractive = Double.parseDouble(args[++i]);
+                        break;
+                    case "--once":
+                        once = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (runs < 1) {
+                throw new IllegalArgumentException("--runs must be positive");
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: java StartupBenchmark [--runs N] [--archive FILE] [--max-interactive MS]"
+                    + " [--once]");
+            System.exit(2);
+            return;
+        }
+
+        if (once) {
+            double[] result = measureThisJvm();
+            System.out.println(String.format(Locale.ROOT, RESULT_PREFIX + "%.1f %.1f", result[0], result[1]));
+            System.exit(0);
+            return;
+        }
+
+        List<String> jvmOptions = new ArrayList<>();
+        if (archive != null) {
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                if (Files.isDirectory(Paths.get(entry))) {
+                    System.err.println("Class-data-sharing archives need the classes in a jar, not " + entry
+                            + "; build one with: jar cf roguelike.jar *.class");
+                    System.exit(2);
+                    return;
+                }
+            }
+            Path archivePath = Paths.get(archive).toAbsolutePath();
+            if (!Files.exists(archivePath)) {
+                System.out.println("Recording class-data-sharing archive " + archivePath);
+                runChild(List.of("-XX:ArchiveClassesAtExit=" + archivePath));
+            }
+            jvmOptions.add("-XX:SharedArchiveFile=" + archivePath);
+        }
+
+        double[] firstFrame = new double[runs];
+        double[] interactive = new double[runs];
+        for (int run = 0; run < runs; run++) {
+            double[] result = runChild(jvmOptions);
+            firstFrame[run] = result[0];
+            interactive[run] = result[1];
+            System.out.println(String.format(Locale.ROOT, "  run %d: first frame %7.1f ms   interactive %7.1f ms",
+                    run + 1, result[0], result[1]));
+        }
+        double medianInteractive = median(interactive);
+        System.out.println(String.format(Locale.ROOT, "Median over %d cold starts%s: first frame %.1f ms,"
+                        + " interactive %.1f ms", runs, archive != null ? " with CDS" : "", median(firstFrame),
+                medianInteractive));
+        if (!Double.isNaN(maxInteractive) && medianInteractive > maxInteractive) {
+            System.out.println(String.format(Locale.ROOT, "FAIL: interactive %.1f ms is over the %.1f ms budget",
+                    medianInteractive, maxInteractive));
+            System.exit(1);
+        }
+    }
+
+    // Starts the game the way Game.main does and waits for both milestones; returns them in ms since JVM start.
+    private static double[] measureThisJvm() throws InterruptedException, InvocationTargetException {
+        AtomicReference<Game> started = new AtomicReference<>();
+        boolean headless = GraphicsEnvironment.isHeadless();
+        SwingUtilities.invokeAndWait(() -> {
+            Game game = headless ? new Game(SEED) : Game.openWindow(SEED);
+            if (headless) {
+                game.setSize(game.getPreferredSize());
+                BufferedImage screen = new BufferedImage(game.getWidth(), game.getHeight(),
+                        BufferedImage.TYPE_INT_RGB);
+                Timer repaint = new Timer(1000 / 60, e -> {
+                    Graphics2D g2 = screen.createGraphics();
+                    game.paint(g2);
+                    g2.dispose();
+                });
+                repaint.setInitialDelay(0);
+                repaint.start();
+            }
+            started.set(game);
+        });
+        Game game = started.get();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (game.getInteractiveNanos() == 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Game did not become interactive within " + TIMEOUT_MILLIS + " ms");
+            }
+            Thread.sleep(1);
+        }
+        // Read after the game is up so loading the management classes is not counted. nanoTime has no fixed
+        // origin, so it is anchored to the wall clock once.
+        long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+        double nanoOriginMillis = System.currentTimeMillis() - System.nanoTime() / 1e6;
+        return new double[] {
+                game.getFirstFrameNanos() / 1e6 + nanoOriginMillis - jvmStartMillis,
+                game.getInteractiveNanos() / 1e6 + nanoOriginMillis - jvmStartMillis
+        };
+    }
+
+    private static double[] runChild(List<String> jvmOptions) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        // Timed starts should not open a listening socket, whatever the launcher's environment adds.
+        command.add("-Droguelike.spectators=false");
+        if (GraphicsEnvironment.isHeadless()) {
+            command.add("-Djava.awt.headless=true");
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StartupBenchmark.class.getName());
+        command.add("--once");
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .directory(new File(System.getProperty("user.dir")))
+                .start();
+        double[] result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    String[] parts = line.substring(RESULT_PREFIX.length()).trim().split(" ");
+                    result = new double[] {Double.parseDouble(parts[0]), Double.parseDouble(parts[1])};
+                } else {
+                    System.out.println("  | " + line);
+                }
+            }
+        }
+        int exit = process.waitFor();
+        if (result == null || exit != 0) {
+            throw new IllegalStateException("Startup run failed with exit code " + exit);
+        }
+        return result;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
@@ -0,0 +1,51 @@
+public interface StatCurve {
+    // Multiplier applied to a base stat, floorOffset floors past the first. Must return 1 at offset 0.
+    double multiplier(int floorOffset);
+
+    static StatCurve exponential(double growthPerFloor) {
+        return floorOffset -> Math.pow(growthPerFloor, floorOffset);
+    }
+
+    static StatCurve linear(double increasePerFloor) {
+        return floorOffset -> 1.0 + increasePerFloor * floorOffset;
+    }
+
+    // Exponential growth whose rate changes at each breakpoint: growthRates[i] applies from breakpoints[i] onwards.
+    static StatCurve piecewise(int[] breakpoints, double[] growthRates) {
+        if (breakpoints.length != growthRates.length || breakpoints.length == 0 || breakpoints[0] != 0) {
+            throw new IllegalArgumentException("Piecewise curve needs matching segments starting at floor offset 0");
+        }
+        for (int i = 1; i < breakpoints.length; i++) {
+            if (breakpoints[i] <= breakpoints[i - 1]) {
+                throw new IllegalArgumentException("Breakpoints must be strictly increasing");
+            }
+        }
+        int[] starts = breakpoints.clone();
+        double[] rates = growthRates.clone();
+        return floorOffset -> {
+            double result = 1.0;
+            for (int i = 0; i < starts.length && floorOffset > starts[i]; i++) {
+                int end = i + 1 < starts.length ? Math.min(floorOffset, starts[i + 1]) : floorOffset;
+                result *= Math.pow(rates[i], end - starts[i]);
+            }
+            return result;
+        };
+    }
+
+    // Approaches cap asymptotically while matching the wrapped curve near the first floor.
+    static StatCurve softCapped(StatCurve curve, double cap) {
+        if (cap <= 1.0) {
+            throw new IllegalArgumentException("cap must be greater than 1: " + cap);
+        }
+        return floorOffset -> {
+            double raw = curve.multiplier(floorOffset);
+            if (raw <= 1.0) {
+                return raw;
+            }
+            if (Double.isInfinite(raw)) {
+                return cap;
+            }
+            return cap * raw / (cap + raw - 1.0);
+        };
+    }
+}
@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+// Gameplay events as fixed 32-byte records. The game thread writes each record straight into a preallocated
+// ring and returns; a background thread drains whole runs of records to append-only files through a
+// FileChannel, starting a new file once the current one is full. When the writer falls behind, new events are
+// dropped and counted rather than making the game wait.
+//
+// File layout: a 16-byte header ("RGTL", version, record size, reserved), then records of
+// timestamp millis (long), type (short), reserved (short), floor (int), a (long), b (long), little-endian.
+public final class Telemetry {
+    public static final int RECORD_BYTES = 32;
+    public static final int FILE_MAGIC = 0x4C544752; // "RGTL" read little-endian
+    public static final int FILE_VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+
+    // Event types and what their two values carry.
+    public static final short RUN_STARTED = 1;     // a: run seed
+    public static final short FLOOR_REACHED = 2;   // a: floor seed, b: shards held
+    public static final short PLAYER_DIED = 3;     // a: shards lost, b: relics owned
+    public static final short RELIC_BOUGHT = 4;    // a: relic index, b: cost
+    public static final short SHARDS_SPENT = 5;    // a: amount, b: shards left
+    public static final short FIGHT = 6;           // a: duration nanos, b: rounds << 16 | enemy type << 1 | won
+
+    private static final long IDLE_PARK_NANOS = 20_000_000L;
+
+    private final ByteBuffer ring;
+    private final ByteBuffer drainView;
+    private final int capacity;
+    private final Path directory;
+    private final long maxFileBytes;
+
+    // Single producer, single consumer: the game thread advances tail, the writer advances head.
+    private volatile long head;
+    private volatile long tail;
+    private volatile long dropped;
+    private volatile long written;
+    private volatile boolean running;
+    private volatile boolean failed;
+    private Thread writer;
+
+    private FileChannel channel;
+    private long fileBytes;
+    private int fileIndex;
+    private final long sessionMillis = System.currentTimeMillis();
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    public Telemetry(Path directory, int capacityEvents, long maxFileBytes) {
+        if (Integer.bitCount(capacityEvents) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacityEvents);
+        }
+        this.directory = directory;
+        this.capacity = capacityEvents;
+        this.maxFileBytes = Math.max(HEADER_BYTES + RECORD_BYTES, maxFileBytes);
+        this.ring = ByteBuffer.allocateDirect(capacityEvents * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        this.drainView = ring.duplicate();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drainLoop, "TelemetryWriter");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "TelemetryFlush"));
+    }
+
+    // Called from the game thread only. Returns false when the event was dropped.
+    public boolean record(short type, int floor, long a, long b) {
+        long t = tail;
+        if (failed || t - head >= capacity) {
+            dropped++;
+            return false;
+        }
+        int offset = (int) (t & (capacity - 1)) * RECORD_BYTES;
+        ring.putLong(offset, System.currentTimeMillis());
+        ring.putShort(offset + 8, type);
+        ring.putShort(offset + 10, (short) 0);
+        ring.putInt(offset + 12, floor);
+        ring.putLong(offset + 16, a);
+        ring.putLong(offset + 24, b);
+        tail = t + 1;
+        return true;
+    }
+
+    // Stops the writer after it has drained what is already queued.
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = writer;
+            writer = null;
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void drainLoop() {
+        try {
+            while (true) {
+                boolean stopping = !running;
+                long available = tail - head;
+                if (available == 0) {
+                    if (stopping) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                // One write per contiguous run; a run that wraps is finished on the next pass.
+                long h = head;
+                int first = (int) (h & (capacity - 1));
+                int count = (int) Math.min(available, capacity - first);
+                writeBatch(first, count);
+                head = h + count;
+                written += count;
+            }
+        } catch (IOException e) {
+            failed = true;
+            System.err.println("Telemetry disabled: " + e.getMessage());
+        } finally {
+            closeChannel();
+        }
+    }
+
+    private void writeBatch(int firstSlot, int count) throws IOException {
+        int bytes = count * RECORD_BYTES;
+        if (channel == null || fileBytes + bytes > maxFileBytes) {
+            rollFile();
+        }
+        drainView.limit(firstSlot * RECORD_BYTES + bytes).position(firstSlot * RECORD_BYTES);
+        while (drainView.hasRemaining()) {
+            channel.write(drainView);
+        }
+        fileBytes += bytes;
+    }
+
+    private void rollFile() throws IOException {
+        closeChannel();
+        Files.createDirectories(directory);
+        Path path = directory.resolve(String.format("telemetry-%d-%03d.bin", sessionMillis, fileIndex++));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        header.clear();
+        header.putInt(FILE_MAGIC).putShort((short) FILE_VERSION).putShort((short) RECORD_BYTES).putLong(0L).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        fileBytes = HEADER_BYTES;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Telemetry close failed: " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    public int getQueued() {
+        return (int) (tail - head);
+    }
+}
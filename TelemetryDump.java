@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Prints telemetry files as text. Arguments are files or directories; defaults to the game's telemetry directory.
+public final class TelemetryDump {
+    private static final String[] TYPE_NAMES = {
+            "?", "run-started", "floor-reached", "player-died", "relic-bought", "shards-spent", "fight"
+    };
+
+    private TelemetryDump() {
+        throw new AssertionError("No instances");
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String arg : args.length > 0 ? args : new String[] {GameConfig.TELEMETRY_DIRECTORY}) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "telemetry-*.bin")) {
+                    for (Path file : stream) {
+                        files.add(file);
+                    }
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        Collections.sort(files);
+        long[] counts = new long[TYPE_NAMES.length];
+        for (Path file : files) {
+            dump(file, counts);
+        }
+        for (int type = 1; type < TYPE_NAMES.length; type++) {
+            System.out.println(String.format(Locale.ROOT, "%-14s %d", TYPE_NAMES[type], counts[type]));
+        }
+    }
+
+    private static void dump(Path file, long[] counts) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file)) {
+            data = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // keep reading
+            }
+        }
+        data.flip();
+        if (data.remaining() < Telemetry.HEADER_BYTES || data.getInt(0) != Telemetry.FILE_MAGIC
+                || data.getShort(6) != Telemetry.RECORD_BYTES) {
+            System.err.println("Skipping " + file + ": not a telemetry file");
+            return;
+        }
+        System.out.println("# " + file);
+        for (int offset = Telemetry.HEADER_BYTES; offset + Telemetry.RECORD_BYTES <= data.limit();
+             offset += Telemetry.RECORD_BYTES) {
+            int type = data.getShort(offset + 8);
+            long a = data.getLong(offset + 16);
+            long b = data.getLong(offset + 24);
+            String name = type > 0 && type < TYPE_NAMES.length ? TYPE_NAMES[type] : "type-" + type;
+            if (type > 0 && type < counts.length) {
+                counts[type]++;
+            }
+            String detail = type == Telemetry.FIGHT
+                    ? String.format(Locale.ROOT, "%.3f ms, %d rounds, %s, %s", a / 1e6, b >>> 16,
+                            EnemyType.values()[(int) (b >>> 1) & 0x7FFF], (b & 1) != 0 ? "won" : "lost")
+                    : "a=" + a + " b=" + b;
+            System.out.println(String.format(Locale.ROOT, "%d  floor %-3d %-14s %s", data.getLong(offset),
+                    data.getInt(offset + 12), name, detail));
+        }
+    }
+}
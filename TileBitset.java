@@ -0,0 +1,142 @@
+import java.util.Arrays;
+
+// One bit per tile, each row padded to whole 64-bit words so rows can be processed word by word.
+public final class TileBitset {
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    public TileBitset(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.words = new long[wordsPerRow * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    public boolean get(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    public void clear(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] &= ~(1L << x);
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    public void copyFrom(TileBitset other) {
+        checkSameShape(other);
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    public void andNot(TileBitset other) {
+        checkSameShape(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    public void or(TileBitset other) {
+        checkSameShape(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean contentEquals(TileBitset other) {
+        checkSameShape(other);
+        return Arrays.equals(words, other.words);
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Set tiles inside the given rectangle, which must lie within the bitset.
+    public int count(int x, int y, int w, int h) {
+        int count = 0;
+        int end = x + w;
+        for (int row = y; row < y + h; row++) {
+            int base = row * wordsPerRow;
+            for (int word = x >>> 6; word <= (end - 1) >>> 6; word++) {
+                long bits = words[base + word];
+                if (word == x >>> 6) {
+                    bits &= -1L << x;
+                }
+                if (word == (end - 1) >>> 6 && (end & 63) != 0) {
+                    bits &= (1L << end) - 1;
+                }
+                count += Long.bitCount(bits);
+            }
+        }
+        return count;
+    }
+
+    // Row-major tile index (y * width + x) of the first set bit at or after the given index, or -1.
+    public int nextSetTile(int fromIndex) {
+        if (fromIndex < 0) {
+            fromIndex = 0;
+        }
+        int y = fromIndex / width;
+        int x = fromIndex % width;
+        while (y < height) {
+            int base = y * wordsPerRow;
+            for (int w = x >>> 6; w < wordsPerRow; w++) {
+                long word = words[base + w];
+                if (w == x >>> 6) {
+                    word &= -1L << x;
+                }
+                if (word != 0) {
+                    return y * width + (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+            }
+            y++;
+            x = 0;
+        }
+        return -1;
+    }
+
+    private void checkSameShape(TileBitset other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Bitsets differ in shape");
+        }
+    }
+}
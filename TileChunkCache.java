@@ -0,0 +1,291 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+// The static tile layer cut into fixed-size chunk images. Chunks are rendered the first time they come into
+// view and handed back to a pool once they are more than one chunk outside it, so memory and rebuild work
+// follow the viewport rather than the map. With a light map attached each chunk also keeps a lit copy, and only
+// the tiles inside the light map's dirty rectangle are multiplied again when lights change.
+public final class TileChunkCache {
+    public static final int CHUNK_TILES = 16;
+    private static final int EVICTION_MARGIN = 1;
+
+    private final TileRenderer renderer;
+    private final boolean raster;
+    private final int chunkPixels;
+    // prepare() may take images from a background thread while the event thread draws.
+    private final ConcurrentLinkedDeque<BufferedImage> pool = new ConcurrentLinkedDeque<>();
+
+    private Dungeon dungeon;
+    private LightMap light;
+    private BufferedImage[] chunks = new BufferedImage[0];
+    private BufferedImage[] litChunks = new BufferedImage[0];
+    private int chunkColumns;
+    private int chunkRows;
+    private int residentChunks;
+    private long chunksBuilt;
+
+    // Unlit chunks rendered for a floor before it is shown; reset() adopts them instead of rendering again.
+    public static final class Prepared {
+        private final Dungeon dungeon;
+        private final int[] indices;
+        private final BufferedImage[] images;
+
+        private Prepared(Dungeon dungeon, int[] indices, BufferedImage[] images) {
+            this.dungeon = dungeon;
+            this.indices = indices;
+            this.images = images;
+        }
+    }
+
+    public TileChunkCache(TileRenderer renderer, boolean raster) {
+        this.renderer = renderer;
+        this.raster = raster;
+        this.chunkPixels = CHUNK_TILES * renderer.getTileSize();
+    }
+
+    // Drops every chunk; call whenever the floor's tiles change.
+    public void reset(Dungeon dungeon) {
+        reset(dungeon, null);
+    }
+
+    public void reset(Dungeon dungeon, LightMap light) {
+        reset(dungeon, light, null);
+    }
+
+    // Prepared chunks for another floor go back to the pool unused.
+    public void reset(Dungeon dungeon, LightMap light, Prepared prepared) {
+        for (int i = 0; i < chunks.length; i++) {
+            release(i);
+        }
+        this.dungeon = dungeon;
+        this.light = light;
+        chunkColumns = (dungeon.getWidth() + CHUNK_TILES - 1) / CHUNK_TILES;
+        chunkRows = (dungeon.getHeight() + CHUNK_TILES - 1) / CHUNK_TILES;
+        if (chunks.length < chunkColumns * chunkRows) {
+            chunks = new BufferedImage[chunkColumns * chunkRows];
+            litChunks = new BufferedImage[chunkColumns * chunkRows];
+        }
+        if (prepared == null) {
+            return;
+        }
+        if (prepared.dungeon != dungeon) {
+            recycle(prepared);
+            return;
+        }
+        // The light map may not be filled in yet, so the lit copies are made when the chunks are first drawn.
+        for (int i = 0; i < prepared.indices.length; i++) {
+            chunks[prepared.indices[i]] = prepared.images[i];
+            residentChunks++;
+            chunksBuilt++;
+        }
+    }
+
+    // Renders the chunks a camera over the given floor would show first, on any thread and without touching what
+    // the cache is drawing now. The camera must already be sized and placed for that floor.
+    public Prepared prepare(Dungeon dungeon, Camera camera) {
+        int columns = (dungeon.getWidth() + CHUNK_TILES - 1) / CHUNK_TILES;
+        int rows = (dungeon.getHeight() + CHUNK_TILES - 1) / CHUNK_TILES;
+        int firstColumn = firstColumn(camera);
+        int firstRow = firstRow(camera);
+        int lastColumn = lastColumn(camera, columns);
+        int lastRow = lastRow(camera, rows);
+        int count = (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1);
+        int[] indices = new int[Math.max(0, count)];
+        BufferedImage[] images = new BufferedImage[indices.length];
+        int next = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                indices[next] = row * columns + column;
+                images[next] = render(dungeon, column, row);
+                next++;
+            }
+        }
+        return new Prepared(dungeon, indices, images);
+    }
+
+    // For prepared chunks that were never handed to reset(), such as those of an overtaken run.
+    public void recycle(Prepared prepared) {
+        for (BufferedImage image : prepared.images) {
+            pool.push(image);
+        }
+    }
+
+    // Draws the visible part of the layer; the graphics must already be in world coordinates.
+    public void draw(Graphics2D g2, Camera camera) {
+        if (dungeon == null) {
+            return;
+        }
+        if (light != null && light.isDirty()) {
+            relightDirty();
+        }
+        int firstColumn = firstColumn(camera);
+        int firstRow = firstRow(camera);
+        int lastColumn = lastColumn(camera, chunkColumns);
+        int lastRow = lastRow(camera, chunkRows);
+        int worldWidth = dungeon.getWidth() * renderer.getTileSize();
+        int worldHeight = dungeon.getHeight() * renderer.getTileSize();
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                BufferedImage chunk = chunk(column, row);
+                if (light != null) {
+                    chunk = litChunks[row * chunkColumns + column];
+                }
+                int left = column * chunkPixels;
+                int top = row * chunkPixels;
+                // Edge chunks hang over the map; only their in-map part is drawn.
+                int width = Math.min(chunkPixels, worldWidth - left);
+                int height = Math.min(chunkPixels, worldHeight - top);
+                g2.drawImage(chunk, left, top, left + width, top + height, 0, 0, width, height, null);
+            }
+        }
+        evictOutside(firstColumn - EVICTION_MARGIN, firstRow - EVICTION_MARGIN,
+                lastColumn + EVICTION_MARGIN, lastRow + EVICTION_MARGIN);
+    }
+
+    private int firstColumn(Camera camera) {
+        return Math.max(0, Math.floorDiv(camera.getX(), chunkPixels));
+    }
+
+    private int firstRow(Camera camera) {
+        return Math.max(0, Math.floorDiv(camera.getY(), chunkPixels));
+    }
+
+    private int lastColumn(Camera camera, int columns) {
+        return Math.min(columns - 1, Math.floorDiv(camera.getX() + camera.getViewWidth() - 1, chunkPixels));
+    }
+
+    private int lastRow(Camera camera, int rows) {
+        return Math.min(rows - 1, Math.floorDiv(camera.getY() + camera.getViewHeight() - 1, chunkPixels));
+    }
+
+    public int getResidentChunks() {
+        return residentChunks;
+    }
+
+    public long getChunksBuilt() {
+        return chunksBuilt;
+    }
+
+    private BufferedImage chunk(int column, int row) {
+        int index = row * chunkColumns + column;
+        BufferedImage chunk = chunks[index];
+        if (chunk == null) {
+            chunk = render(dungeon, column, row);
+            chunks[index] = chunk;
+            residentChunks++;
+            chunksBuilt++;
+        }
+        if (light != null && litChunks[index] == null) {
+            litChunks[index] = takeImage();
+            applyLight(index, 0, 0, CHUNK_TILES - 1, CHUNK_TILES - 1);
+        }
+        return chunk;
+    }
+
+    private BufferedImage render(Dungeon dungeon, int column, int row) {
+        BufferedImage chunk = takeImage();
+        if (raster) {
+            renderer.renderRaster(dungeon, chunk, column * CHUNK_TILES, row * CHUNK_TILES);
+        } else {
+            renderer.renderGraphics(dungeon, chunk, column * CHUNK_TILES, row * CHUNK_TILES);
+        }
+        return chunk;
+    }
+
+    private BufferedImage takeImage() {
+        BufferedImage image = pool.pollFirst();
+        return image != null ? image : new BufferedImage(chunkPixels, chunkPixels, BufferedImage.TYPE_INT_RGB);
+    }
+
+    // Chunks lit after the change already use the current values, so only resident lit copies are touched.
+    private void relightDirty() {
+        int left = light.getDirtyLeft();
+        int top = light.getDirtyTop();
+        int right = light.getDirtyRight();
+        int bottom = light.getDirtyBottom();
+        light.clearDirty();
+        if (residentChunks == 0) {
+            return;
+        }
+        for (int row = top / CHUNK_TILES; row <= bottom / CHUNK_TILES && row < chunkRows; row++) {
+            for (int column = left / CHUNK_TILES; column <= right / CHUNK_TILES && column < chunkColumns; column++) {
+                int index = row * chunkColumns + column;
+                if (litChunks[index] == null) {
+                    continue;
+                }
+                int originColumn = column * CHUNK_TILES;
+                int originRow = row * CHUNK_TILES;
+                applyLight(index, Math.max(0, left - originColumn), Math.max(0, top - originRow),
+                        Math.min(CHUNK_TILES - 1, right - originColumn),
+                        Math.min(CHUNK_TILES - 1, bottom - originRow));
+            }
+        }
+    }
+
+    // Multiplies the unlit chunk into its lit copy, one flat light value per tile, over chunk-local tile bounds.
+    private void applyLight(int index, int firstTileX, int firstTileY, int lastTileX, int lastTileY) {
+        int[] base = pixels(chunks[index]);
+        int[] lit = pixels(litChunks[index]);
+        int originColumn = (index % chunkColumns) * CHUNK_TILES;
+        int originRow = (index / chunkColumns) * CHUNK_TILES;
+        lastTileX = Math.min(lastTileX, dungeon.getWidth() - 1 - originColumn);
+        lastTileY = Math.min(lastTileY, dungeon.getHeight() - 1 - originRow);
+        int tileSize = renderer.getTileSize();
+        for (int ty = firstTileY; ty <= lastTileY; ty++) {
+            for (int tx = firstTileX; tx <= lastTileX; tx++) {
+                int x = originColumn + tx;
+                int y = originRow + ty;
+                int red = light.getRed(x, y);
+                int green = light.getGreen(x, y);
+                int blue = light.getBlue(x, y);
+                int start = ty * tileSize * chunkPixels + tx * tileSize;
+                if (red == LightMap.FULL && green == LightMap.FULL && blue == LightMap.FULL) {
+                    for (int py = 0, i = start; py < tileSize; py++, i += chunkPixels) {
+                        System.arraycopy(base, i, lit, i, tileSize);
+                    }
+                    continue;
+                }
+                for (int py = 0, rowStart = start; py < tileSize; py++, rowStart += chunkPixels) {
+                    for (int i = rowStart, end = rowStart + tileSize; i < end; i++) {
+                        int p = base[i];
+                        lit[i] = ((p >>> 16 & 0xFF) * red >>> 8) << 16
+                                | ((p >>> 8 & 0xFF) * green >>> 8) << 8
+                                | (p & 0xFF) * blue >>> 8;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private void evictOutside(int firstColumn, int firstRow, int lastColumn, int lastRow) {
+        if (residentChunks == 0) {
+            return;
+        }
+        for (int row = 0; row < chunkRows; row++) {
+            for (int column = 0; column < chunkColumns; column++) {
+                if (column < firstColumn || column > lastColumn || row < firstRow || row > lastRow) {
+                    release(row * chunkColumns + column);
+                }
+            }
+        }
+    }
+
+    private void release(int index) {
+        if (chunks[index] != null) {
+            pool.push(chunks[index]);
+            chunks[index] = null;
+            residentChunks--;
+        }
+        if (litChunks[index] != null) {
+            pool.push(litChunks[index]);
+            litChunks[index] = null;
+        }
+    }
+}
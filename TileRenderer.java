@@ -0,0 +1,294 @@
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+// Draws the static tile layer of a floor: floor fill with shade and speckles, decals, and bevelled walls.
+// Key tiles are animated or stateful and are drawn on top by the game each frame. Two interchangeable paths
+// exist: the Graphics2D reference and a software rasteriser that writes the pixel array of a TYPE_INT_RGB
+// image directly. Both produce identical pixels.
+public final class TileRenderer {
+    public static final int DECAL_PLUS = 0;
+    public static final int DECAL_LINE = 1;
+    public static final int DECAL_DOT = 2;
+
+    private static final int SPECKLES_PER_TILE = 5;
+    private static final float DECAL_ALPHA = 0.12f;
+    private static final int DECAL_RGB = 0x6B7285;
+    // Java2D's solid fills set the unused top byte of TYPE_INT_RGB pixels and its blend loops clear it;
+    // the raster path does the same so the pixel arrays compare equal, not just the visible colours.
+    private static final int OPAQUE = 0xFF000000;
+
+    private final int tileSize;
+    private final Color floorColor;
+    private final Color wallColor;
+    private final Color lightEdge;
+    private final Color darkEdge;
+    private final Color[] speckleLight = new Color[256];
+    private final Color[] speckleDark = new Color[256];
+    // One pre-bevelled wall tile, copied row by row into the raster.
+    private final int[] wallPattern;
+
+    public TileRenderer(int tileSize, Color floorColor, Color wallColor) {
+        this.tileSize = tileSize;
+        this.floorColor = floorColor;
+        this.wallColor = wallColor;
+        this.lightEdge = lighten(wallColor, 0.18f);
+        this.darkEdge = darken(wallColor, 0.3f);
+        for (int alpha = 0; alpha < 256; alpha++) {
+            speckleLight[alpha] = new Color(255, 255, 255, alpha);
+            speckleDark[alpha] = new Color(0, 0, 0, alpha);
+        }
+        wallPattern = buildWallPattern();
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public BufferedImage createLayer(int columns, int rows) {
+        return new BufferedImage(columns * tileSize, rows * tileSize, BufferedImage.TYPE_INT_RGB);
+    }
+
+    public void renderGraphics(Dungeon dungeon, BufferedImage target) {
+        renderGraphics(dungeon, target, 0, 0);
+    }
+
+    // Reference path: the original per-tile Graphics2D drawing, with antialiasing off so edges are exact.
+    // The image receives the block of tiles whose top-left tile is (firstColumn, firstRow).
+    public void renderGraphics(Dungeon dungeon, BufferedImage target, int firstColumn, int firstRow) {
+        Graphics2D g2 = target.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g2.translate(-firstColumn * tileSize, -firstRow * tileSize);
+        int lastColumn = Math.min(dungeon.getWidth(), firstColumn + target.getWidth() / tileSize);
+        int lastRow = Math.min(dungeon.getHeight(), firstRow + target.getHeight() / tileSize);
+        for (int x = firstColumn; x < lastColumn; x++) {
+            for (int y = firstRow; y < lastRow; y++) {
+                if (dungeon.getTile(x, y) == Dungeon.TileType.WALL) {
+                    drawWallTile(g2, x, y);
+                } else {
+                    drawFloorTile(g2, dungeon, x, y);
+                }
+            }
+        }
+        g2.dispose();
+    }
+
+    private void drawFloorTile(Graphics2D g2, Dungeon dungeon, int x, int y) {
+        int px = x * tileSize;
+        int py = y * tileSize;
+        g2.setColor(shadeColor(floorColor, dungeon.getShade(x, y)));
+        g2.fillRect(px, py, tileSize, tileSize);
+
+        for (int i = 0; i < SPECKLES_PER_TILE; i++) {
+            long noise = Rng.hash(dungeon.getSeed(), x, y, i);
+            float dotX = px + (noise & 0xFFFF) * 0x1.0p-16f * tileSize;
+            float dotY = py + ((noise >>> 16) & 0xFFFF) * 0x1.0p-16f * tileSize;
+            int alphaByte = speckleAlpha(noise);
+            g2.setColor(noise < 0 ? speckleLight[alphaByte] : speckleDark[alphaByte]);
+            g2.fillRect(Math.round(dotX), Math.round(dotY), 1, 1);
+        }
+
+        int decal = dungeon.getDecal(x, y);
+        if (decal != Dungeon.DECAL_NONE) {
+            g2.setComposite(AlphaComposite.SrcOver.derive(DECAL_ALPHA));
+            g2.setColor(new Color(DECAL_RGB));
+            int cx = px + tileSize / 2;
+            int cy = py + tileSize / 2;
+            switch (decal) {
+                case DECAL_PLUS:
+                    g2.fillRect(cx - 1, py + tileSize / 4, 2, tileSize / 2);
+                    g2.fillRect(px + tileSize / 4, cy - 1, tileSize / 2, 2);
+                    break;
+                case DECAL_LINE:
+                    g2.setStroke(new BasicStroke(1f));
+                    g2.drawLine(px + tileSize / 4, py + tileSize / 4, px + tileSize * 3 / 4, py + tileSize * 3 / 4);
+                    break;
+                case DECAL_DOT:
+                    g2.fillOval(cx - 2, cy - 2, 4, 4);
+                    break;
+                default:
+                    break;
+            }
+            g2.setComposite(AlphaComposite.SrcOver);
+        }
+    }
+
+    private void drawWallTile(Graphics2D g2, int x, int y) {
+        int px = x * tileSize;
+        int py = y * tileSize;
+        g2.setColor(wallColor);
+        g2.fillRect(px, py, tileSize, tileSize);
+        g2.setColor(lightEdge);
+        g2.fillRect(px, py, tileSize, 1);
+        g2.fillRect(px, py, 1, tileSize);
+        g2.setColor(darkEdge);
+        g2.fillRect(px, py + tileSize - 1, tileSize, 1);
+        g2.fillRect(px + tileSize - 1, py, 1, tileSize);
+    }
+
+    // Software path. The target must be TYPE_INT_RGB; touching its pixel array opts it out of acceleration,
+    // which is fine for a layer that is rebuilt only when the floor changes.
+    public void renderRaster(Dungeon dungeon, BufferedImage target) {
+        renderRaster(dungeon, target, 0, 0);
+    }
+
+    public void renderRaster(Dungeon dungeon, BufferedImage target, int firstColumn, int firstRow) {
+        if (target.getType() != BufferedImage.TYPE_INT_RGB) {
+            throw new IllegalArgumentException("Raster path needs a TYPE_INT_RGB image");
+        }
+        int[] pixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+        int stride = ((SinglePixelPackedSampleModel) target.getSampleModel()).getScanlineStride();
+        int columns = Math.min(dungeon.getWidth() - firstColumn, target.getWidth() / tileSize);
+        int rows = Math.min(dungeon.getHeight() - firstRow, target.getHeight() / tileSize);
+        int decalAlpha = (int) (DECAL_ALPHA * 255 + 0.5f);
+        int decalR = mul8(decalAlpha, (DECAL_RGB >>> 16) & 0xFF);
+        int decalG = mul8(decalAlpha, (DECAL_RGB >>> 8) & 0xFF);
+        int decalB = mul8(decalAlpha, DECAL_RGB & 0xFF);
+        int decalSource = (decalR << 16) | (decalG << 8) | decalB;
+        long seed = dungeon.getSeed();
+        for (int row = 0; row < rows; row++) {
+            int y = firstRow + row;
+            int rowBase = row * tileSize * stride;
+            for (int column = 0; column < columns; column++) {
+                int x = firstColumn + column;
+                int origin = rowBase + column * tileSize;
+                if (dungeon.getTile(x, y) == Dungeon.TileType.WALL) {
+                    for (int line = 0; line < tileSize; line++) {
+                        System.arraycopy(wallPattern, line * tileSize, pixels, origin + line * stride, tileSize);
+                    }
+                    continue;
+                }
+                int base = OPAQUE | shadeRgb(floorColor, dungeon.getShade(x, y));
+                Arrays.fill(pixels, origin, origin + tileSize, base);
+                for (int line = 1; line < tileSize; line++) {
+                    System.arraycopy(pixels, origin, pixels, origin + line * stride, tileSize);
+                }
+                for (int i = 0; i < SPECKLES_PER_TILE; i++) {
+                    long noise = Rng.hash(seed, x, y, i);
+                    // Same float arithmetic as the reference so rounding lands on the same pixel.
+                    int dotX = Math.round(x * tileSize + (noise & 0xFFFF) * 0x1.0p-16f * tileSize) - x * tileSize;
+                    int dotY = Math.round(y * tileSize + ((noise >>> 16) & 0xFFFF) * 0x1.0p-16f * tileSize)
+                            - y * tileSize;
+                    // A dot rounded onto the next tile is painted over when that tile is drawn.
+                    if (dotX >= tileSize || dotY >= tileSize) {
+                        continue;
+                    }
+                    int alpha = speckleAlpha(noise);
+                    int index = origin + dotY * stride + dotX;
+                    pixels[index] = blend(noise < 0 ? (alpha << 16) | (alpha << 8) | alpha : 0, alpha, pixels[index]);
+                }
+                int decal = dungeon.getDecal(x, y);
+                if (decal != Dungeon.DECAL_NONE) {
+                    stampDecal(pixels, stride, origin, decal, decalSource, decalAlpha);
+                }
+            }
+        }
+    }
+
+    private void stampDecal(int[] pixels, int stride, int origin, int decal, int source, int alpha) {
+        int center = tileSize / 2;
+        int quarter = tileSize / 4;
+        switch (decal) {
+            case DECAL_PLUS:
+                blendRect(pixels, stride, origin, center - 1, quarter, 2, tileSize / 2, source, alpha);
+                blendRect(pixels, stride, origin, quarter, center - 1, tileSize / 2, 2, source, alpha);
+                break;
+            case DECAL_LINE:
+                for (int i = quarter; i <= tileSize * 3 / 4; i++) {
+                    int index = origin + i * stride + i;
+                    pixels[index] = blend(source, alpha, pixels[index]);
+                }
+                break;
+            case DECAL_DOT:
+                // What Java2D's non-antialiased, alpha-composited 4x4 oval covers: a 4-pixel row with a centred
+                // 2-pixel row above and below it; the top row of the bounding box stays empty.
+                blendRect(pixels, stride, origin, center - 1, center - 1, 2, 1, source, alpha);
+                blendRect(pixels, stride, origin, center - 2, center, 4, 1, source, alpha);
+                blendRect(pixels, stride, origin, center - 1, center + 1, 2, 1, source, alpha);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // The plus decal's bars overlap in the middle; the reference blends those pixels twice and so does this.
+    private static void blendRect(int[] pixels, int stride, int origin, int left, int top, int width, int height,
+                                  int source, int alpha) {
+        for (int row = top; row < top + height; row++) {
+            int index = origin + row * stride + left;
+            for (int column = 0; column < width; column++, index++) {
+                pixels[index] = blend(source, alpha, pixels[index]);
+            }
+        }
+    }
+
+    // Source-over onto an opaque pixel, with the source already premultiplied, using the same 8-bit
+    // multiply table Java2D's software loops use.
+    private static int blend(int premultipliedSource, int alpha, int destination) {
+        int inverse = 255 - alpha;
+        int r = ((premultipliedSource >>> 16) & 0xFF) + mul8(inverse, (destination >>> 16) & 0xFF);
+        int g = ((premultipliedSource >>> 8) & 0xFF) + mul8(inverse, (destination >>> 8) & 0xFF);
+        int b = (premultipliedSource & 0xFF) + mul8(inverse, destination & 0xFF);
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private static int mul8(int a, int b) {
+        return (a * b * 0x10101 + 0x800000) >>> 24;
+    }
+
+    private static int speckleAlpha(long noise) {
+        float alpha = 0.05f + ((noise >>> 32) & 0xFFFF) * 0x1.0p-16f * 0.05f;
+        return (int) (alpha * 255);
+    }
+
+    private int[] buildWallPattern() {
+        int[] pattern = new int[tileSize * tileSize];
+        Arrays.fill(pattern, wallColor.getRGB());
+        int light = lightEdge.getRGB();
+        int dark = darkEdge.getRGB();
+        for (int i = 0; i < tileSize; i++) {
+            pattern[i] = light;
+            pattern[i * tileSize] = light;
+        }
+        for (int i = 0; i < tileSize; i++) {
+            pattern[(tileSize - 1) * tileSize + i] = dark;
+            pattern[i * tileSize + tileSize - 1] = dark;
+        }
+        return pattern;
+    }
+
+    private static Color shadeColor(Color base, float factor) {
+        return new Color(shadeRgb(base, factor));
+    }
+
+    private static int shadeRgb(Color base, float factor) {
+        int r = clamp((int) (base.getRed() * factor));
+        int g = clamp((int) (base.getGreen() * factor));
+        int b = clamp((int) (base.getBlue() * factor));
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private static Color lighten(Color color, float amount) {
+        int r = clamp((int) (color.getRed() + (255 - color.getRed()) * amount));
+        int g = clamp((int) (color.getGreen() + (255 - color.getGreen()) * amount));
+        int b = clamp((int) (color.getBlue() + (255 - color.getBlue()) * amount));
+        return new Color(r, g, b);
+    }
+
+    private static Color darken(Color color, float amount) {
+        int r = clamp((int) (color.getRed() * (1f - amount)));
+        int g = clamp((int) (color.getGreen() * (1f - amount)));
+        int b = clamp((int) (color.getBlue() * (1f - amount)));
+        return new Color(r, g, b);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,61 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Locale;
+
+public final class TileRendererBenchmark {
+    private static final int TILE_SIZE = 24;
+    private static final int[][] SIZES = {
+            {40, 24},
+            {96, 96},
+            {160, 160}
+    };
+
+    private TileRendererBenchmark() {
+        throw new AssertionError("No instances");
+    }
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        TileRenderer renderer = new TileRenderer(TILE_SIZE, new Color(0x171A21), new Color(0x2B2F3A));
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            int areaScale = Math.max(1, (width * height) / (40 * 24));
+            Dungeon dungeon = new Dungeon(width, height, 14 * areaScale, 4, 9, 60 * areaScale);
+            BufferedImage reference = renderer.createLayer(width, height);
+            BufferedImage raster = renderer.createLayer(width, height);
+
+            long graphicsNanos = 0;
+            long rasterNanos = 0;
+            int mismatches = 0;
+            for (int round = -3; round < rounds; round++) {
+                dungeon.generate(1_000_003L * (round + 4));
+                long start = System.nanoTime();
+                renderer.renderGraphics(dungeon, reference);
+                long middle = System.nanoTime();
+                renderer.renderRaster(dungeon, raster);
+                long end = System.nanoTime();
+                // Negative rounds warm up the JIT and are not timed.
+                if (round >= 0) {
+                    graphicsNanos += middle - start;
+                    rasterNanos += end - middle;
+                }
+                if (!Arrays.equals(pixels(reference), pixels(raster))) {
+                    mismatches++;
+                }
+            }
+            System.out.println(String.format(Locale.ROOT,
+                    "%dx%d tiles (%dx%d px): graphics2d %.2f ms, raster %.2f ms, %.1fx, %s",
+                    width, height, width * TILE_SIZE, height * TILE_SIZE,
+                    graphicsNanos / 1e6 / rounds, rasterNanos / 1e6 / rounds,
+                    graphicsNanos / (double) Math.max(1, rasterNanos),
+                    mismatches == 0 ? "identical" : mismatches + " floors differ"));
+        }
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+// Energy scheduler: every actor gains its speed in energy each tick and acts once it holds ENERGY_PER_ACTION.
+// Rather than ticking everyone, each actor is keyed in the heap by the tick at which it next reaches the
+// threshold, and energy is settled lazily whenever that actor is touched.
+public final class TurnScheduler {
+    public static final int ENERGY_PER_ACTION = 100;
+
+    public interface TurnHandler {
+        void takeTurn(int actorId);
+    }
+
+    private final IndexedMinHeap queue;
+    private int[] speeds;
+    private long[] energy;
+    private long[] settledAt;
+    private long currentTick;
+
+    public TurnScheduler(int capacity) {
+        int initial = Math.max(1, capacity);
+        queue = new IndexedMinHeap(initial);
+        speeds = new int[initial];
+        energy = new long[initial];
+        settledAt = new long[initial];
+    }
+
+    public void clear() {
+        queue.clear();
+        currentTick = 0;
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public boolean contains(int actorId) {
+        return queue.contains(actorId);
+    }
+
+    public void add(int actorId, int speed) {
+        ensureCapacity(actorId + 1);
+        speeds[actorId] = Math.max(1, speed);
+        energy[actorId] = 0;
+        settledAt[actorId] = currentTick;
+        queue.insert(actorId, readyTick(actorId));
+    }
+
+    public void remove(int actorId) {
+        if (queue.contains(actorId)) {
+            queue.remove(actorId);
+        }
+    }
+
+    public void setSpeed(int actorId, int speed) {
+        settle(actorId);
+        speeds[actorId] = Math.max(1, speed);
+        queue.update(actorId, readyTick(actorId));
+    }
+
+    // Advances time to the next ready actor and returns it. The actor stays queued until endTurn.
+    public int nextActor() {
+        int actorId = queue.peek();
+        currentTick = Math.max(currentTick, queue.getKey(actorId));
+        settle(actorId);
+        return actorId;
+    }
+
+    public void endTurn(int actorId) {
+        endTurn(actorId, ENERGY_PER_ACTION);
+    }
+
+    public void endTurn(int actorId, int energyCost) {
+        settle(actorId);
+        energy[actorId] -= energyCost;
+        queue.update(actorId, readyTick(actorId));
+    }
+
+    // Runs every other actor's turns until the given actor is next; returns the number of turns taken, or -1 if
+    // maxTurns ran out first and the actor is still not next.
+    public int runUntil(int actorId, TurnHandler handler, int maxTurns) {
+        int turns = 0;
+        while (!queue.isEmpty()) {
+            int next = nextActor();
+            if (next == actorId) {
+                return turns;
+            }
+            if (turns == maxTurns) {
+                return -1;
+            }
+            handler.takeTurn(next);
+            if (queue.contains(next)) {
+                endTurn(next);
+            }
+            turns++;
+        }
+        return turns;
+    }
+
+    private void settle(int actorId) {
+        long elapsed = currentTick - settledAt[actorId];
+        if (elapsed > 0) {
+            energy[actorId] += elapsed * speeds[actorId];
+            settledAt[actorId] = currentTick;
+        }
+    }
+
+    private long readyTick(int actorId) {
+        long missing = ENERGY_PER_ACTION - energy[actorId];
+        if (missing <= 0) {
+            return currentTick;
+        }
+        int speed = speeds[actorId];
+        return currentTick + (missing + speed - 1) / speed;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= speeds.length) {
+            return;
+        }
+        int capacity = Math.max(required, speeds.length * 2);
+        speeds = Arrays.copyOf(speeds, capacity);
+        energy = Arrays.copyOf(energy, capacity);
+        settledAt = Arrays.copyOf(settledAt, capacity);
+    }
+}
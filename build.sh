@@ -0,0 +1,17 @@
+#!/bin/sh
+# Builds roguelike.jar and records a class-data-sharing archive for it, so the game starts from classes the JVM has
+# already parsed and verified. Run the game with:
+#
+#   java -XX:SharedArchiveFile=roguelike.jsa -cp roguelike.jar Game
+#
+# The archive only fits the jar it was recorded with; run this again after every change.
+set -e
+cd "$(dirname "$0")"
+
+rm -rf build/classes roguelike.jar roguelike.jsa
+mkdir -p build/classes
+javac -encoding UTF-8 -d build/classes *.java
+jar --create --file roguelike.jar --main-class Game -C build/classes .
+
+# StartupBenchmark records the archive in a first cold start of the game, then times one start that uses it.
+java -cp roguelike.jar StartupBenchmark --runs 1 --archive roguelike.jsa